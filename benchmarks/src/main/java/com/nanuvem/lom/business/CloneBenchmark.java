@@ -0,0 +1,84 @@
+package com.nanuvem.lom.business;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.nanuvem.lom.api.Attribute;
+import com.nanuvem.lom.api.AttributeType;
+import com.nanuvem.lom.api.Entity;
+import com.nanuvem.lom.api.Instance;
+import com.nanuvem.lom.business.benchmark.BusinessFixtures;
+
+/**
+ * Lives in the business package because Util.clone is package private.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CloneBenchmark {
+
+    @Param({ "1", "20", "200" })
+    public int attributeCount;
+
+    @Param({ "10", "1000" })
+    public int valueLength;
+
+    @Param({ "1", "100" })
+    public int dataSize;
+
+    private Entity entity;
+    private Instance instance;
+    private List<Instance> instances;
+
+    @Setup
+    public void setUp() {
+        entity = BusinessFixtures.newEntity("cloned");
+        entity.setId(1L);
+        List<Attribute> attributes = new ArrayList<Attribute>();
+        for (int i = 0; i < attributeCount; i++) {
+            Attribute attribute = BusinessFixtures.newAttribute(entity, BusinessFixtures.name("attr", i),
+                    AttributeType.TEXT, null);
+            attribute.setId((long) i);
+            entity.getAttributes().add(attribute);
+            attributes.add(attribute);
+        }
+
+        instances = new ArrayList<Instance>();
+        for (int i = 0; i < dataSize; i++) {
+            instances.add(BusinessFixtures.newInstance(entity, attributes, BusinessFixtures.text(valueLength)));
+        }
+        instance = instances.get(0);
+    }
+
+    @Benchmark
+    public Entity cloneEntity() {
+        return Util.clone(entity);
+    }
+
+    @Benchmark
+    public Instance cloneInstance() {
+        return Util.clone(instance);
+    }
+
+    @Benchmark
+    public List<Instance> cloneInstanceList() {
+        return Util.clone(instances);
+    }
+
+}
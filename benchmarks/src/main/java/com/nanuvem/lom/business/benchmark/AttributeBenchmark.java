@@ -0,0 +1,72 @@
+package com.nanuvem.lom.business.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.nanuvem.lom.api.Attribute;
+import com.nanuvem.lom.api.AttributeType;
+import com.nanuvem.lom.api.Entity;
+import com.nanuvem.lom.business.BusinessFacade;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AttributeBenchmark {
+
+    @Param({ "1", "20", "200" })
+    public int attributeCount;
+
+    private BusinessFacade facade;
+    private Entity entity;
+    private Attribute attribute;
+    private int sequence;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        facade = BusinessFixtures.newFacade();
+        entity = BusinessFixtures.createEntity(facade, "measured");
+        String configuration = BusinessFixtures.configuration(Attribute.MAXLENGTH_CONFIGURATION_NAME, 100);
+        attribute = BusinessFixtures.createAttributes(facade, entity, attributeCount, AttributeType.TEXT,
+                configuration).get(0);
+        sequence = 0;
+    }
+
+    @Benchmark
+    public Attribute create() {
+        return facade.create(BusinessFixtures.newAttribute(entity, BusinessFixtures.name("created", sequence++),
+                AttributeType.TEXT, null));
+    }
+
+    @Benchmark
+    public Attribute findById() {
+        return facade.findAttributeById(attribute.getId());
+    }
+
+    @Benchmark
+    public Attribute findByNameAndEntityFullName() {
+        return facade.findAttributeByNameAndEntityFullName(attribute.getName(), BusinessFixtures.NAMESPACE
+                + ".measured");
+    }
+
+    @Benchmark
+    public Attribute update() {
+        attribute = facade.update(attribute);
+        return attribute;
+    }
+
+}
@@ -0,0 +1,119 @@
+package com.nanuvem.lom.business.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.nanuvem.lom.api.Attribute;
+import com.nanuvem.lom.api.AttributeType;
+import com.nanuvem.lom.api.AttributeValue;
+import com.nanuvem.lom.api.Cardinality;
+import com.nanuvem.lom.api.Entity;
+import com.nanuvem.lom.api.Instance;
+import com.nanuvem.lom.api.Relation;
+import com.nanuvem.lom.api.RelationType;
+import com.nanuvem.lom.business.BusinessFacade;
+import com.nanuvem.lom.kernel.dao.MemoryDaoFactory;
+
+/**
+ * Builds the schemas and data the benchmarks run against, always through the
+ * BusinessFacade over a fresh MemoryDaoFactory.
+ */
+public final class BusinessFixtures {
+
+    public static final String NAMESPACE = "benchmark";
+
+    private BusinessFixtures() {
+    }
+
+    public static BusinessFacade newFacade() {
+        return new BusinessFacade(new MemoryDaoFactory());
+    }
+
+    /**
+     * Entity and attribute names only accept letters and the digits 1 to 9, so
+     * sequence numbers are spelled with letters.
+     */
+    public static String name(String prefix, int sequence) {
+        StringBuilder name = new StringBuilder(prefix);
+        int remaining = sequence;
+        do {
+            name.append((char) ('a' + remaining % 26));
+            remaining /= 26;
+        } while (remaining > 0);
+        return name.toString();
+    }
+
+    public static String text(int length) {
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append((char) ('a' + i % 26));
+        }
+        return text.toString();
+    }
+
+    public static Entity newEntity(String name) {
+        Entity entity = new Entity();
+        entity.setNamespace(NAMESPACE);
+        entity.setName(name);
+        return entity;
+    }
+
+    public static Entity createEntity(BusinessFacade facade, String name) {
+        return facade.create(newEntity(name));
+    }
+
+    public static Attribute newAttribute(Entity entity, String name, AttributeType type, String configuration) {
+        Attribute attribute = new Attribute();
+        attribute.setEntity(entity);
+        attribute.setName(name);
+        attribute.setType(type);
+        attribute.setConfiguration(configuration);
+        return attribute;
+    }
+
+    public static List<Attribute> createAttributes(BusinessFacade facade, Entity entity, int count,
+            AttributeType type, String configuration) {
+        List<Attribute> attributes = new ArrayList<Attribute>();
+        for (int i = 0; i < count; i++) {
+            attributes.add(facade.create(newAttribute(entity, name("attr", i), type, configuration)));
+        }
+        return attributes;
+    }
+
+    public static Instance newInstance(Entity entity, List<Attribute> attributes, String value) {
+        Instance instance = new Instance();
+        instance.setEntity(entity);
+        for (Attribute attribute : attributes) {
+            AttributeValue attributeValue = new AttributeValue();
+            attributeValue.setAttribute(attribute);
+            attributeValue.setValue(value);
+            instance.getValues().add(attributeValue);
+        }
+        return instance;
+    }
+
+    public static RelationType createRelationType(BusinessFacade facade, String name, Entity source,
+            Entity target, Cardinality sourceCardinality, Cardinality targetCardinality) {
+        RelationType relationType = new RelationType();
+        relationType.setName(name);
+        relationType.setSourceEntity(source);
+        relationType.setTargetEntity(target);
+        relationType.setSourceCardinality(sourceCardinality);
+        relationType.setTargetCardinality(targetCardinality);
+        return facade.create(relationType);
+    }
+
+    public static Relation newRelation(RelationType relationType, Instance source, Instance target) {
+        Relation relation = new Relation();
+        relation.setRelationType(relationType);
+        relation.setSource(source);
+        relation.setTarget(target);
+        return relation;
+    }
+
+    public static String configuration(String field, Object value) {
+        String jsonValue = value instanceof String ? "\"" + value + "\"" : String.valueOf(value);
+        return "{\"" + field + "\": " + jsonValue + "}";
+    }
+
+}
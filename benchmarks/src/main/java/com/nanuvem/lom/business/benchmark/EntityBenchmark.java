@@ -0,0 +1,76 @@
+package com.nanuvem.lom.business.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.nanuvem.lom.api.AttributeType;
+import com.nanuvem.lom.api.Entity;
+import com.nanuvem.lom.business.BusinessFacade;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntityBenchmark {
+
+    @Param({ "10", "1000" })
+    public int dataSize;
+
+    @Param({ "1", "20" })
+    public int attributeCount;
+
+    private BusinessFacade facade;
+    private Entity entity;
+    private int sequence;
+
+    @Setup
+    public void setUp() {
+        facade = BusinessFixtures.newFacade();
+        for (int i = 0; i < dataSize; i++) {
+            BusinessFixtures.createEntity(facade, BusinessFixtures.name("existing", i));
+        }
+        entity = BusinessFixtures.createEntity(facade, "measured");
+        BusinessFixtures.createAttributes(facade, entity, attributeCount, AttributeType.TEXT, null);
+        entity = facade.findEntityById(entity.getId());
+    }
+
+    @Benchmark
+    public Entity create() {
+        return facade.create(BusinessFixtures.newEntity(BusinessFixtures.name("created", sequence++)));
+    }
+
+    @Benchmark
+    public Entity findById() {
+        return facade.findEntityById(entity.getId());
+    }
+
+    @Benchmark
+    public Entity findByFullName() {
+        return facade.findEntityByFullName(BusinessFixtures.NAMESPACE + ".measured");
+    }
+
+    @Benchmark
+    public Object listByFullName() {
+        return facade.listEntitiesByFullName(BusinessFixtures.NAMESPACE);
+    }
+
+    @Benchmark
+    public Entity update() {
+        entity = facade.update(entity);
+        return entity;
+    }
+
+}
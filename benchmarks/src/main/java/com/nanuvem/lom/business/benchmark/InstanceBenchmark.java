@@ -0,0 +1,78 @@
+package com.nanuvem.lom.business.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.nanuvem.lom.api.Attribute;
+import com.nanuvem.lom.api.AttributeType;
+import com.nanuvem.lom.api.Entity;
+import com.nanuvem.lom.api.Instance;
+import com.nanuvem.lom.business.BusinessFacade;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InstanceBenchmark {
+
+    @Param({ "1", "20" })
+    public int attributeCount;
+
+    @Param({ "10", "1000" })
+    public int valueLength;
+
+    @Param({ "10", "1000" })
+    public int dataSize;
+
+    private BusinessFacade facade;
+    private Entity entity;
+    private List<Attribute> attributes;
+    private String value;
+    private Instance instance;
+
+    @Setup
+    public void setUp() {
+        facade = BusinessFixtures.newFacade();
+        entity = BusinessFixtures.createEntity(facade, "measured");
+        String configuration = BusinessFixtures.configuration(Attribute.MAXLENGTH_CONFIGURATION_NAME,
+                valueLength * 2);
+        attributes = BusinessFixtures.createAttributes(facade, entity, attributeCount, AttributeType.TEXT,
+                configuration);
+        entity = facade.findEntityById(entity.getId());
+        value = BusinessFixtures.text(valueLength);
+
+        for (int i = 0; i < dataSize; i++) {
+            instance = facade.create(BusinessFixtures.newInstance(entity, attributes, value));
+        }
+    }
+
+    @Benchmark
+    public Instance create() {
+        return facade.create(BusinessFixtures.newInstance(entity, attributes, value));
+    }
+
+    @Benchmark
+    public Instance findById() {
+        return facade.findInstanceById(instance.getId());
+    }
+
+    @Benchmark
+    public List<Instance> findByEntityId() {
+        return facade.findInstancesByEntityId(entity.getId());
+    }
+
+}
@@ -0,0 +1,86 @@
+package com.nanuvem.lom.business.benchmark;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.nanuvem.lom.api.Attribute;
+import com.nanuvem.lom.api.Cardinality;
+import com.nanuvem.lom.api.Entity;
+import com.nanuvem.lom.api.Instance;
+import com.nanuvem.lom.api.Relation;
+import com.nanuvem.lom.api.RelationType;
+import com.nanuvem.lom.business.BusinessFacade;
+
+/**
+ * Relation inserts against a hub instance that already has dataSize
+ * relations. The one-to-many type goes through the source cardinality check,
+ * the many-to-many type skips cardinality checks and serves as baseline.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RelationBenchmark {
+
+    @Param({ "10", "1000", "10000" })
+    public int dataSize;
+
+    private BusinessFacade facade;
+    private Entity targetEntity;
+    private RelationType oneToMany;
+    private RelationType manyToMany;
+    private Instance hub;
+
+    @Setup
+    public void setUp() {
+        facade = BusinessFixtures.newFacade();
+        Entity sourceEntity = BusinessFixtures.createEntity(facade, "source");
+        targetEntity = BusinessFixtures.createEntity(facade, "target");
+
+        oneToMany = BusinessFixtures.createRelationType(facade, "owns", sourceEntity, targetEntity,
+                Cardinality.ONE, Cardinality.MANY);
+        manyToMany = BusinessFixtures.createRelationType(facade, "knows", sourceEntity, targetEntity,
+                Cardinality.MANY, Cardinality.MANY);
+
+        hub = facade.create(BusinessFixtures.newInstance(sourceEntity, Collections.<Attribute> emptyList(), null));
+        for (int i = 0; i < dataSize; i++) {
+            facade.create(BusinessFixtures.newRelation(oneToMany, hub, newTarget()));
+            facade.create(BusinessFixtures.newRelation(manyToMany, hub, newTarget()));
+        }
+    }
+
+    private Instance newTarget() {
+        return facade.create(BusinessFixtures.newInstance(targetEntity, Collections.<Attribute> emptyList(), null));
+    }
+
+    @Benchmark
+    public Relation createOneToMany() {
+        return facade.create(BusinessFixtures.newRelation(oneToMany, hub, newTarget()));
+    }
+
+    @Benchmark
+    public Relation createManyToMany() {
+        return facade.create(BusinessFixtures.newRelation(manyToMany, hub, newTarget()));
+    }
+
+    @Benchmark
+    public List<Relation> findBySourceInstance() {
+        return facade.findRelationsBySourceInstance(hub, oneToMany);
+    }
+
+}
@@ -0,0 +1,140 @@
+package com.nanuvem.lom.business.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.nanuvem.lom.business.validator.MaximumLengthAttributeConfigurationValidator;
+import com.nanuvem.lom.business.validator.MaximumRepeatAttributeConfigurationValidator;
+import com.nanuvem.lom.business.validator.MaximumValueAttributeConfigurationValidator;
+import com.nanuvem.lom.business.validator.MinimumLengthAttributeConfigurationValidator;
+import com.nanuvem.lom.business.validator.MinimumNumbersAttributeConfigurationValidator;
+import com.nanuvem.lom.business.validator.MinimumSymbolsAttributeConfigurationValidator;
+import com.nanuvem.lom.business.validator.MinimumUppersAttributeConfigurationValidator;
+import com.nanuvem.lom.business.validator.MinimumValueAttributeConfigurationValidator;
+import com.nanuvem.lom.business.validator.RegexAttributeConfigurationValidator;
+import com.nanuvem.lom.business.validator.ValidationError;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidatorBenchmark {
+
+    @Param({ "8", "64", "1024" })
+    public int valueLength;
+
+    private String text;
+    private String password;
+    private String number;
+
+    private MaximumLengthAttributeConfigurationValidator maximumLength;
+    private MinimumLengthAttributeConfigurationValidator minimumLength;
+    private MaximumRepeatAttributeConfigurationValidator maximumRepeat;
+    private MinimumNumbersAttributeConfigurationValidator minimumNumbers;
+    private MinimumSymbolsAttributeConfigurationValidator minimumSymbols;
+    private MinimumUppersAttributeConfigurationValidator minimumUppers;
+    private MaximumValueAttributeConfigurationValidator maximumValue;
+    private MinimumValueAttributeConfigurationValidator minimumValue;
+    private RegexAttributeConfigurationValidator regex;
+
+    @Setup
+    public void setUp() {
+        text = BusinessFixtures.text(valueLength);
+        StringBuilder passwordBuilder = new StringBuilder();
+        String alphabet = "aB3$cD5%eF7&";
+        for (int i = 0; i < valueLength; i++) {
+            passwordBuilder.append(alphabet.charAt(i % alphabet.length()));
+        }
+        password = passwordBuilder.toString();
+        number = String.valueOf(valueLength);
+
+        maximumLength = new MaximumLengthAttributeConfigurationValidator();
+        minimumLength = new MinimumLengthAttributeConfigurationValidator();
+        maximumRepeat = new MaximumRepeatAttributeConfigurationValidator();
+        minimumNumbers = new MinimumNumbersAttributeConfigurationValidator();
+        minimumSymbols = new MinimumSymbolsAttributeConfigurationValidator();
+        minimumUppers = new MinimumUppersAttributeConfigurationValidator();
+        maximumValue = new MaximumValueAttributeConfigurationValidator();
+        minimumValue = new MinimumValueAttributeConfigurationValidator();
+        regex = new RegexAttributeConfigurationValidator();
+    }
+
+    @Benchmark
+    public List<ValidationError> maximumLength() {
+        List<ValidationError> errors = new ArrayList<ValidationError>();
+        maximumLength.validate(errors, "value", text, Integer.MAX_VALUE, false);
+        return errors;
+    }
+
+    @Benchmark
+    public List<ValidationError> minimumLength() {
+        List<ValidationError> errors = new ArrayList<ValidationError>();
+        minimumLength.validate(errors, "value", text, 1, false);
+        return errors;
+    }
+
+    @Benchmark
+    public List<ValidationError> maximumRepeat() {
+        List<ValidationError> errors = new ArrayList<ValidationError>();
+        maximumRepeat.validate(errors, "value", new String(password), Integer.MAX_VALUE, false);
+        return errors;
+    }
+
+    @Benchmark
+    public List<ValidationError> minimumNumbers() {
+        List<ValidationError> errors = new ArrayList<ValidationError>();
+        minimumNumbers.validate(errors, "value", new String(password), 1, false);
+        return errors;
+    }
+
+    @Benchmark
+    public List<ValidationError> minimumSymbols() {
+        List<ValidationError> errors = new ArrayList<ValidationError>();
+        minimumSymbols.validate(errors, "value", new String(password), 1, false);
+        return errors;
+    }
+
+    @Benchmark
+    public List<ValidationError> minimumUppers() {
+        List<ValidationError> errors = new ArrayList<ValidationError>();
+        minimumUppers.validate(errors, "value", new String(password), 1, false);
+        return errors;
+    }
+
+    @Benchmark
+    public List<ValidationError> maximumValue() {
+        List<ValidationError> errors = new ArrayList<ValidationError>();
+        maximumValue.validate(errors, "value", number, Integer.MAX_VALUE, false);
+        return errors;
+    }
+
+    @Benchmark
+    public List<ValidationError> minimumValue() {
+        List<ValidationError> errors = new ArrayList<ValidationError>();
+        minimumValue.validate(errors, "value", number, 0, false);
+        return errors;
+    }
+
+    @Benchmark
+    public List<ValidationError> regex() {
+        List<ValidationError> errors = new ArrayList<ValidationError>();
+        regex.validate(errors, "value", text, "[a-z]*", false);
+        return errors;
+    }
+
+}
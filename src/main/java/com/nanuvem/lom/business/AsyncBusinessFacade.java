@@ -0,0 +1,324 @@
+package com.nanuvem.lom.business;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import com.nanuvem.lom.api.Attribute;
+import com.nanuvem.lom.api.Entity;
+import com.nanuvem.lom.api.Instance;
+import com.nanuvem.lom.api.MetadataException;
+import com.nanuvem.lom.api.Relation;
+import com.nanuvem.lom.api.RelationType;
+import com.nanuvem.lom.api.dao.DaoFactory;
+
+/**
+ * Runs the operations of a BusinessFacade on an executor, so independent
+ * lookups can be issued together, composed and awaited afterwards. At most
+ * maximumInFlight operations are queued or running at once; an operation
+ * submitted past that is not run, and its future fails at once with a
+ * RejectedExecutionException, so the caller is never blocked. Failures, such
+ * as a MetadataException, complete the future exceptionally.
+ * <p>
+ * An operation dropped by the executor, for instance by a shutdownNow on an
+ * executor given by the caller, leaves its future incomplete; cancelling the
+ * future returns its place.
+ * <p>
+ * Unless an executor is given, the operations run on a virtual thread each,
+ * as they mostly wait on the DAOs. Executors.newVirtualThreadPerTaskExecutor
+ * is looked up reflectively so the class still compiles for Java 8; on a
+ * runtime without it, or where it cannot be called, the operations run on a
+ * cached pool of daemon threads instead.
+ */
+public class AsyncBusinessFacade {
+
+    public static final int DEFAULT_MAXIMUM_IN_FLIGHT = 256;
+
+    private final BusinessFacade facade;
+    private final ExecutorService executor;
+    private final Semaphore inFlight;
+    private final int maximumInFlight;
+    private final boolean ownsExecutor;
+
+    public AsyncBusinessFacade(DaoFactory daoFactory) {
+        this(new BusinessFacade(daoFactory));
+    }
+
+    /**
+     * Runs the operations on the default executor, virtual threads or a
+     * cached pool of daemon threads, released by {@link #shutdown()}.
+     */
+    public AsyncBusinessFacade(BusinessFacade facade) {
+        this(facade, newDefaultExecutor(), DEFAULT_MAXIMUM_IN_FLIGHT, true);
+    }
+
+    /**
+     * Runs the operations on the given executor, which remains owned by the
+     * caller.
+     */
+    public AsyncBusinessFacade(BusinessFacade facade, ExecutorService executor, int maximumInFlight) {
+        this(facade, executor, maximumInFlight, false);
+    }
+
+    private AsyncBusinessFacade(BusinessFacade facade, ExecutorService executor, int maximumInFlight,
+            boolean ownsExecutor) {
+        if (maximumInFlight <= 0) {
+            throw new MetadataException(
+                    "Invalid argument: The maximum of operations in flight must be greater than zero!");
+        }
+        this.facade = facade;
+        this.executor = executor;
+        this.inFlight = new Semaphore(maximumInFlight);
+        this.maximumInFlight = maximumInFlight;
+        this.ownsExecutor = ownsExecutor;
+    }
+
+    public BusinessFacade getFacade() {
+        return facade;
+    }
+
+    public CompletableFuture<Entity> create(Entity entity) {
+        return submit(() -> facade.create(entity));
+    }
+
+    public CompletableFuture<Entity> findEntityById(Long id) {
+        return submit(() -> facade.findEntityById(id));
+    }
+
+    public CompletableFuture<Entity> findEntityByFullName(String fullName) {
+        return submit(() -> facade.findEntityByFullName(fullName));
+    }
+
+    public CompletableFuture<List<Entity>> listAllEntities() {
+        return submit(() -> facade.listAllEntities());
+    }
+
+    public CompletableFuture<List<Entity>> listEntitiesByFullName(String fragment) {
+        return submit(() -> facade.listEntitiesByFullName(fragment));
+    }
+
+    public CompletableFuture<List<Entity>> listEntitiesByFullNamePrefix(String prefix) {
+        return submit(() -> facade.listEntitiesByFullNamePrefix(prefix));
+    }
+
+    public CompletableFuture<List<Entity>> listEntitiesByNamespace(String namespace) {
+        return submit(() -> facade.listEntitiesByNamespace(namespace));
+    }
+
+    public CompletableFuture<Entity> update(Entity entity) {
+        return submit(() -> facade.update(entity));
+    }
+
+    public CompletableFuture<Void> deleteEntity(Long id) {
+        return submit(() -> {
+            facade.deleteEntity(id);
+            return null;
+        });
+    }
+
+    public CompletableFuture<CascadeDeleteReport> deleteEntityCascading(Long id, CascadeDeleteListener listener) {
+        return submit(() -> facade.deleteEntityCascading(id, listener));
+    }
+
+    public CompletableFuture<Entity> deploySchema(Entity entity) {
+        return submit(() -> facade.deploySchema(entity));
+    }
+
+    public CompletableFuture<Attribute> create(Attribute attribute) {
+        return submit(() -> facade.create(attribute));
+    }
+
+    public CompletableFuture<Attribute> findAttributeById(Long id) {
+        return submit(() -> facade.findAttributeById(id));
+    }
+
+    public CompletableFuture<Attribute> findAttributeByNameAndEntityFullName(String name, String fullEntityName) {
+        return submit(() -> facade.findAttributeByNameAndEntityFullName(name, fullEntityName));
+    }
+
+    public CompletableFuture<Attribute> update(Attribute attribute) {
+        return submit(() -> facade.update(attribute));
+    }
+
+    public CompletableFuture<Instance> create(Instance instance) {
+        return submit(() -> facade.create(instance));
+    }
+
+    public CompletableFuture<InstanceBatchReport> createAll(List<Instance> instances) {
+        return submit(() -> facade.createAll(instances));
+    }
+
+    public CompletableFuture<Instance> update(Instance instance) {
+        return submit(() -> facade.update(instance));
+    }
+
+    public CompletableFuture<Instance> findInstanceById(Long id) {
+        return submit(() -> facade.findInstanceById(id));
+    }
+
+    public CompletableFuture<List<Instance>> findInstancesByEntityId(Long entityId) {
+        return submit(() -> facade.findInstancesByEntityId(entityId));
+    }
+
+    public CompletableFuture<InstancePage> findInstancesByEntityId(Long entityId, Long cursor, int pageSize) {
+        return submit(() -> facade.findInstancesByEntityId(entityId, cursor, pageSize));
+    }
+
+    public CompletableFuture<RelationType> create(RelationType relationType) {
+        return submit(() -> facade.create(relationType));
+    }
+
+    public CompletableFuture<RelationType> findRelationTypeById(Long id) {
+        return submit(() -> facade.findRelationTypeById(id));
+    }
+
+    public CompletableFuture<List<RelationType>> listAllRelationTypes() {
+        return submit(() -> facade.listAllRelationTypes());
+    }
+
+    public CompletableFuture<RelationType> update(RelationType relationType) {
+        return submit(() -> facade.update(relationType));
+    }
+
+    public CompletableFuture<Void> deleteRelationType(Long id) {
+        return submit(() -> {
+            facade.deleteRelationType(id);
+            return null;
+        });
+    }
+
+    public CompletableFuture<CascadeDeleteReport> deleteRelationTypeCascading(Long id,
+            CascadeDeleteListener listener) {
+        return submit(() -> facade.deleteRelationTypeCascading(id, listener));
+    }
+
+    public CompletableFuture<Relation> create(Relation relation) {
+        return submit(() -> facade.create(relation));
+    }
+
+    public CompletableFuture<List<Relation>> createRelations(List<Relation> relations) {
+        return submit(() -> facade.createRelations(relations));
+    }
+
+    public CompletableFuture<Relation> findRelationById(Long id) {
+        return submit(() -> facade.findRelationById(id));
+    }
+
+    public CompletableFuture<List<Relation>> listAllRelations() {
+        return submit(() -> facade.listAllRelations());
+    }
+
+    public CompletableFuture<Relation> update(Relation relation) {
+        return submit(() -> facade.update(relation));
+    }
+
+    public CompletableFuture<Void> deleteRelation(Long id) {
+        return submit(() -> {
+            facade.deleteRelation(id);
+            return null;
+        });
+    }
+
+    public CompletableFuture<List<Relation>> findRelationsBySourceInstance(Instance source,
+            RelationType relationType) {
+        return submit(() -> facade.findRelationsBySourceInstance(source, relationType));
+    }
+
+    public CompletableFuture<TraversalResult> traverseRelations(Instance start, RelationTraversal traversal) {
+        return submit(() -> facade.traverseRelations(start, traversal));
+    }
+
+    public CompletableFuture<List<Relation>> findRelationsByRelationType(RelationType relationType) {
+        return submit(() -> facade.findRelationsByRelationType(relationType));
+    }
+
+    /**
+     * Stops the executor created by this facade once the operations already
+     * submitted have run. An executor given by the caller is left running.
+     */
+    public void shutdown() {
+        if (ownsExecutor) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * The permit taken here is returned once, however the operation ends. An
+     * operation that runs returns it before completing its future, so the
+     * stages depending on the future can submit in turn; a future cancelled,
+     * or otherwise completed, before its operation runs returns it then, and
+     * the operation is not run.
+     */
+    private <T> CompletableFuture<T> submit(Supplier<T> operation) {
+        if (!inFlight.tryAcquire()) {
+            return failed(new RejectedExecutionException("More than " + maximumInFlight
+                    + " operations in flight"));
+        }
+        AtomicBoolean held = new AtomicBoolean(true);
+        CompletableFuture<T> result;
+        try {
+            result = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return operation.get();
+                } finally {
+                    release(held);
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            release(held);
+            return failed(e);
+        }
+        result.whenComplete((value, failure) -> release(held));
+        return result;
+    }
+
+    private void release(AtomicBoolean held) {
+        if (held.compareAndSet(true, false)) {
+            inFlight.release();
+        }
+    }
+
+    private static <T> CompletableFuture<T> failed(Throwable failure) {
+        CompletableFuture<T> result = new CompletableFuture<T>();
+        result.completeExceptionally(failure);
+        return result;
+    }
+
+    static ExecutorService newDefaultExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (NoSuchMethodException e) {
+            // Before Java 21, or 19 with preview features
+        } catch (IllegalAccessException e) {
+            // Not callable from here
+        } catch (InvocationTargetException e) {
+            // Preview features disabled
+        }
+        return Executors.newCachedThreadPool(new DaemonThreadFactory());
+    }
+
+    private static class DaemonThreadFactory implements ThreadFactory {
+
+        private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+
+        private final int poolNumber = POOL_NUMBER.incrementAndGet();
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "lom-business-" + poolNumber + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+}
@@ -1,8 +1,16 @@
 package com.nanuvem.lom.business;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
 import java.util.regex.Pattern;
 
 import org.apache.commons.lang.StringUtils;
@@ -28,6 +36,9 @@ public class AttributeServiceImpl {
     private AttributeDao attributeDao;
     private EntityServiceImpl entityService;
     private AttributeTypeDefinitionManager definitionManager;
+    private ConcurrentMap<Long, AttributeValidationPlan> validationPlans =
+            new ConcurrentHashMap<Long, AttributeValidationPlan>();
+    private StripedLocks entityLocks = new StripedLocks();
 
     AttributeServiceImpl(DaoFactory dao, EntityServiceImpl entityService,
             AttributeTypeDefinitionManager definitionManager) {
@@ -75,7 +86,7 @@ public class AttributeServiceImpl {
 
     private List<Attribute> findAllAttributesForEntity(Entity entity) {
         if (entity != null && !entity.getFullName().isEmpty()) {
-            Entity foundEntity = entityService.findByFullName(entity.getFullName());
+            Entity foundEntity = entityService.findSchemaEntityByFullName(entity.getFullName()).orElse(null);
             if (foundEntity != null && foundEntity.getAttributes() != null && foundEntity.getAttributes().size() > 0) {
                 return foundEntity.getAttributes();
             }
@@ -122,7 +133,7 @@ public class AttributeServiceImpl {
         try {
             entity = entityService.findById(attribute.getEntity().getId());
         } catch (MetadataException e) {
-            throw new MetadataException("Invalid Entity: " + attribute.getEntity().getFullName());
+            throw new StacklessMetadataException("Invalid Entity: " + attribute.getEntity().getFullName());
         }
         return entity;
     }
@@ -156,12 +167,147 @@ public class AttributeServiceImpl {
     }
 
     public Attribute create(Attribute attribute) {
-        Entity entity = validateExistingEntityForAttribute(attribute);
-        attribute.setEntity(entity);
-        validateCreate(attribute);
-        Attribute createdAttribute = this.attributeDao.create(attribute);
-        entityService.update(createdAttribute.getEntity());
-        return createdAttribute;
+        List<Lock> locks = lockEntity(attribute);
+        try {
+            Entity entity = validateExistingEntityForAttribute(attribute);
+            attribute.setEntity(entity);
+            validateCreate(attribute);
+            Attribute createdAttribute = this.attributeDao.create(attribute);
+            entityService.update(createdAttribute.getEntity());
+            compileValidationPlan(createdAttribute);
+            return createdAttribute;
+        } finally {
+            StripedLocks.unlockAll(locks);
+        }
+    }
+
+    /**
+     * Serializes the attribute writes of an entity: the duplicated name check,
+     * the sequence numbering and the entity update all read the entity's
+     * current attributes, so two writes on it must not interleave. Writes on
+     * different entities still run in parallel.
+     * <p>
+     * The full name lock of the entity is taken first and its id lock second,
+     * the order {@link #deploySchema(Entity)} takes them in while the entity
+     * does not exist yet, so a write on an entity being deployed waits for
+     * the deployment to finish. If the entity is renamed before both locks
+     * are held they are released and taken again under the new name.
+     */
+    private List<Lock> lockEntity(Attribute attribute) {
+        Long entityId = attribute.getEntity() != null ? attribute.getEntity().getId() : null;
+        if (entityId == null) {
+            return lockEntityId(Long.valueOf(0));
+        }
+        while (true) {
+            Optional<Entity> entity = entityService.findSchemaEntityById(entityId);
+            if (!entity.isPresent()) {
+                return lockEntityId(entityId);
+            }
+            Lock fullNameLock = entityService.lockFullName(entity.get());
+            Lock idLock = entityLocks.lockFor(entityId);
+            idLock.lock();
+            Optional<Entity> locked = entityService.findSchemaEntityById(entityId);
+            if (locked.isPresent() && locked.get().getFullName().equals(entity.get().getFullName())) {
+                return Arrays.asList(fullNameLock, idLock);
+            }
+            idLock.unlock();
+            fullNameLock.unlock();
+        }
+    }
+
+    private List<Lock> lockEntityId(Long entityId) {
+        Lock lock = entityLocks.lockFor(entityId);
+        lock.lock();
+        return Collections.singletonList(lock);
+    }
+
+    /**
+     * Creates an entity together with all the attributes it carries. Every
+     * attribute is validated, and its sequence assigned, before anything is
+     * written, so an invalid attribute leaves no entity behind. The entity is
+     * updated once at the end instead of once per attribute. Its full name
+     * lock is held from before it is created until its last attribute is
+     * written, so no other attribute write can interleave with the deployment.
+     */
+    public Entity deploySchema(Entity entity) {
+        List<Attribute> attributes = new ArrayList<Attribute>();
+        if (entity.getAttributes() != null) {
+            attributes.addAll(entity.getAttributes());
+        }
+        if (entity.getNamespace() == null) {
+            entity.setNamespace("");
+        }
+        validateSchema(entity, attributes);
+
+        entity.setAttributes(new ArrayList<Attribute>());
+        Lock fullNameLock = entityService.lockFullName(entity);
+        try {
+            Entity createdEntity = entityService.create(entity);
+            if (attributes.isEmpty()) {
+                return createdEntity;
+            }
+            return deployAttributes(createdEntity, attributes);
+        } finally {
+            fullNameLock.unlock();
+        }
+    }
+
+    private Entity deployAttributes(Entity createdEntity, List<Attribute> attributes) {
+        Lock lock = entityLocks.lockFor(createdEntity.getId());
+        lock.lock();
+        try {
+            List<Attribute> createdAttributes = new ArrayList<Attribute>(attributes.size());
+            for (Attribute attribute : attributes) {
+                attribute.setEntity(createdEntity);
+                Attribute createdAttribute = this.attributeDao.create(attribute);
+                createdEntity = createdAttribute.getEntity();
+                createdAttributes.add(createdAttribute);
+            }
+            Entity deployedEntity = entityService.update(createdEntity);
+            for (Attribute createdAttribute : createdAttributes) {
+                compileValidationPlan(createdAttribute);
+            }
+            return deployedEntity;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void validateSchema(Entity entity, List<Attribute> attributes) {
+        Set<String> names = new HashSet<String>();
+        for (int i = 0; i < attributes.size(); i++) {
+            Attribute attribute = attributes.get(i);
+            attribute.setEntity(entity);
+
+            validateAttributeName(attribute);
+            if (!names.add(attribute.getName().toLowerCase())) {
+                throwMetadataExceptionOnAttributeDuplication(attribute);
+            }
+
+            defineSchemaSequenceNumber(attribute, i);
+
+            if (attribute.getType() == null) {
+                throw new MetadataException("The type of an Attribute is mandatory");
+            }
+            validateAttributeConfiguration(attribute);
+        }
+    }
+
+    /**
+     * Same rule as {@link #defineAttributeSequenceNumber(Attribute)}, with the
+     * attributes before this one in the schema counting as already created.
+     */
+    private void defineSchemaSequenceNumber(Attribute attribute, int precedingAttributes) {
+        if (attribute.getSequence() != null) {
+            boolean minValueForSequence = attribute.getSequence() < MINIMUM_ATTRIBUTE_SEQUENCE;
+            boolean maxValueForSequence = precedingAttributes + 1 < attribute.getSequence();
+
+            if (minValueForSequence || maxValueForSequence) {
+                throw new MetadataException("Invalid value for Attribute sequence: " + attribute.getSequence());
+            }
+        } else {
+            attribute.setSequence(precedingAttributes + 1);
+        }
     }
 
     public List<Attribute> listAllAttributes(String entityFullName) {
@@ -191,14 +337,67 @@ public class AttributeServiceImpl {
 
     public Attribute update(Attribute attribute) {
         this.validateAttributeName(attribute);
-        this.validateUpdateSequence(attribute);
-        this.validateUpdateType(attribute);
-        this.validateExistingAttributeNotInEntityOnUpdate(attribute);
-        this.validateAttributeConfiguration(attribute);
 
-        Attribute updatedAttribute = this.attributeDao.update(attribute);
-        entityService.update(updatedAttribute.getEntity());
-        return updatedAttribute;
+        List<Lock> locks = lockEntity(attribute);
+        try {
+            this.validateUpdateSequence(attribute);
+            this.validateUpdateType(attribute);
+            this.validateExistingAttributeNotInEntityOnUpdate(attribute);
+            this.validateAttributeConfiguration(attribute);
+
+            Attribute updatedAttribute = this.attributeDao.update(attribute);
+            entityService.update(updatedAttribute.getEntity());
+            compileValidationPlan(updatedAttribute);
+            return updatedAttribute;
+        } finally {
+            StripedLocks.unlockAll(locks);
+        }
+    }
+
+    /**
+     * Deletes the entity, then drops the validation plans compiled for its
+     * attributes. The entity lock is held meanwhile, so no attribute of the
+     * entity gets a new plan in between.
+     */
+    void deleteEntity(Long entityId) {
+        List<Lock> locks = lockEntityId(entityId);
+        try {
+            Optional<Entity> entity = entityService.findSchemaEntityById(entityId);
+            entityService.delete(entityId);
+            if (entity.isPresent() && entity.get().getAttributes() != null) {
+                for (Attribute attribute : entity.get().getAttributes()) {
+                    if (attribute.getId() != null) {
+                        validationPlans.remove(attribute.getId());
+                    }
+                }
+            }
+        } finally {
+            StripedLocks.unlockAll(locks);
+        }
+    }
+
+    int getValidationPlanCount() {
+        return validationPlans.size();
+    }
+
+    AttributeValidationPlan getValidationPlan(Attribute attribute) {
+        AttributeValidationPlan plan = null;
+        if (attribute.getId() != null) {
+            plan = validationPlans.get(attribute.getId());
+        }
+        if (plan == null || !plan.isCompiledFor(attribute)) {
+            plan = compileValidationPlan(attribute);
+        }
+        return plan;
+    }
+
+    private AttributeValidationPlan compileValidationPlan(Attribute attribute) {
+        AttributeTypeDefinition definition = definitionManager.get(attribute.getType().name());
+        AttributeValidationPlan plan = new AttributeValidationPlan(attribute, definition);
+        if (attribute.getId() != null) {
+            validationPlans.put(attribute.getId(), plan);
+        }
+        return plan;
     }
 
     private void validateUpdateType(Attribute attribute) {
@@ -210,7 +409,8 @@ public class AttributeServiceImpl {
     }
 
     private void validateUpdateSequence(Attribute attribute) {
-        Entity entity = entityService.findById(attribute.getEntity().getId());
+        Entity entity = entityService.findSchemaEntityById(attribute.getEntity().getId()).orElseThrow(
+                () -> new StacklessMetadataException("Invalid Entity: " + attribute.getEntity().getId()));
         int currentNumberOfAttributes = entity.getAttributes().get(entity.getAttributes().size() - 1).getSequence();
 
         if (attribute.getSequence() != null) {
@@ -242,7 +442,7 @@ class AttributeDaoDecorator implements AttributeDao {
     public Attribute findAttributeById(Long id) {
         Attribute attribute = Util.clone(attributeDao.findAttributeById(id));
         Util.removeDefaultNamespace(attribute);
-        return Util.clone(attribute);
+        return attribute;
     }
 
     public Attribute findAttributeByNameAndEntityFullName(String nameAttribute, String entityFullName) {
@@ -250,13 +450,13 @@ class AttributeDaoDecorator implements AttributeDao {
         Attribute attribute = Util.clone(attributeDao.findAttributeByNameAndEntityFullName(nameAttribute,
                 entityFullName));
         Util.removeDefaultNamespace(attribute);
-        return Util.clone(attribute);
+        return attribute;
     }
 
     public Attribute update(Attribute attribute) {
         Attribute updatedAttribute = Util.clone(attributeDao.update(Util.clone(attribute)));
         Util.removeDefaultNamespace(updatedAttribute);
-        return Util.clone(updatedAttribute);
+        return updatedAttribute;
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,125 @@
+package com.nanuvem.lom.business;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.lang.StringUtils;
+import org.codehaus.jackson.JsonNode;
+
+import com.nanuvem.lom.api.Attribute;
+import com.nanuvem.lom.api.AttributeType;
+import com.nanuvem.lom.api.AttributeValue;
+import com.nanuvem.lom.api.util.JsonNodeUtil;
+import com.nanuvem.lom.business.metrics.OperationTimer;
+import com.nanuvem.lom.business.validator.ValidationError;
+import com.nanuvem.lom.business.validator.configuration.AttributeTypeValidator;
+import com.nanuvem.lom.business.validator.configuration.AttributeValidator;
+import com.nanuvem.lom.business.validator.configuration.NumericAttributeValidator;
+import com.nanuvem.lom.business.validator.definition.AttributeTypeDefinition;
+
+/**
+ * Compiled form of an attribute configuration: the configuration is parsed,
+ * the default value resolved and the validator chain built only once, and
+ * then reused for every value written for the attribute. INTEGER values are
+ * parsed once per validation and handed to the numeric validators as an int.
+ * Every error raised is located with the attribute, the rule and the value.
+ */
+class AttributeValidationPlan {
+
+    private final AttributeType type;
+    private final String configuration;
+    private final JsonNode configurationNode;
+    private final String defaultValue;
+    private final AttributeTypeValidator typeValidator;
+    private final boolean integerValues;
+    private final List<AttributeValidator> validators;
+
+    AttributeValidationPlan(Attribute attribute, AttributeTypeDefinition definition) {
+        this.type = attribute.getType();
+        this.configuration = attribute.getConfiguration();
+        this.typeValidator = new AttributeTypeValidator(definition.getAttributeClass());
+        this.integerValues = Integer.class.equals(definition.getAttributeClass());
+
+        if (configuration != null && !configuration.isEmpty()) {
+            this.configurationNode = JsonNodeUtil.validate(configuration,
+                    "Invalid value for Attribute configuration: " + configuration);
+            this.validators = Collections.unmodifiableList(definition.getValidators());
+            this.defaultValue = readDefaultValue(configurationNode);
+        } else {
+            this.configurationNode = null;
+            this.validators = Collections.emptyList();
+            this.defaultValue = null;
+        }
+    }
+
+    private static String readDefaultValue(JsonNode configurationNode) {
+        if (configurationNode.has(Attribute.DEFAULT_CONFIGURATION_NAME)) {
+            return configurationNode.get(Attribute.DEFAULT_CONFIGURATION_NAME).asText();
+        }
+        return null;
+    }
+
+    boolean isCompiledFor(Attribute attribute) {
+        return type == attribute.getType() && StringUtils.equals(configuration, attribute.getConfiguration());
+    }
+
+    void applyDefaultValue(AttributeValue value) {
+        if (value.getValue() == null && defaultValue != null) {
+            value.setValue(defaultValue);
+        }
+    }
+
+    /**
+     * @param mode
+     *            FAIL_FAST returns as soon as one validator has reported an
+     *            error, leaving the remaining ones unchecked
+     */
+    void validate(List<ValidationError> errors, AttributeValue value, ValidationMode mode) {
+        OperationTimer timer = OperationTimer.current();
+        long startedAt = timer != null ? System.nanoTime() : 0;
+        try {
+            long parsedValue = integerValues ? Util.parseInteger(value.getValue()) : Util.NOT_AN_INTEGER;
+            if (parsedValue == Util.NOT_AN_INTEGER) {
+                int reported = errors.size();
+                typeValidator.validateValue(errors, null, value);
+                if (locateErrors(errors, reported, typeValidator, value) && mode == ValidationMode.FAIL_FAST) {
+                    return;
+                }
+            }
+
+            for (AttributeValidator validator : validators) {
+                int reported = errors.size();
+                if (parsedValue != Util.NOT_AN_INTEGER && validator instanceof NumericAttributeValidator) {
+                    ((NumericAttributeValidator) validator).validateValue(errors, configurationNode, value,
+                            (int) parsedValue);
+                } else {
+                    validator.validateValue(errors, configurationNode, value);
+                }
+                if (locateErrors(errors, reported, validator, value) && mode == ValidationMode.FAIL_FAST) {
+                    return;
+                }
+            }
+        } finally {
+            if (timer != null) {
+                timer.recordValidation(String.valueOf(type), System.nanoTime() - startedAt);
+            }
+        }
+    }
+
+    /**
+     * @return whether the validator reported any error past the first
+     *         reported ones
+     */
+    private static boolean locateErrors(List<ValidationError> errors, int reported, AttributeValidator validator,
+            AttributeValue value) {
+        if (errors.size() == reported) {
+            return false;
+        }
+        String attribute = value.getAttribute() != null ? value.getAttribute().getName() : null;
+        for (int i = reported; i < errors.size(); i++) {
+            errors.set(i, errors.get(i).locate(attribute, validator.getRule(), value.getValue()));
+        }
+        return true;
+    }
+
+}
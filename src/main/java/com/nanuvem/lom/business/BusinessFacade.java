@@ -1,5 +1,7 @@
 package com.nanuvem.lom.business;
 
+import java.io.File;
+import java.util.Iterator;
 import java.util.List;
 
 import com.nanuvem.lom.api.Attribute;
@@ -9,133 +11,450 @@ import com.nanuvem.lom.api.Instance;
 import com.nanuvem.lom.api.Relation;
 import com.nanuvem.lom.api.RelationType;
 import com.nanuvem.lom.api.dao.DaoFactory;
-import com.nanuvem.lom.business.validator.definition.AttributeTypeDefinitionManager;
+import com.nanuvem.lom.business.metrics.MetricsSink;
+import com.nanuvem.lom.business.metrics.OperationTimer;
+import com.nanuvem.lom.business.validator.RegexAttributeConfigurationValidator;
 
 public class BusinessFacade implements Facade {
 
-    private EntityServiceImpl entityService;
-    private AttributeServiceImpl attributeService;
-    private InstanceServiceImpl instanceService;
-    private RelationTypeServiceImpl relationTypeService;
-    private RelationServiceImpl relationService;
+    private BusinessServices services;
 
+    /**
+     * Creates an uninstrumented facade: its DAOs are not wrapped and its
+     * operations are not timed. Pass a MetricsSink, such as a new
+     * BusinessMetrics, to measure them.
+     */
     public BusinessFacade(DaoFactory daoFactory) {
-        entityService = new EntityServiceImpl(daoFactory);
-        AttributeTypeDefinitionManager deployers = new AttributeTypeDefinitionManager();
-        attributeService = new AttributeServiceImpl(daoFactory, entityService, deployers);
-        instanceService = new InstanceServiceImpl(daoFactory, entityService, attributeService, deployers);
-        relationTypeService = new RelationTypeServiceImpl(daoFactory);
-        relationService = new RelationServiceImpl(daoFactory);
+        this(daoFactory, null);
+    }
+
+    /**
+     * @param metrics
+     *            receives the measurements of every operation, or null to
+     *            leave the facade uninstrumented
+     */
+    public BusinessFacade(DaoFactory daoFactory, MetricsSink metrics) {
+        this(daoFactory, metrics, null);
+    }
+
+    /**
+     * @param schemaSnapshotFile
+     *            file the entities and their attributes are saved to, so the
+     *            next facade built on it loads them from there instead of
+     *            listing them from the DAO, or null
+     */
+    public BusinessFacade(DaoFactory daoFactory, MetricsSink metrics, File schemaSnapshotFile) {
+        this(daoFactory, metrics, schemaSnapshotFile, RegexAttributeConfigurationValidator.NO_MATCH_STEP_BUDGET);
+    }
+
+    /**
+     * @param regexMatchStepBudget
+     *            maximum number of characters the regex engine may read from
+     *            a TEXT value before its match is abandoned and the value
+     *            rejected, or zero, the default, for no limit. Guards against
+     *            regex configurations that backtrack catastrophically.
+     */
+    public BusinessFacade(DaoFactory daoFactory, MetricsSink metrics, File schemaSnapshotFile,
+            long regexMatchStepBudget) {
+        services = new BusinessServices(daoFactory, metrics, schemaSnapshotFile, regexMatchStepBudget);
+    }
+
+    /**
+     * @return the sink given at construction, or null if the facade is not
+     *         instrumented
+     */
+    public MetricsSink getMetrics() {
+        return services.getMetrics();
+    }
+
+    /**
+     * Saves the current entities to the schema snapshot file given at
+     * construction, typically right before a planned restart
+     */
+    public void saveSchemaSnapshot() {
+        services.getSchemaRegistry().saveSnapshot();
     }
 
     public EntityServiceImpl getEntityService() {
-        return this.entityService;
+        return services.getEntityService();
+    }
+
+    public ValidationMode getValidationMode() {
+        return services.getInstanceService().getValidationMode();
+    }
+
+    /**
+     * Sets how instance values are validated; see {@link ValidationMode}
+     */
+    public void setValidationMode(ValidationMode validationMode) {
+        services.getInstanceService().setValidationMode(validationMode);
     }
 
     public Entity create(Entity entity) {
-        return entityService.create(entity);
+        OperationTimer timer = services.startOperation("createEntity");
+        try {
+            return timer.succeeded(services.getEntityService().create(entity));
+        } finally {
+            timer.stop();
+        }
     }
 
     public Entity findEntityById(Long id) {
-        return entityService.findById(id);
+        OperationTimer timer = services.startOperation("findEntityById");
+        try {
+            return timer.succeeded(services.getEntityService().findById(id));
+        } finally {
+            timer.stop();
+        }
     }
 
     public Entity findEntityByFullName(String fullName) {
-        return entityService.findByFullName(fullName);
+        OperationTimer timer = services.startOperation("findEntityByFullName");
+        try {
+            return timer.succeeded(services.getEntityService().findByFullName(fullName));
+        } finally {
+            timer.stop();
+        }
     }
 
     public List<Entity> listAllEntities() {
-        return entityService.listAll();
+        OperationTimer timer = services.startOperation("listAllEntities");
+        try {
+            return timer.succeeded(services.getEntityService().listAll());
+        } finally {
+            timer.stop();
+        }
     }
 
     public List<Entity> listEntitiesByFullName(String fragment) {
-        return entityService.listByFullName(fragment);
+        OperationTimer timer = services.startOperation("listEntitiesByFullName");
+        try {
+            return timer.succeeded(services.getEntityService().listByFullName(fragment));
+        } finally {
+            timer.stop();
+        }
+    }
+
+    public List<Entity> listEntitiesByFullNamePrefix(String prefix) {
+        OperationTimer timer = services.startOperation("listEntitiesByFullNamePrefix");
+        try {
+            return timer.succeeded(services.getEntityService().listByFullNamePrefix(prefix));
+        } finally {
+            timer.stop();
+        }
+    }
+
+    public List<Entity> listEntitiesByNamespace(String namespace) {
+        OperationTimer timer = services.startOperation("listEntitiesByNamespace");
+        try {
+            return timer.succeeded(services.getEntityService().listByNamespace(namespace));
+        } finally {
+            timer.stop();
+        }
     }
 
     public Entity update(Entity entity) {
-        return entityService.update(entity);
+        OperationTimer timer = services.startOperation("updateEntity");
+        try {
+            return timer.succeeded(services.getEntityService().update(entity));
+        } finally {
+            timer.stop();
+        }
     }
 
     public void deleteEntity(Long id) {
-        entityService.delete(id);
+        OperationTimer timer = services.startOperation("deleteEntity");
+        try {
+            services.getAttributeService().deleteEntity(id);
+            timer.succeeded();
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Deletes the entity with its instances and the relation types, and
+     * relations, it takes part in
+     * 
+     * @param listener
+     *            told of the progress after every chunk deleted, or null
+     */
+    public CascadeDeleteReport deleteEntityCascading(Long id, CascadeDeleteListener listener) {
+        OperationTimer timer = services.startOperation("deleteEntityCascading");
+        try {
+            return timer.succeeded(services.getCascadeDeleteService().deleteEntity(id, listener));
+        } finally {
+            timer.stop();
+        }
+    }
+
+    public Entity deploySchema(Entity entity) {
+        OperationTimer timer = services.startOperation("deploySchema");
+        try {
+            return timer.succeeded(services.getAttributeService().deploySchema(entity));
+        } finally {
+            timer.stop();
+        }
     }
 
     public Attribute create(Attribute attribute) {
-        return attributeService.create(attribute);
+        OperationTimer timer = services.startOperation("createAttribute");
+        try {
+            return timer.succeeded(services.getAttributeService().create(attribute));
+        } finally {
+            timer.stop();
+        }
     }
 
     public Attribute findAttributeById(Long id) {
-        return attributeService.findAttributeById(id);
+        OperationTimer timer = services.startOperation("findAttributeById");
+        try {
+            return timer.succeeded(services.getAttributeService().findAttributeById(id));
+        } finally {
+            timer.stop();
+        }
     }
 
     public Attribute findAttributeByNameAndEntityFullName(String name, String fullEntityName) {
-        return attributeService.findAttributeByNameAndEntityFullName(name, fullEntityName);
+        OperationTimer timer = services.startOperation("findAttributeByNameAndEntityFullName");
+        try {
+            return timer.succeeded(services.getAttributeService().findAttributeByNameAndEntityFullName(name,
+                    fullEntityName));
+        } finally {
+            timer.stop();
+        }
     }
 
     public Attribute update(Attribute attribute) {
-        return attributeService.update(attribute);
+        OperationTimer timer = services.startOperation("updateAttribute");
+        try {
+            return timer.succeeded(services.getAttributeService().update(attribute));
+        } finally {
+            timer.stop();
+        }
     }
 
     public Instance create(Instance instance) {
-        return instanceService.create(instance);
+        OperationTimer timer = services.startOperation("createInstance");
+        try {
+            return timer.succeeded(services.getInstanceService().create(instance));
+        } finally {
+            timer.stop();
+        }
+    }
+
+    public InstanceBatchReport createAll(List<Instance> instances) {
+        OperationTimer timer = services.startOperation("createAll");
+        try {
+            return timer.succeeded(services.getInstanceService().createAll(instances));
+        } finally {
+            timer.stop();
+        }
+    }
+
+    public Instance update(Instance instance) {
+        OperationTimer timer = services.startOperation("updateInstance");
+        try {
+            return timer.succeeded(services.getInstanceService().update(instance));
+        } finally {
+            timer.stop();
+        }
     }
 
     public Instance findInstanceById(Long id) {
-        return instanceService.findInstanceById(id);
+        OperationTimer timer = services.startOperation("findInstanceById");
+        try {
+            return timer.succeeded(services.getInstanceService().findInstanceById(id));
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Same as {@link #findInstanceById(Long)}, with the INTEGER values parsed
+     * once into ints
+     * 
+     * @return the typed view of the instance, or null when there is none
+     */
+    public TypedInstance findTypedInstanceById(Long id) {
+        OperationTimer timer = services.startOperation("findTypedInstanceById");
+        try {
+            return timer.succeeded(TypedInstance.of(services.getInstanceService().findInstanceById(id)));
+        } finally {
+            timer.stop();
+        }
     }
 
     public List<Instance> findInstancesByEntityId(Long entityId) {
-        return instanceService.findInstancesByEntityId(entityId);
+        OperationTimer timer = services.startOperation("findInstancesByEntityId");
+        try {
+            return timer.succeeded(services.getInstanceService().findInstancesByEntityId(entityId));
+        } finally {
+            timer.stop();
+        }
+    }
+
+    public InstancePage findInstancesByEntityId(Long entityId, Long cursor, int pageSize) {
+        OperationTimer timer = services.startOperation("findInstancePageByEntityId");
+        try {
+            return timer.succeeded(services.getInstanceService().findInstancesByEntityId(entityId, cursor, pageSize));
+        } finally {
+            timer.stop();
+        }
+    }
+
+    public Iterator<Instance> iterateInstancesByEntityId(Long entityId) {
+        OperationTimer timer = services.startOperation("iterateInstancesByEntityId");
+        try {
+            return timer.succeeded(services.getInstanceService().iterateInstancesByEntityId(entityId));
+        } finally {
+            timer.stop();
+        }
     }
 
     public RelationType create(RelationType relationType) {
-        relationType =  relationTypeService.create(relationType);
-        return RelationType.cloneObject(relationType);
+        OperationTimer timer = services.startOperation("createRelationType");
+        try {
+            relationType =  services.getRelationTypeService().create(relationType);
+            return timer.succeeded(RelationType.cloneObject(relationType));
+        } finally {
+            timer.stop();
+        }
     }
 
     public RelationType findRelationTypeById(Long id) {
-        RelationType relationType = relationTypeService.findRelationTypeById(id);
-        return RelationType.cloneObject(relationType);
+        OperationTimer timer = services.startOperation("findRelationTypeById");
+        try {
+            RelationType relationType = services.getRelationTypeService().findRelationTypeById(id);
+            return timer.succeeded(RelationType.cloneObject(relationType));
+        } finally {
+            timer.stop();
+        }
     }
 
     public List<RelationType> listAllRelationTypes() {
-        return relationTypeService.listAllRelationTypes();
+        OperationTimer timer = services.startOperation("listAllRelationTypes");
+        try {
+            return timer.succeeded(services.getRelationTypeService().listAllRelationTypes());
+        } finally {
+            timer.stop();
+        }
     }
 
     public RelationType update(RelationType relationType) {
-        return relationTypeService.update(relationType);
+        OperationTimer timer = services.startOperation("updateRelationType");
+        try {
+            return timer.succeeded(services.getRelationTypeService().update(relationType));
+        } finally {
+            timer.stop();
+        }
     }
 
     public void deleteRelationType(Long id) {
-        relationTypeService.delete(id);
+        OperationTimer timer = services.startOperation("deleteRelationType");
+        try {
+            services.getRelationTypeService().delete(id);
+            timer.succeeded();
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Deletes the relation type with its relations
+     * 
+     * @param listener
+     *            told of the progress after every chunk deleted, or null
+     */
+    public CascadeDeleteReport deleteRelationTypeCascading(Long id, CascadeDeleteListener listener) {
+        OperationTimer timer = services.startOperation("deleteRelationTypeCascading");
+        try {
+            return timer.succeeded(services.getCascadeDeleteService().deleteRelationType(id, listener));
+        } finally {
+            timer.stop();
+        }
     }
 
     public Relation create(Relation relation) {
-        return relationService.create(relation);
+        OperationTimer timer = services.startOperation("createRelation");
+        try {
+            return timer.succeeded(services.getRelationService().create(relation));
+        } finally {
+            timer.stop();
+        }
+    }
+
+    public List<Relation> createRelations(List<Relation> relations) {
+        OperationTimer timer = services.startOperation("createRelations");
+        try {
+            return timer.succeeded(services.getRelationService().createRelations(relations));
+        } finally {
+            timer.stop();
+        }
     }
 
     public Relation findRelationById(Long id) {
-        return relationService.findRelationById(id);
+        OperationTimer timer = services.startOperation("findRelationById");
+        try {
+            return timer.succeeded(services.getRelationService().findRelationById(id));
+        } finally {
+            timer.stop();
+        }
     }
 
     public List<Relation> listAllRelations() {
-        return relationService.listAllRelations();
+        OperationTimer timer = services.startOperation("listAllRelations");
+        try {
+            return timer.succeeded(services.getRelationService().listAllRelations());
+        } finally {
+            timer.stop();
+        }
     }
 
     public Relation update(Relation relation) {
-        return relationService.update(relation);
+        OperationTimer timer = services.startOperation("updateRelation");
+        try {
+            return timer.succeeded(services.getRelationService().update(relation));
+        } finally {
+            timer.stop();
+        }
     }
 
     public void deleteRelation(Long id) {
-        relationService.delete(id);
+        OperationTimer timer = services.startOperation("deleteRelation");
+        try {
+            services.getRelationService().delete(id);
+            timer.succeeded();
+        } finally {
+            timer.stop();
+        }
     }
 
     public List<Relation> findRelationsBySourceInstance(Instance source, RelationType relationType) {
-        return relationService.findRelationsBySourceInstance(source, relationType);
+        OperationTimer timer = services.startOperation("findRelationsBySourceInstance");
+        try {
+            return timer.succeeded(services.getRelationService().findRelationsBySourceInstance(source, relationType));
+        } finally {
+            timer.stop();
+        }
+    }
+
+    public TraversalResult traverseRelations(Instance start, RelationTraversal traversal) {
+        OperationTimer timer = services.startOperation("traverseRelations");
+        try {
+            return timer.succeeded(services.getRelationService().traverse(start, traversal));
+        } finally {
+            timer.stop();
+        }
     }
 
     public List<Relation> findRelationsByRelationType(RelationType relationType) {
-        return relationService.findRelationsByRelationType(relationType);
+        OperationTimer timer = services.startOperation("findRelationsByRelationType");
+        try {
+            return timer.succeeded(services.getRelationService().findRelationsByRelationType(relationType));
+        } finally {
+            timer.stop();
+        }
     }
 
 }
@@ -0,0 +1,150 @@
+package com.nanuvem.lom.business;
+
+import java.io.File;
+
+import com.nanuvem.lom.api.dao.DaoFactory;
+import com.nanuvem.lom.business.metrics.MeteredDaoFactory;
+import com.nanuvem.lom.business.metrics.MetricsSink;
+import com.nanuvem.lom.business.metrics.OperationTimer;
+import com.nanuvem.lom.business.validator.definition.AttributeTypeDefinitionManager;
+
+/**
+ * Wires the single set of services used by a BusinessFacade. Every service is
+ * created on first use and then shared, so all paths work over the same DAOs,
+ * caches and attribute type definitions.
+ */
+class BusinessServices {
+
+    private final DaoFactory daoFactory;
+    private final MetricsSink metrics;
+    private final File schemaSnapshotFile;
+    private final long regexMatchStepBudget;
+
+    private volatile SchemaRegistry schemaRegistry;
+    private volatile AttributeTypeDefinitionManager definitionManager;
+    private volatile EntityServiceImpl entityService;
+    private volatile AttributeServiceImpl attributeService;
+    private volatile InstanceServiceImpl instanceService;
+    private volatile RelationServiceImpl relationService;
+    private volatile RelationTypeServiceImpl relationTypeService;
+    private volatile CascadeDeleteService cascadeDeleteService;
+
+    /**
+     * @param metrics
+     *            receives the measurements of every operation, or null to
+     *            leave the services uninstrumented
+     * @param schemaSnapshotFile
+     *            where the SchemaRegistry saves the entities between
+     *            restarts, or null
+     * @param regexMatchStepBudget
+     *            step budget of the TEXT regex validation, zero for none
+     */
+    BusinessServices(DaoFactory daoFactory, MetricsSink metrics, File schemaSnapshotFile, long regexMatchStepBudget) {
+        this.daoFactory = metrics != null ? MeteredDaoFactory.meter(daoFactory) : daoFactory;
+        this.metrics = metrics;
+        this.schemaSnapshotFile = schemaSnapshotFile;
+        this.regexMatchStepBudget = regexMatchStepBudget;
+    }
+
+    MetricsSink getMetrics() {
+        return metrics;
+    }
+
+    OperationTimer startOperation(String operation) {
+        return OperationTimer.start(metrics, operation);
+    }
+
+    SchemaRegistry getSchemaRegistry() {
+        if (schemaRegistry == null) {
+            synchronized (this) {
+                if (schemaRegistry == null) {
+                    schemaRegistry = new SchemaRegistry(daoFactory, schemaSnapshotFile);
+                }
+            }
+        }
+        return schemaRegistry;
+    }
+
+    AttributeTypeDefinitionManager getDefinitionManager() {
+        if (definitionManager == null) {
+            synchronized (this) {
+                if (definitionManager == null) {
+                    definitionManager = new AttributeTypeDefinitionManager(regexMatchStepBudget);
+                }
+            }
+        }
+        return definitionManager;
+    }
+
+    EntityServiceImpl getEntityService() {
+        if (entityService == null) {
+            synchronized (this) {
+                if (entityService == null) {
+                    entityService = new EntityServiceImpl(daoFactory, getSchemaRegistry());
+                }
+            }
+        }
+        return entityService;
+    }
+
+    AttributeServiceImpl getAttributeService() {
+        if (attributeService == null) {
+            synchronized (this) {
+                if (attributeService == null) {
+                    attributeService = new AttributeServiceImpl(daoFactory, getEntityService(),
+                            getDefinitionManager());
+                }
+            }
+        }
+        return attributeService;
+    }
+
+    InstanceServiceImpl getInstanceService() {
+        if (instanceService == null) {
+            synchronized (this) {
+                if (instanceService == null) {
+                    instanceService = new InstanceServiceImpl(daoFactory, getEntityService(), getAttributeService(),
+                            getDefinitionManager());
+                }
+            }
+        }
+        return instanceService;
+    }
+
+    RelationServiceImpl getRelationService() {
+        if (relationService == null) {
+            synchronized (this) {
+                if (relationService == null) {
+                    relationService = new RelationServiceImpl(daoFactory, getInstanceService(), getSchemaRegistry());
+                }
+            }
+        }
+        return relationService;
+    }
+
+    RelationTypeServiceImpl getRelationTypeService() {
+        if (relationTypeService == null) {
+            synchronized (this) {
+                if (relationTypeService == null) {
+                    relationTypeService = new RelationTypeServiceImpl(daoFactory, getEntityService(),
+                            getRelationService(), getSchemaRegistry());
+                }
+            }
+        }
+        return relationTypeService;
+    }
+
+    CascadeDeleteService getCascadeDeleteService() {
+        if (cascadeDeleteService == null) {
+            synchronized (this) {
+                if (cascadeDeleteService == null) {
+                    cascadeDeleteService = new CascadeDeleteService(getEntityService(), getAttributeService(),
+                            getInstanceService(), getRelationService(), getRelationTypeService(), getSchemaRegistry(),
+                            CascadeDeleteService.DEFAULT_CHUNK_SIZE);
+                }
+            }
+        }
+        return cascadeDeleteService;
+    }
+
+}
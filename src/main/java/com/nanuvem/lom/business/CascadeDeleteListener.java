@@ -0,0 +1,15 @@
+package com.nanuvem.lom.business;
+
+/**
+ * Follows a cascading delete, which can run for a long time on a large entity
+ */
+public interface CascadeDeleteListener {
+
+    /**
+     * Called after every chunk of relations or instances is deleted, on the
+     * thread running the delete. The report keeps being updated afterwards,
+     * so its counts are only meant to be read during the call.
+     */
+    void chunkDeleted(CascadeDeleteReport report);
+
+}
@@ -0,0 +1,58 @@
+package com.nanuvem.lom.business;
+
+/**
+ * Counts of what a cascading delete has removed so far
+ */
+public class CascadeDeleteReport {
+
+    private long deletedRelationCount;
+    private long deletedInstanceCount;
+    private long deletedRelationTypeCount;
+    private long instanceCount;
+    private boolean completed;
+
+    void relationsDeleted(int count) {
+        deletedRelationCount += count;
+    }
+
+    void instancesDeleted(int count) {
+        deletedInstanceCount += count;
+    }
+
+    void relationTypeDeleted() {
+        deletedRelationTypeCount++;
+    }
+
+    void instancesFound(int count) {
+        instanceCount += count;
+    }
+
+    void complete() {
+        completed = true;
+    }
+
+    public long getDeletedRelationCount() {
+        return deletedRelationCount;
+    }
+
+    public long getDeletedInstanceCount() {
+        return deletedInstanceCount;
+    }
+
+    public long getDeletedRelationTypeCount() {
+        return deletedRelationTypeCount;
+    }
+
+    /**
+     * @return the number of instances the delete started with, to be
+     *         compared with {@link #getDeletedInstanceCount()}
+     */
+    public long getInstanceCount() {
+        return instanceCount;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+}
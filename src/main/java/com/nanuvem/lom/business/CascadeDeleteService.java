@@ -0,0 +1,139 @@
+package com.nanuvem.lom.business;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.nanuvem.lom.api.Entity;
+import com.nanuvem.lom.api.MetadataException;
+import com.nanuvem.lom.api.RelationType;
+
+/**
+ * Deletes an entity or a relation type together with everything that depends
+ * on it. Only the ids of what is to be deleted are held, and they are deleted
+ * a chunk at a time, reporting the progress after each chunk. Relation ids
+ * are read from the adjacency index, which already holds the relations of a
+ * type, rather than from a fresh DAO listing of every relation. The relation
+ * types deleted have their adjacency index evicted once, instead of being
+ * kept in step relation by relation.
+ * <p>
+ * Each chunk of relations is deleted under the write lock of their type,
+ * which relation writes take for reading. Once the chunks are done, the
+ * relations created since the ids were taken are deleted and the type is
+ * retired under that lock, so no relation of the type is created afterwards.
+ * The relation types touching an entity are retired before its instances are
+ * deleted, so no relation can be left pointing at a deleted instance.
+ */
+class CascadeDeleteService {
+
+    static final int DEFAULT_CHUNK_SIZE = 1000;
+
+    private final EntityServiceImpl entityService;
+    private final AttributeServiceImpl attributeService;
+    private final InstanceServiceImpl instanceService;
+    private final RelationServiceImpl relationService;
+    private final RelationTypeServiceImpl relationTypeService;
+    private final SchemaRegistry schema;
+    private final int chunkSize;
+
+    CascadeDeleteService(EntityServiceImpl entityService, AttributeServiceImpl attributeService,
+            InstanceServiceImpl instanceService, RelationServiceImpl relationService,
+            RelationTypeServiceImpl relationTypeService, SchemaRegistry schema, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new MetadataException("Invalid argument: The chunk size must be greater than zero!");
+        }
+        this.entityService = entityService;
+        this.attributeService = attributeService;
+        this.instanceService = instanceService;
+        this.relationService = relationService;
+        this.relationTypeService = relationTypeService;
+        this.schema = schema;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Deletes the entity, its instances with their attribute values, and the
+     * relation types having the entity as source or target together with
+     * their relations. Every relation touching an instance of the entity is
+     * of one of those types.
+     */
+    CascadeDeleteReport deleteEntity(Long id, CascadeDeleteListener listener) {
+        if (!entityService.findSchemaEntityById(id).isPresent()) {
+            throw new StacklessMetadataException("Unknown entity id: " + id);
+        }
+
+        CascadeDeleteReport report = new CascadeDeleteReport();
+        for (RelationType relationType : findRelationTypesTouching(id)) {
+            deleteRelationType(relationType, report, listener);
+        }
+
+        long[] instanceIds = instanceService.findInstanceIdsByEntityId(id);
+        report.instancesFound(instanceIds.length);
+        for (int from = 0; from < instanceIds.length; from += chunkSize) {
+            int to = Math.min(from + chunkSize, instanceIds.length);
+            for (int i = from; i < to; i++) {
+                instanceService.delete(instanceIds[i]);
+            }
+            report.instancesDeleted(to - from);
+            notify(listener, report);
+        }
+
+        attributeService.deleteEntity(id);
+        report.complete();
+        return report;
+    }
+
+    /**
+     * Deletes the relation type together with its relations
+     */
+    CascadeDeleteReport deleteRelationType(Long id, CascadeDeleteListener listener) {
+        RelationType relationType = relationTypeService.findRelationTypeById(id);
+        if (relationType == null) {
+            throw new StacklessMetadataException("Unknown relation type id: " + id);
+        }
+
+        CascadeDeleteReport report = new CascadeDeleteReport();
+        deleteRelationType(relationType, report, listener);
+        report.complete();
+        return report;
+    }
+
+    private void deleteRelationType(RelationType relationType, CascadeDeleteReport report,
+            CascadeDeleteListener listener) {
+        long[] relationIds = relationService.findRelationIdsByRelationType(relationType);
+        for (int from = 0; from < relationIds.length; from += chunkSize) {
+            int to = Math.min(from + chunkSize, relationIds.length);
+            relationService.deleteWithoutIndexing(relationType, relationIds, from, to);
+            report.relationsDeleted(to - from);
+            notify(listener, report);
+        }
+        int remaining = relationService.deleteRemainingRelations(relationType, relationIds);
+        if (remaining > 0) {
+            report.relationsDeleted(remaining);
+            notify(listener, report);
+        }
+        relationTypeService.delete(relationType.getId());
+        report.relationTypeDeleted();
+    }
+
+    private List<RelationType> findRelationTypesTouching(Long entityId) {
+        List<RelationType> relationTypes = new ArrayList<RelationType>();
+        for (RelationType relationType : schema.getRelationTypes()) {
+            if (isEntity(relationType.getSourceEntity(), entityId)
+                    || isEntity(relationType.getTargetEntity(), entityId)) {
+                relationTypes.add(relationType);
+            }
+        }
+        return relationTypes;
+    }
+
+    private static boolean isEntity(Entity entity, Long entityId) {
+        return entity != null && entityId.equals(entity.getId());
+    }
+
+    private static void notify(CascadeDeleteListener listener, CascadeDeleteReport report) {
+        if (listener != null) {
+            listener.chunkDeleted(report);
+        }
+    }
+
+}
@@ -0,0 +1,68 @@
+package com.nanuvem.lom.business;
+
+import java.util.List;
+
+import com.nanuvem.lom.api.Entity;
+import com.nanuvem.lom.api.dao.EntityDao;
+
+class EntityDaoDecorator implements EntityDao {
+
+    private EntityDao entityDao;
+
+    public EntityDaoDecorator(EntityDao entityDao) {
+        this.entityDao = entityDao;
+    }
+
+    public Entity create(Entity entity) {
+        Entity entityClone = Util.clone(entity);
+        Util.setDefaultNamespace(entityClone);
+
+        Entity createdEntity = entityDao.create(entityClone);
+
+        Entity createdEntityClone = Util.clone(createdEntity);
+        Util.removeDefaultNamespace(createdEntityClone);
+        return createdEntityClone;
+    }
+
+    public List<Entity> listAll() {
+        List<Entity> list = Util.clone(entityDao.listAll());
+        Util.removeDefaultNamespace(list);
+        return list;
+    }
+
+    public Entity findById(Long id) {
+        Entity entity = Util.clone(entityDao.findById(id));
+        Util.removeDefaultNamespace(entity);
+        return entity;
+    }
+
+    public List<Entity> listByFullName(String fragment) {
+        List<Entity> list = Util.clone(entityDao.listByFullName(fragment));
+        Util.removeDefaultNamespace(list);
+        return list;
+    }
+
+    public Entity findByFullName(String fullName) {
+        fullName = Util.setDefaultNamespace(fullName);
+
+        Entity entity = Util.clone(entityDao.findByFullName(fullName));
+        Util.removeDefaultNamespace(entity);
+        return entity;
+    }
+
+    public Entity update(Entity entity) {
+        Entity entityClone = Util.clone(entity);
+        Util.setDefaultNamespace(entityClone);
+
+        Entity updatedEntity = entityDao.update(entityClone);
+
+        Entity updatedEntityClone = Util.clone(updatedEntity);
+        Util.removeDefaultNamespace(updatedEntityClone);
+        return updatedEntityClone;
+    }
+
+    public void delete(Long id) {
+        entityDao.delete(id);
+    }
+
+}
@@ -0,0 +1,207 @@
+package com.nanuvem.lom.business;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.nanuvem.lom.api.Entity;
+import com.nanuvem.lom.api.dao.EntityDao;
+
+/**
+ * Entity ids indexed by full name in a character trie, and by namespace, so
+ * prefix and namespace listings only visit the matching entities. Entities of
+ * the default namespace are indexed by their bare name, as they are shown to
+ * callers. The index is filled by the first lookup and kept in step by the
+ * EntityServiceImpl afterwards.
+ */
+class EntityNameIndex {
+
+    private final Node root = new Node();
+    private final Map<Long, String> fullNamesById = new HashMap<Long, String>();
+    private final Map<String, TreeSet<String>> fullNamesByNamespace = new HashMap<String, TreeSet<String>>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean loaded;
+
+    /**
+     * Fills the index from the DAO unless already filled. The DAO is read
+     * under the index lock, so an entity written meanwhile is either in the
+     * listing or added by its own put once the load is over.
+     */
+    void load(EntityDao dao) {
+        if (loaded) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                return;
+            }
+            for (Entity entity : dao.listAll()) {
+                putUnlocked(entity);
+            }
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void put(Entity entity) {
+        if (entity == null || entity.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                putUnlocked(entity);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                removeUnlocked(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of the entities whose full name starts with the prefix, in full
+     * name order
+     */
+    List<Long> findByPrefix(String prefix) {
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            for (int i = 0; i < prefix.length() && node != null; i++) {
+                node = node.children.get(prefix.charAt(i));
+            }
+            List<Long> ids = new ArrayList<Long>();
+            if (node != null) {
+                collect(node, ids);
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of the entities of exactly this namespace, in name order
+     */
+    List<Long> findByNamespace(String namespace) {
+        lock.readLock().lock();
+        try {
+            TreeSet<String> fullNames = fullNamesByNamespace.get(namespaceKey(namespace));
+            List<Long> ids = new ArrayList<Long>();
+            if (fullNames != null) {
+                for (String fullName : fullNames) {
+                    ids.add(find(fullName).id);
+                }
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void putUnlocked(Entity entity) {
+        removeUnlocked(entity.getId());
+
+        String namespace = namespaceKey(entity.getNamespace());
+        String fullName = namespace.isEmpty() ? entity.getName() : namespace + "." + entity.getName();
+
+        Node node = root;
+        for (int i = 0; i < fullName.length(); i++) {
+            Node child = node.children.get(fullName.charAt(i));
+            if (child == null) {
+                child = new Node();
+                node.children.put(fullName.charAt(i), child);
+            }
+            node = child;
+        }
+        node.id = entity.getId();
+
+        fullNamesById.put(entity.getId(), fullName);
+        TreeSet<String> fullNames = fullNamesByNamespace.get(namespace);
+        if (fullNames == null) {
+            fullNames = new TreeSet<String>();
+            fullNamesByNamespace.put(namespace, fullNames);
+        }
+        fullNames.add(fullName);
+    }
+
+    private void removeUnlocked(Long id) {
+        String fullName = fullNamesById.remove(id);
+        if (fullName == null) {
+            return;
+        }
+
+        List<Node> path = new ArrayList<Node>(fullName.length() + 1);
+        Node node = root;
+        path.add(node);
+        for (int i = 0; i < fullName.length(); i++) {
+            node = node.children.get(fullName.charAt(i));
+            path.add(node);
+        }
+        node.id = null;
+        for (int i = fullName.length(); i > 0 && path.get(i).isEmpty(); i--) {
+            path.get(i - 1).children.remove(fullName.charAt(i - 1));
+        }
+
+        int separator = fullName.lastIndexOf('.');
+        String namespace = separator < 0 ? "" : fullName.substring(0, separator);
+        TreeSet<String> fullNames = fullNamesByNamespace.get(namespace);
+        if (fullNames != null) {
+            fullNames.remove(fullName);
+            if (fullNames.isEmpty()) {
+                fullNamesByNamespace.remove(namespace);
+            }
+        }
+    }
+
+    private Node find(String fullName) {
+        Node node = root;
+        for (int i = 0; i < fullName.length(); i++) {
+            node = node.children.get(fullName.charAt(i));
+        }
+        return node;
+    }
+
+    private static void collect(Node node, List<Long> ids) {
+        if (node.id != null) {
+            ids.add(node.id);
+        }
+        for (Node child : node.children.values()) {
+            collect(child, ids);
+        }
+    }
+
+    private static String namespaceKey(String namespace) {
+        if (namespace == null || namespace.equals(EntityServiceImpl.DEFAULT_NAMESPACE)) {
+            return "";
+        }
+        return namespace.toLowerCase();
+    }
+
+    private static class Node {
+
+        private final TreeMap<Character, Node> children = new TreeMap<Character, Node>();
+        private Long id;
+
+        boolean isEmpty() {
+            return id == null && children.isEmpty();
+        }
+    }
+
+}
@@ -1,8 +1,13 @@
 package com.nanuvem.lom.business;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.Lock;
 import java.util.regex.Pattern;
 
+import org.apache.commons.lang.StringUtils;
+
 import com.nanuvem.lom.api.Entity;
 import com.nanuvem.lom.api.MetadataException;
 import com.nanuvem.lom.api.dao.DaoFactory;
@@ -11,17 +16,48 @@ import com.nanuvem.lom.api.dao.EntityDao;
 public class EntityServiceImpl {
 
     private EntityDao dao;
+    private SchemaRegistry schema;
+    private StripedLocks fullNameLocks = new StripedLocks();
+    private EntityNameIndex nameIndex = new EntityNameIndex();
 
     public static final String DEFAULT_NAMESPACE = "default";
 
     EntityServiceImpl(DaoFactory factory) {
+        this(factory, new SchemaRegistry(factory));
+    }
+
+    EntityServiceImpl(DaoFactory factory, SchemaRegistry schema) {
         this.dao = new EntityDaoDecorator(factory.createEntityDao());
+        this.schema = schema;
     }
 
     public Entity create(Entity entity) {
         validateEntity(entity);
-        Entity createdEntity = dao.create(entity);
-        return createdEntity;
+
+        Lock lock = lockFullName(entity);
+        try {
+            validadeEntityDuplication(entity);
+            Entity createdEntity = dao.create(entity);
+            schema.publishEntity(createdEntity, null);
+            nameIndex.put(createdEntity);
+            return createdEntity;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Serializes the duplication check and the write of every entity taking
+     * the same full name, so two of them can never both pass the check. The
+     * name is compared case insensitively, so an entity can be locked before
+     * it is validated.
+     */
+    Lock lockFullName(Entity entity) {
+        String namespace = StringUtils.isEmpty(entity.getNamespace()) ? DEFAULT_NAMESPACE : entity.getNamespace();
+        String name = StringUtils.defaultString(entity.getName());
+        Lock lock = fullNameLocks.lockFor((namespace + "." + name).toLowerCase());
+        lock.lock();
+        return lock;
     }
 
     private void validateEntity(Entity entity) {
@@ -36,7 +72,6 @@ public class EntityServiceImpl {
         lowerCase(entity);
 
         validadeNameAndNamespacePattern(entity);
-        validadeEntityDuplication(entity);
     }
 
     private void lowerCase(Entity entity) {
@@ -57,25 +92,36 @@ public class EntityServiceImpl {
     }
 
     private void validadeEntityDuplication(Entity entity) {
-        Entity found = null;
-        try {
-            found = findByFullName(entity.getFullName());
-        } catch (MetadataException me) {
-            found = null;
-        }
+        Optional<Entity> found = findSchemaEntityByFullName(entity.getFullName());
 
-        if (found != null && !found.getId().equals(entity.getId())) {
+        if (found.isPresent() && !found.get().getId().equals(entity.getId())) {
             StringBuilder message = new StringBuilder();
             message.append("The ");
-            message.append(found.getFullName());
+            message.append(found.get().getFullName());
             message.append(" Entity already exists");
-            throw new MetadataException(message.toString());
+            throw new StacklessMetadataException(message.toString());
         }
     }
 
     // There is no test case for classFullName = null. How should the message
     // being thrown exception in this case?
     public Entity findByFullName(String classFullName) {
+        Optional<Entity> classByNamespaceAndName = findSchemaEntityByFullName(classFullName);
+
+        if (!classByNamespaceAndName.isPresent()) {
+            if (classFullName.startsWith(".")) {
+                classFullName = classFullName.substring(1);
+            }
+            if (classFullName.endsWith(".")) {
+                classFullName = classFullName.substring(0, classFullName.length() - 1);
+            }
+            throw new StacklessMetadataException("Entity not found: " + classFullName);
+        }
+
+        return Util.clone(classByNamespaceAndName.get());
+    }
+
+    private void validateFullNameKey(String classFullName) {
         String namespace = null;
         String name = null;
 
@@ -95,28 +141,45 @@ public class EntityServiceImpl {
             this.formatStringAndThrowsExceptionInvalidKeyForEntity(classFullName);
         }
 
-        if (namespace.isEmpty()) {
-            namespace = "";
-        }
-
-        Entity classByNamespaceAndName = dao.findByFullName(classFullName);
+    }
 
-        if (classByNamespaceAndName == null) {
-            if (classFullName.startsWith(".")) {
-                classFullName = classFullName.substring(1);
-            }
-            if (classFullName.endsWith(".")) {
-                classFullName = classFullName.substring(0, classFullName.length() - 1);
-            }
-            throw new MetadataException("Entity not found: " + classFullName);
+    public Entity findById(Long id) {
+        Entity entity = schema.findEntityById(id);
+        if (entity != null) {
+            return Util.clone(entity);
         }
+        entity = this.dao.findById(id);
+        schema.publishEntity(entity, null);
+        return entity;
+    }
 
-        return classByNamespaceAndName;
+    /**
+     * Same as {@link #findById(Long)} but returns the entity shared through
+     * the schema snapshot, without copying it. For validation inside the
+     * business layer only: the entity must not be changed nor handed out.
+     */
+    Optional<Entity> findSchemaEntityById(Long id) {
+        Entity entity = schema.findEntityById(id);
+        if (entity == null) {
+            entity = schema.publishEntity(this.dao.findById(id), null);
+        }
+        return Optional.ofNullable(entity);
     }
 
-    public Entity findById(Long id) {
-        Entity entity = this.dao.findById(id);
-        return entity;
+    /**
+     * Shared counterpart of {@link #findByFullName(String)}, with the same
+     * restrictions as {@link #findSchemaEntityById(Long)}. Returns an empty
+     * Optional instead of throwing when no entity has the full name; an
+     * invalid full name still throws.
+     */
+    Optional<Entity> findSchemaEntityByFullName(String fullName) {
+        validateFullNameKey(fullName);
+
+        Entity entity = schema.findEntityByFullName(fullName);
+        if (entity == null) {
+            entity = schema.publishEntity(dao.findByFullName(fullName), fullName);
+        }
+        return Optional.ofNullable(entity);
     }
 
     public List<Entity> listAll() {
@@ -137,6 +200,51 @@ public class EntityServiceImpl {
         return list;
     }
 
+    /**
+     * Lists the entities whose full name starts with the prefix, in full name
+     * order. Entities of the default namespace match by their bare name.
+     */
+    public List<Entity> listByFullNamePrefix(String prefix) {
+        if (prefix == null) {
+            prefix = "";
+        }
+
+        if (!Pattern.matches("[a-zA-Z1-9.]{1,}", prefix) && !prefix.isEmpty()) {
+            throw new MetadataException("Invalid value for Entity full name: " + prefix);
+        }
+
+        nameIndex.load(dao);
+        return findAllById(nameIndex.findByPrefix(prefix.toLowerCase()));
+    }
+
+    /**
+     * Lists the entities of exactly this namespace, in name order. An empty
+     * or null namespace lists the default namespace.
+     */
+    public List<Entity> listByNamespace(String namespace) {
+        if (namespace == null) {
+            namespace = "";
+        }
+
+        if (!Pattern.matches("[a-zA-Z1-9.]{1,}", namespace) && !namespace.isEmpty()) {
+            throw new MetadataException("Invalid value for Entity namespace: " + namespace);
+        }
+
+        nameIndex.load(dao);
+        return findAllById(nameIndex.findByNamespace(namespace));
+    }
+
+    private List<Entity> findAllById(List<Long> ids) {
+        List<Entity> entities = new ArrayList<Entity>(ids.size());
+        for (Long id : ids) {
+            Entity entity = findById(id);
+            if (entity != null) {
+                entities.add(entity);
+            }
+        }
+        return entities;
+    }
+
     private void formatStringAndThrowsExceptionInvalidKeyForEntity(String value) {
         if (value.startsWith(".")) {
             value = value.substring(1);
@@ -151,8 +259,17 @@ public class EntityServiceImpl {
     public Entity update(Entity entity) {
         this.validateEntityOnUpdate(entity);
         this.validateEntity(entity);
-        Entity updatedEntity = this.dao.update(entity);
-        return updatedEntity;
+
+        Lock lock = lockFullName(entity);
+        try {
+            this.validadeEntityDuplication(entity);
+            Entity updatedEntity = this.dao.update(entity);
+            schema.publishEntity(updatedEntity, null);
+            nameIndex.put(updatedEntity);
+            return updatedEntity;
+        } finally {
+            lock.unlock();
+        }
     }
 
     private void validateEntityOnUpdate(Entity updateEntity) {
@@ -167,68 +284,16 @@ public class EntityServiceImpl {
 
     public void delete(long id) {
         this.dao.delete(id);
+        schema.removeEntity(id);
+        nameIndex.remove(id);
     }
 
-}
-
-class EntityDaoDecorator implements EntityDao {
-
-    private EntityDao entityDao;
-
-    public EntityDaoDecorator(EntityDao entityDao) {
-        this.entityDao = entityDao;
+    public long getCacheHitCount() {
+        return schema.getHitCount();
     }
 
-    public Entity create(Entity entity) {
-        Entity entityClone = Util.clone(entity);
-        Util.setDefaultNamespace(entityClone);
-
-        Entity createdEntity = entityDao.create(entityClone);
-
-        Entity createdEntityClone = Util.clone(createdEntity);
-        Util.removeDefaultNamespace(createdEntityClone);
-        return createdEntityClone;
+    public long getCacheMissCount() {
+        return schema.getMissCount();
     }
 
-    public List<Entity> listAll() {
-        List<Entity> list = Util.clone(entityDao.listAll());
-        Util.removeDefaultNamespace(list);
-        return list;
-    }
-
-    public Entity findById(Long id) {
-        Entity entity = Util.clone(entityDao.findById(id));
-        Util.removeDefaultNamespace(entity);
-        return entity;
-    }
-
-    public List<Entity> listByFullName(String fragment) {
-        List<Entity> list = Util.clone(entityDao.listByFullName(fragment));
-        Util.removeDefaultNamespace(list);
-        return list;
-    }
-
-    public Entity findByFullName(String fullName) {
-        fullName = Util.setDefaultNamespace(fullName);
-
-        Entity entity = Util.clone(entityDao.findByFullName(fullName));
-        Util.removeDefaultNamespace(entity);
-        return entity;
-    }
-
-    public Entity update(Entity entity) {
-        Entity entityClone = Util.clone(entity);
-        Util.setDefaultNamespace(entityClone);
-
-        Entity updatedEntity = entityDao.update(entityClone);
-
-        Entity updatedEntityClone = Util.clone(updatedEntity);
-        Util.removeDefaultNamespace(updatedEntityClone);
-        return updatedEntityClone;
-    }
-
-    public void delete(Long id) {
-        entityDao.delete(id);
-    }
-
-}
\ No newline at end of file
+}
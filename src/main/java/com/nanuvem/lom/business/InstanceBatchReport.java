@@ -0,0 +1,95 @@
+package com.nanuvem.lom.business;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.nanuvem.lom.api.Instance;
+import com.nanuvem.lom.business.validator.ValidationError;
+
+public class InstanceBatchReport {
+
+    private List<Instance> createdInstances = new ArrayList<Instance>();
+    private List<Failure> failures = new ArrayList<Failure>();
+
+    void addCreated(Instance instance) {
+        createdInstances.add(instance);
+    }
+
+    void addFailure(int index, Instance instance, RuntimeException cause) {
+        failures.add(new Failure(index, instance, cause));
+    }
+
+    public List<Instance> getCreatedInstances() {
+        return Collections.unmodifiableList(createdInstances);
+    }
+
+    public List<Failure> getFailures() {
+        return Collections.unmodifiableList(failures);
+    }
+
+    public int getCreatedCount() {
+        return createdInstances.size();
+    }
+
+    public int getFailedCount() {
+        return failures.size();
+    }
+
+    public boolean isSuccessful() {
+        return failures.isEmpty();
+    }
+
+    public static class Failure {
+
+        private int index;
+        private Instance instance;
+        private RuntimeException cause;
+
+        Failure(int index, Instance instance, RuntimeException cause) {
+            this.index = index;
+            this.instance = instance;
+            this.cause = cause;
+        }
+
+        /**
+         * Position of the rejected instance in the submitted batch
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        public Instance getInstance() {
+            return instance;
+        }
+
+        /**
+         * The message is assembled on the first call, so a batch whose
+         * rejections are only counted never builds one.
+         */
+        public String getMessage() {
+            return cause.getMessage();
+        }
+
+        /**
+         * @return the MetadataException that rejected the instance, or the
+         *         exception the DAO threw while writing it
+         */
+        public RuntimeException getCause() {
+            return cause;
+        }
+
+        /**
+         * @return the errors of the rejected value, or an empty list if the
+         *         instance was rejected for another reason, such as an unknown
+         *         entity
+         */
+        public List<ValidationError> getErrors() {
+            if (cause instanceof ValidationException) {
+                return ((ValidationException) cause).getErrors();
+            }
+            return Collections.emptyList();
+        }
+    }
+
+}
@@ -0,0 +1,34 @@
+package com.nanuvem.lom.business;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.nanuvem.lom.api.Instance;
+
+public class InstancePage {
+
+    private List<Instance> instances;
+    private Long nextCursor;
+
+    InstancePage(List<Instance> instances, Long nextCursor) {
+        this.instances = instances;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Instance> getInstances() {
+        return Collections.unmodifiableList(instances);
+    }
+
+    /**
+     * Id to pass as the cursor when asking for the following page, or null
+     * when this is the last page
+     */
+    public Long getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+}
@@ -1,9 +1,16 @@
 package com.nanuvem.lom.business;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
-
-import org.codehaus.jackson.JsonNode;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.Lock;
 
 import com.nanuvem.lom.api.Attribute;
 import com.nanuvem.lom.api.AttributeValue;
@@ -13,22 +20,26 @@ import com.nanuvem.lom.api.MetadataException;
 import com.nanuvem.lom.api.dao.AttributeValueDao;
 import com.nanuvem.lom.api.dao.DaoFactory;
 import com.nanuvem.lom.api.dao.InstanceDao;
-import com.nanuvem.lom.api.util.JsonNodeUtil;
 import com.nanuvem.lom.business.validator.ValidationError;
-import com.nanuvem.lom.business.validator.configuration.AttributeTypeValidator;
-import com.nanuvem.lom.business.validator.configuration.AttributeValidator;
-import com.nanuvem.lom.business.validator.definition.AttributeTypeDefinition;
 import com.nanuvem.lom.business.validator.definition.AttributeTypeDefinitionManager;
 
 public class InstanceServiceImpl {
 
     private final String PREFIX_EXCEPTION_MESSAGE_VALUE = "Invalid value for the Instance. ";
 
-    private InstanceDao instanceDao;
+    private static final Comparator<Instance> ID_ORDER = new Comparator<Instance>() {
+        public int compare(Instance first, Instance second) {
+            return first.getId().compareTo(second.getId());
+        }
+    };
+
+    private InstanceDaoDecorator instanceDao;
     private AttributeValueDao attributeValueDao;
     private EntityServiceImpl entityService;
     private AttributeServiceImpl attributeService;
     private AttributeTypeDefinitionManager definitionManager;
+    private volatile ValidationMode validationMode = ValidationMode.COLLECT_ALL;
+    private StripedLocks instanceLocks = new StripedLocks();
 
     InstanceServiceImpl(DaoFactory daoFactory, EntityServiceImpl entityService, AttributeServiceImpl attributeService,
             AttributeTypeDefinitionManager definitionManager) {
@@ -39,99 +50,353 @@ public class InstanceServiceImpl {
         this.attributeValueDao = new AttributeValueDaoDecorator(daoFactory.createAttributeValueDao());
     }
 
+    public ValidationMode getValidationMode() {
+        return validationMode;
+    }
+
+    /**
+     * Sets how the values of created and updated instances are validated.
+     * COLLECT_ALL, the default, reports every error of a rejected value.
+     */
+    public void setValidationMode(ValidationMode validationMode) {
+        this.validationMode = validationMode;
+    }
+
     public Instance create(Instance instance) {
-        if (instance.getEntity() == null) {
-            throw new MetadataException("Invalid value for Instance entity: The entity is mandatory");
-        }
-        Entity entity;
-        try {
-            entity = this.entityService.findById(instance.getEntity().getId());
-        } catch (MetadataException e) {
-            throw new MetadataException("Unknown entity id: " + instance.getEntity().getId());
+        Entity entity = findEntityForInstance(instance, null);
+        List<AttributeValue> values = validateInstance(instance, entity);
+        Instance newInstance = writeInstance(entity, values);
+        return instanceDao.findInstanceById(newInstance.getId());
+    }
+
+    /**
+     * Validates every instance, then writes the accepted ones one by one. The
+     * batch is not atomic: an instance rejected by validation or whose write
+     * fails is reported, and the others are created anyway. A failed write
+     * is undone for that instance only. The submitted instances are left
+     * untouched.
+     */
+    public InstanceBatchReport createAll(List<Instance> instances) {
+        InstanceBatchReport report = new InstanceBatchReport();
+        Map<Long, Entity> entities = new HashMap<Long, Entity>();
+        List<Integer> acceptedIndexes = new ArrayList<Integer>(instances.size());
+        List<Entity> acceptedEntities = new ArrayList<Entity>(instances.size());
+        List<List<AttributeValue>> acceptedValues = new ArrayList<List<AttributeValue>>(instances.size());
+
+        for (int i = 0; i < instances.size(); i++) {
+            Instance instance = instances.get(i);
+            try {
+                Entity entity = findEntityForInstance(instance, entities);
+                acceptedValues.add(validateInstance(instance, entity));
+                acceptedIndexes.add(i);
+                acceptedEntities.add(entity);
+            } catch (MetadataException e) {
+                report.addFailure(i, instance, e);
+            }
         }
 
-        instance.setEntity(entity);
-        validateAndAssignDefaultValueInAttributesValues(instance, entity);
-        List<AttributeValue> values = instance.getValues();
-        for (AttributeValue value : values) {
-            Attribute attribute = attributeService.findAttributeById(value.getAttribute().getId());
-            validateValue(attribute.getConfiguration(), value);
+        for (int i = 0; i < acceptedIndexes.size(); i++) {
+            try {
+                report.addCreated(writeInstance(acceptedEntities.get(i), acceptedValues.get(i)));
+            } catch (RuntimeException e) {
+                int index = acceptedIndexes.get(i);
+                report.addFailure(index, instances.get(index), e);
+            }
         }
+        return report;
+    }
 
-        List<AttributeValue> originalValues = new ArrayList<AttributeValue>(values);
+    private Entity findEntityForInstance(Instance instance, Map<Long, Entity> resolvedEntities) {
+        if (instance.getEntity() == null) {
+            throw new MetadataException("Invalid value for Instance entity: The entity is mandatory");
+        }
+        Long entityId = instance.getEntity().getId();
+        if (resolvedEntities != null && resolvedEntities.containsKey(entityId)) {
+            return resolvedEntities.get(entityId);
+        }
 
-        values.clear();
-        Instance newInstance = this.instanceDao.create(instance);
+        Entity entity = this.entityService.findSchemaEntityById(entityId).orElseThrow(
+                () -> new StacklessMetadataException("Unknown entity id: " + entityId));
 
-        for (AttributeValue value : originalValues) {
-            value.setInstance(newInstance);
-            this.attributeValueDao.create(value);
+        if (resolvedEntities != null) {
+            resolvedEntities.put(entityId, entity);
         }
-
-        return instanceDao.findInstanceById(newInstance.getId());
+        return entity;
     }
 
-    private void validateValue(String configuration, AttributeValue value) {
-        List<ValidationError> errors = new ArrayList<ValidationError>();
+    /**
+     * @return copies of the values of the instance, with the default values
+     *         applied, ready to be written
+     */
+    private List<AttributeValue> validateInstance(Instance instance, Entity entity) {
+        List<AttributeValidationPlan> plans = resolveValidationPlans(instance, entity);
+        List<AttributeValue> values = new ArrayList<AttributeValue>(instance.getValues().size());
+        for (AttributeValue value : instance.getValues()) {
+            AttributeValue copiedValue = new AttributeValue();
+            copiedValue.setAttribute(value.getAttribute());
+            copiedValue.setValue(value.getValue());
+            values.add(copiedValue);
+        }
 
-        AttributeTypeDefinition definition = definitionManager.get(value.getAttribute().getType().name());
-        AttributeTypeValidator typeValidator = new AttributeTypeValidator(definition.getAttributeClass());
-        typeValidator.validateValue(errors, null, value);
+        for (int i = 0; i < values.size(); i++) {
+            plans.get(i).applyDefaultValue(values.get(i));
+        }
+        ValidationMode mode = validationMode;
+        List<ValidationError> errors = new ArrayList<ValidationError>();
+        for (int i = 0; i < values.size(); i++) {
+            validateValue(plans.get(i), values.get(i), mode, errors);
+        }
+        return values;
+    }
 
-        if (configuration != null && !configuration.isEmpty()) {
-            JsonNode jsonNode = load(configuration);
+    /**
+     * Writes a new instance of the entity, which comes from the schema
+     * snapshot and is copied by the DAO decorator, with the given values. If
+     * a value cannot be written the instance is deleted again.
+     */
+    private Instance writeInstance(Entity entity, List<AttributeValue> values) {
+        Instance instance = new Instance();
+        instance.setEntity(entity);
+        Instance newInstance = this.instanceDao.create(instance);
 
-            for (AttributeValidator validator : definition.getValidators()) {
-                validator.validateValue(errors, jsonNode, value);
+        try {
+            for (AttributeValue value : values) {
+                value.setInstance(newInstance);
+                AttributeValue createdValue = this.attributeValueDao.create(value);
+                createdValue.setInstance(newInstance);
+                newInstance.getValues().add(createdValue);
             }
+        } catch (RuntimeException e) {
+            this.instanceDao.delete(newInstance.getId());
+            throw e;
         }
+        return newInstance;
+    }
 
+    /**
+     * @param errors
+     *            scratch list, expected empty, shared by the values of one
+     *            instance
+     */
+    private void validateValue(AttributeValidationPlan plan, AttributeValue value, ValidationMode mode,
+            List<ValidationError> errors) {
+        plan.validate(errors, value, mode);
         Util.throwValidationErrors(errors, PREFIX_EXCEPTION_MESSAGE_VALUE);
-
     }
 
-    private void validateAndAssignDefaultValueInAttributesValues(Instance instance, Entity entity) {
+    private List<AttributeValidationPlan> resolveValidationPlans(Instance instance, Entity entity) {
+        List<AttributeValidationPlan> plans = new ArrayList<AttributeValidationPlan>(instance.getValues().size());
 
         for (AttributeValue attributeValue : instance.getValues()) {
-            if (!(entity.getAttributes().contains(attributeValue.getAttribute()))) {
-                throw new MetadataException("Unknown attribute for " + instance.getEntity().getFullName() + ": "
+            Attribute attribute = findEntityAttribute(entity, attributeValue.getAttribute());
+            if (attribute == null) {
+                throw new StacklessMetadataException("Unknown attribute for " + entity.getFullName() + ": "
                         + attributeValue.getAttribute().getName());
             }
-            // this.validateTypeOfValue(attributeValue);
+            plans.add(attributeService.getValidationPlan(attribute));
+        }
+        return plans;
+    }
 
-            String configuration = attributeValue.getAttribute().getConfiguration();
-            if (configuration != null && !configuration.isEmpty()) {
-                JsonNode jsonNode = load(configuration);
-                this.applyDefaultValueWhenAvailable(attributeValue, jsonNode);
+    private Attribute findEntityAttribute(Entity entity, Attribute attribute) {
+        for (Attribute entityAttribute : entity.getAttributes()) {
+            if (entityAttribute.equals(attribute)) {
+                return entityAttribute;
             }
         }
+        return null;
     }
 
-    private JsonNode load(String configuration) {
-        JsonNode jsonNode = JsonNodeUtil.validate(configuration, "Invalid value for Attribute configuration: "
-                + configuration);
-        return jsonNode;
+    /**
+     * Applies the values carried by the given instance to the stored one.
+     * Only those values are validated; the values left out are kept as they
+     * are. A value for an attribute the instance had no value for is added.
+     * Default values are not applied, so a null value clears the stored one.
+     * <p>
+     * Updates of the same instance are serialized from the read of the
+     * stored instance to the write of its values, so none of them is lost
+     * even when the caller gives no version.
+     */
+    public Instance update(Instance changes) {
+        if (changes.getId() == null) {
+            throw new MetadataException("The id of an Instance is mandatory on update");
+        }
+        Lock lock = instanceLocks.lockFor(changes.getId());
+        lock.lock();
+        try {
+            return updateLocked(changes);
+        } finally {
+            lock.unlock();
+        }
     }
 
-    private void applyDefaultValueWhenAvailable(AttributeValue attributeValue, JsonNode jsonNode) {
+    private Instance updateLocked(Instance changes) {
+        Instance instance = this.instanceDao.findInstanceById(changes.getId());
+        if (instance == null) {
+            throw new StacklessMetadataException("Unknown instance id: " + changes.getId());
+        }
+        if (changes.getVersion() != null && !changes.getVersion().equals(instance.getVersion())) {
+            throw new MetadataException("Updating a deprecated version of the Instance " + changes.getId()
+                    + ". Get the Instance again to obtain the newest version and proceed updating.");
+        }
+
+        Entity entity = findEntityForInstance(instance, null);
+        instance.setEntity(entity);
+        List<AttributeValidationPlan> plans = resolveValidationPlans(changes, entity);
+        ValidationMode mode = validationMode;
+        List<ValidationError> errors = new ArrayList<ValidationError>();
+        for (int i = 0; i < changes.getValues().size(); i++) {
+            validateValue(plans.get(i), changes.getValues().get(i), mode, errors);
+        }
 
-        String defaultConfiguration = Attribute.DEFAULT_CONFIGURATION_NAME;
-        if (jsonNode.has(defaultConfiguration)) {
-            String defaultField = jsonNode.get(defaultConfiguration).asText();
+        List<AttributeValue> addedValues = new ArrayList<AttributeValue>();
+        for (AttributeValue changedValue : changes.getValues()) {
+            AttributeValue value = findValue(instance, changedValue.getAttribute());
+            if (value != null) {
+                value.setValue(changedValue.getValue());
+            } else {
+                AttributeValue addedValue = new AttributeValue();
+                addedValue.setAttribute(changedValue.getAttribute());
+                addedValue.setValue(changedValue.getValue());
+                addedValues.add(addedValue);
+            }
+        }
+
+        Instance updatedInstance = this.instanceDao.update(instance);
+        for (AttributeValue value : addedValues) {
+            value.setInstance(updatedInstance);
+            AttributeValue createdValue = this.attributeValueDao.create(value);
+            createdValue.setInstance(updatedInstance);
+            updatedInstance.getValues().add(createdValue);
+        }
+        return updatedInstance;
+    }
 
-            if (attributeValue.getValue() == null && defaultField != null) {
-                attributeValue.setValue(defaultField);
+    private AttributeValue findValue(Instance instance, Attribute attribute) {
+        for (AttributeValue value : instance.getValues()) {
+            if (value.getAttribute() != null && value.getAttribute().equals(attribute)) {
+                return value;
             }
         }
+        return null;
     }
 
     public Instance findInstanceById(Long id) {
         return this.instanceDao.findInstanceById(id);
     }
 
+    /**
+     * Same as {@link #findInstanceById(Long)} but without copying the
+     * instance, for existence checks inside the business layer only: the
+     * instance must not be changed nor handed out.
+     */
+    Instance findInstanceByIdWithoutCopying(Long id) {
+        return this.instanceDao.findInstanceByIdWithoutCopying(id);
+    }
+
     public List<Instance> findInstancesByEntityId(Long entityId) {
         return this.instanceDao.findInstancesByEntityId(entityId);
     }
+
+    long[] findInstanceIdsByEntityId(Long entityId) {
+        List<Instance> instances = this.instanceDao.findInstancesByEntityIdWithoutCopying(entityId);
+        long[] ids = new long[instances.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = instances.get(i).getId();
+        }
+        return ids;
+    }
+
+    /**
+     * Deletes the instance with its attribute values. Its relations are
+     * expected to be deleted already.
+     */
+    void delete(Long id) {
+        this.instanceDao.delete(id);
+    }
+
+    /**
+     * Lists the instances of an entity in ascending id order, a page at a
+     * time. Only the instances of the requested page are copied.
+     * <p>
+     * This is not keyset paging: the DAO has no paged query, so every page
+     * still reads the whole list of the entity's instances and selects the
+     * page from it, costing O(N log pageSize). Walking all the instances page
+     * by page is therefore quadratic; use
+     * {@link #iterateInstancesByEntityId(Long)} for that.
+     * 
+     * @param cursor
+     *            the next cursor of the previous page, or null for the first
+     *            page
+     */
+    public InstancePage findInstancesByEntityId(Long entityId, Long cursor, int pageSize) {
+        if (pageSize <= 0) {
+            throw new MetadataException("Invalid argument: The page size must be greater than zero!");
+        }
+
+        PriorityQueue<Instance> lowestIds = new PriorityQueue<Instance>(pageSize + 1,
+                Collections.reverseOrder(ID_ORDER));
+        for (Instance instance : this.instanceDao.findInstancesByEntityIdWithoutCopying(entityId)) {
+            if (instance.getId() == null || (cursor != null && instance.getId() <= cursor)) {
+                continue;
+            }
+            lowestIds.add(instance);
+            if (lowestIds.size() > pageSize + 1) {
+                lowestIds.poll();
+            }
+        }
+
+        boolean hasNext = lowestIds.size() > pageSize;
+        if (hasNext) {
+            lowestIds.poll();
+        }
+        List<Instance> page = new ArrayList<Instance>(lowestIds);
+        Collections.sort(page, ID_ORDER);
+
+        List<Instance> instances = new ArrayList<Instance>(page.size());
+        for (Instance instance : page) {
+            instances.add(InstanceDaoDecorator.copy(instance));
+        }
+        Long nextCursor = hasNext ? page.get(page.size() - 1).getId() : null;
+        return new InstancePage(instances, nextCursor);
+    }
+
+    /**
+     * Walks the instances of an entity in ascending id order. The ids are
+     * taken, and sorted, once when the walk starts; each instance is then
+     * read and copied only when it is reached, so only the ids are kept
+     * alive. An instance deleted during the walk is skipped, and one created
+     * during it is not seen.
+     */
+    public Iterator<Instance> iterateInstancesByEntityId(Long entityId) {
+        final long[] ids = findInstanceIdsByEntityId(entityId);
+        Arrays.sort(ids);
+        return new Iterator<Instance>() {
+
+            private int position;
+            private Instance nextInstance;
+
+            public boolean hasNext() {
+                while (nextInstance == null && position < ids.length) {
+                    nextInstance = instanceDao.findInstanceByIdWithoutCopying(ids[position++]);
+                }
+                return nextInstance != null;
+            }
+
+            public Instance next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Instance instance = nextInstance;
+                nextInstance = null;
+                return InstanceDaoDecorator.copy(instance);
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
 }
 
 class InstanceDaoDecorator implements InstanceDao {
@@ -170,6 +435,26 @@ class InstanceDaoDecorator implements InstanceDao {
         return instances;
     }
 
+    Instance findInstanceByIdWithoutCopying(Long id) {
+        return instanceDao.findInstanceById(id);
+    }
+
+    /**
+     * Returns the instances exactly as the wrapped DAO hands them out. They
+     * must not be changed nor leave the business layer without going through
+     * {@link #copy(Instance)}.
+     */
+    List<Instance> findInstancesByEntityIdWithoutCopying(Long entityId) {
+        List<Instance> instances = instanceDao.findInstancesByEntityId(entityId);
+        return instances != null ? instances : new ArrayList<Instance>();
+    }
+
+    static Instance copy(Instance instance) {
+        Instance copiedInstance = Util.clone(instance);
+        Util.removeDefaultNamespace(copiedInstance);
+        return copiedInstance;
+    }
+
 }
 
 class AttributeValueDaoDecorator implements AttributeValueDao {
@@ -0,0 +1,348 @@
+package com.nanuvem.lom.business;
+
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.lang.SerializationUtils;
+
+/**
+ * Deep copies the metadata and instance graphs (Entity, Attribute, Instance,
+ * AttributeValue and whatever they reference) field by field. The fields and
+ * constructor of each class are resolved once and kept in a {@link ClassPlan}.
+ * Objects referenced more than once inside the copied graph are copied only
+ * once, so shared references are preserved just like with serialization.
+ * <p>
+ * A collection or a map is copied into a new instance of its own class when
+ * that class is one of the java.util lists, sets and maps, or has a public
+ * no-argument constructor, a sorted one keeping its comparator. Any other,
+ * such as an unmodifiable view or Arrays.asList, is copied through
+ * serialization, which keeps its class too but copies what it holds apart
+ * from the rest of the graph; one that cannot be serialized either, such as
+ * a subList view, becomes an ArrayList, a LinkedHashSet or a LinkedHashMap.
+ * Objects of a class without a no-argument constructor are serialized the
+ * same way.
+ */
+class ObjectCopier {
+
+    private static final Set<Class<?>> IMMUTABLE_TYPES = new HashSet<Class<?>>();
+
+    static {
+        IMMUTABLE_TYPES.add(String.class);
+        IMMUTABLE_TYPES.add(Boolean.class);
+        IMMUTABLE_TYPES.add(Character.class);
+        IMMUTABLE_TYPES.add(Byte.class);
+        IMMUTABLE_TYPES.add(Short.class);
+        IMMUTABLE_TYPES.add(Integer.class);
+        IMMUTABLE_TYPES.add(Long.class);
+        IMMUTABLE_TYPES.add(Float.class);
+        IMMUTABLE_TYPES.add(Double.class);
+        IMMUTABLE_TYPES.add(BigInteger.class);
+        IMMUTABLE_TYPES.add(BigDecimal.class);
+        IMMUTABLE_TYPES.add(Class.class);
+    }
+
+    private static final ConcurrentMap<Class<?>, ClassPlan> PLANS = new ConcurrentHashMap<Class<?>, ClassPlan>();
+
+    /**
+     * Public no-argument constructors of the collection and map classes,
+     * empty for the classes copied through serialization
+     */
+    private static final ConcurrentMap<Class<?>, Optional<Constructor<?>>> CONTAINER_CONSTRUCTORS =
+            new ConcurrentHashMap<Class<?>, Optional<Constructor<?>>>();
+
+    private final Map<Object, Object> copies = new IdentityHashMap<Object, Object>();
+
+    static <T> T copy(T source) {
+        return new ObjectCopier().copyGraph(source);
+    }
+
+    static <T> List<T> copy(List<T> sources) {
+        return new ObjectCopier().copyGraphs(sources);
+    }
+
+    <T> List<T> copyGraphs(List<T> sources) {
+        List<T> copies = new ArrayList<T>(sources.size());
+        for (T source : sources) {
+            copies.add(copyGraph(source));
+        }
+        return copies;
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> T copyGraph(T source) {
+        return (T) copyValue(source);
+    }
+
+    /**
+     * Number of objects created by this copier so far, immutable values
+     * excluded
+     */
+    int getCopiedObjectCount() {
+        return copies.size();
+    }
+
+    private Object copyValue(Object source) {
+        if (source == null || isImmutable(source.getClass())) {
+            return source;
+        }
+
+        Object copy = copies.get(source);
+        if (copy != null) {
+            return copy;
+        }
+
+        if (source instanceof Date) {
+            copy = ((Date) source).clone();
+            copies.put(source, copy);
+        } else if (source.getClass().isArray()) {
+            copy = copyArray(source);
+        } else if (source instanceof Collection<?>) {
+            copy = copyCollection((Collection<?>) source);
+        } else if (source instanceof Map<?, ?>) {
+            copy = copyMap((Map<?, ?>) source);
+        } else {
+            copy = copyObject(source);
+        }
+        return copy;
+    }
+
+    private Object copyArray(Object source) {
+        int length = Array.getLength(source);
+        Object copy = Array.newInstance(source.getClass().getComponentType(), length);
+        copies.put(source, copy);
+
+        for (int i = 0; i < length; i++) {
+            Array.set(copy, i, copyValue(Array.get(source, i)));
+        }
+        return copy;
+    }
+
+    private Object copyCollection(Collection<?> source) {
+        Collection<Object> copy = newCollection(source);
+        if (copy == null) {
+            return copySerialized(source);
+        }
+        copies.put(source, copy);
+
+        for (Object element : source) {
+            copy.add(copyValue(element));
+        }
+        return copy;
+    }
+
+    private Object copyMap(Map<?, ?> source) {
+        Map<Object, Object> copy = newMap(source);
+        if (copy == null) {
+            return copySerialized(source);
+        }
+        copies.put(source, copy);
+
+        for (Map.Entry<?, ?> entry : source.entrySet()) {
+            copy.put(copyValue(entry.getKey()), copyValue(entry.getValue()));
+        }
+        return copy;
+    }
+
+    private Object copyObject(Object source) {
+        ClassPlan plan = planFor(source.getClass());
+        if (plan == null) {
+            return copySerialized(source);
+        }
+
+        Object copy = plan.newInstance();
+        copies.put(source, copy);
+
+        try {
+            for (Field field : plan.fields) {
+                Object value = field.get(source);
+                field.set(copy, field.getType().isPrimitive() ? value : copyValue(value));
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Could not copy an instance of " + source.getClass().getName(), e);
+        }
+        return copy;
+    }
+
+    private Object copySerialized(Object source) {
+        Object copy = SerializationUtils.clone((Serializable) source);
+        copies.put(source, copy);
+        return copy;
+    }
+
+    private static boolean isImmutable(Class<?> type) {
+        return IMMUTABLE_TYPES.contains(type) || type.isEnum() || Enum.class.isAssignableFrom(type);
+    }
+
+    /**
+     * @return an empty collection of the class of the source, or null when
+     *         the source has to be serialized instead
+     */
+    @SuppressWarnings("unchecked")
+    private static Collection<Object> newCollection(Collection<?> source) {
+        Class<?> type = source.getClass();
+        if (type == ArrayList.class) {
+            return new ArrayList<Object>(source.size());
+        }
+        if (type == HashSet.class) {
+            return new HashSet<Object>(source.size());
+        }
+        if (type == LinkedHashSet.class) {
+            return new LinkedHashSet<Object>(source.size());
+        }
+        if (type == TreeSet.class) {
+            return new TreeSet<Object>((Comparator<Object>) ((SortedSet<?>) source).comparator());
+        }
+        if (type == LinkedList.class) {
+            return new LinkedList<Object>();
+        }
+        Collection<Object> copy = null;
+        if (!(source instanceof SortedSet<?>) || ((SortedSet<?>) source).comparator() == null) {
+            copy = (Collection<Object>) newContainer(type);
+        }
+        if (copy == null && !(source instanceof Serializable)) {
+            copy = source instanceof Set<?> ? new LinkedHashSet<Object>(source.size()) : new ArrayList<Object>(
+                    source.size());
+        }
+        return copy;
+    }
+
+    /**
+     * @return an empty map of the class of the source, or null when the
+     *         source has to be serialized instead
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<Object, Object> newMap(Map<?, ?> source) {
+        Class<?> type = source.getClass();
+        if (type == HashMap.class) {
+            return new HashMap<Object, Object>(source.size());
+        }
+        if (type == LinkedHashMap.class) {
+            return new LinkedHashMap<Object, Object>(source.size());
+        }
+        if (type == TreeMap.class) {
+            return new TreeMap<Object, Object>((Comparator<Object>) ((SortedMap<?, ?>) source).comparator());
+        }
+        Map<Object, Object> copy = null;
+        if (!(source instanceof SortedMap<?, ?>) || ((SortedMap<?, ?>) source).comparator() == null) {
+            copy = (Map<Object, Object>) newContainer(type);
+        }
+        if (copy == null && !(source instanceof Serializable)) {
+            copy = new LinkedHashMap<Object, Object>(source.size());
+        }
+        return copy;
+    }
+
+    private static Object newContainer(Class<?> type) {
+        Optional<Constructor<?>> constructor = CONTAINER_CONSTRUCTORS.get(type);
+        if (constructor == null) {
+            constructor = Optional.ofNullable(publicConstructor(type));
+            CONTAINER_CONSTRUCTORS.putIfAbsent(type, constructor);
+        }
+        if (!constructor.isPresent()) {
+            return null;
+        }
+        try {
+            return constructor.get().newInstance();
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not instantiate " + type.getName(), e);
+        }
+    }
+
+    private static Constructor<?> publicConstructor(Class<?> type) {
+        if (!Modifier.isPublic(type.getModifiers())) {
+            return null;
+        }
+        try {
+            return type.getConstructor();
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static ClassPlan planFor(Class<?> type) {
+        ClassPlan plan = PLANS.get(type);
+        if (plan == null) {
+            plan = ClassPlan.compile(type);
+            PLANS.putIfAbsent(type, plan);
+        }
+        return plan == ClassPlan.UNSUPPORTED ? null : plan;
+    }
+
+    private static class ClassPlan {
+
+        static final ClassPlan UNSUPPORTED = new ClassPlan(null, new ArrayList<Field>());
+
+        final Constructor<?> constructor;
+        final Field[] fields;
+
+        private ClassPlan(Constructor<?> constructor, List<Field> fields) {
+            this.constructor = constructor;
+            this.fields = fields.toArray(new Field[fields.size()]);
+        }
+
+        static ClassPlan compile(Class<?> type) {
+            Constructor<?> constructor;
+            try {
+                constructor = type.getDeclaredConstructor();
+                constructor.setAccessible(true);
+            } catch (NoSuchMethodException e) {
+                return UNSUPPORTED;
+            } catch (RuntimeException e) {
+                return UNSUPPORTED;
+            }
+
+            List<Field> fields = new ArrayList<Field>();
+            for (Class<?> current = type; current != null && current != Object.class; current = current
+                    .getSuperclass()) {
+                for (Field field : current.getDeclaredFields()) {
+                    int modifiers = field.getModifiers();
+                    if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)) {
+                        continue;
+                    }
+                    try {
+                        field.setAccessible(true);
+                    } catch (RuntimeException e) {
+                        return UNSUPPORTED;
+                    }
+                    fields.add(field);
+                }
+            }
+            return new ClassPlan(constructor, fields);
+        }
+
+        Object newInstance() {
+            try {
+                return constructor.newInstance();
+            } catch (Exception e) {
+                throw new IllegalStateException("Could not instantiate " + constructor.getDeclaringClass().getName(),
+                        e);
+            }
+        }
+    }
+
+}
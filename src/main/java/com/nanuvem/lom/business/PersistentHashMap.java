@@ -0,0 +1,262 @@
+package com.nanuvem.lom.business;
+
+import java.util.AbstractCollection;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable hash map whose updates return a new map sharing every untouched
+ * branch with the old one: a hash array mapped trie of 32-way nodes. Adding
+ * or removing a key copies only the nodes on its path, a handful of small
+ * arrays, however many keys the map holds. Neither keys nor values may be
+ * null.
+ */
+final class PersistentHashMap<K, V> {
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    private static final PersistentHashMap<Object, Object> EMPTY = new PersistentHashMap<Object, Object>(Node.EMPTY,
+            0);
+
+    private final Node root;
+    private final int size;
+
+    private PersistentHashMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <K, V> PersistentHashMap<K, V> empty() {
+        return (PersistentHashMap<K, V>) EMPTY;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    /**
+     * @return the value of the key, or null when there is none
+     */
+    @SuppressWarnings("unchecked")
+    V get(Object key) {
+        return key != null ? (V) root.find(key, hash(key), 0) : null;
+    }
+
+    PersistentHashMap<K, V> with(K key, V value) {
+        boolean[] added = new boolean[1];
+        Node node = root.with(key, hash(key), value, 0, added);
+        return node == root ? this : new PersistentHashMap<K, V>(node, added[0] ? size + 1 : size);
+    }
+
+    PersistentHashMap<K, V> without(Object key) {
+        if (key == null) {
+            return this;
+        }
+        Node node = root.without(key, hash(key), 0);
+        return node == root ? this : new PersistentHashMap<K, V>(node, size - 1);
+    }
+
+    /**
+     * Read only view of the values, in no particular order
+     */
+    Collection<V> values() {
+        return new AbstractCollection<V>() {
+            public Iterator<V> iterator() {
+                return new ValueIterator<V>(root);
+            }
+
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private static int hash(Object key) {
+        int hash = key.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Either a branch, where bit n of the bitmap tells whether the slot for
+     * hash chunk n is in use, or, past the last chunk of the hash, a plain
+     * list of colliding keys. The slots hold key and value pairs; a null key
+     * marks a pair whose value is a child node.
+     */
+    private static final class Node {
+
+        static final Node EMPTY = new Node(0, new Object[0]);
+
+        final int bitmap;
+        final Object[] slots;
+
+        Node(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        Object find(Object key, int hash, int shift) {
+            if (shift >= Integer.SIZE) {
+                int index = collisionIndex(key);
+                return index >= 0 ? slots[index + 1] : null;
+            }
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+            int index = index(bit);
+            Object slotKey = slots[index];
+            if (slotKey == null) {
+                return ((Node) slots[index + 1]).find(key, hash, shift + BITS);
+            }
+            return key.equals(slotKey) ? slots[index + 1] : null;
+        }
+
+        Node with(Object key, int hash, Object value, int shift, boolean[] added) {
+            if (shift >= Integer.SIZE) {
+                int index = collisionIndex(key);
+                if (index >= 0) {
+                    return slots[index + 1] == value ? this : replace(index + 1, value, bitmap);
+                }
+                added[0] = true;
+                return insert(slots.length, key, value, bitmap);
+            }
+            int bit = bit(hash, shift);
+            int index = index(bit);
+            if ((bitmap & bit) == 0) {
+                added[0] = true;
+                return insert(index, key, value, bitmap | bit);
+            }
+            Object slotKey = slots[index];
+            Object slotValue = slots[index + 1];
+            if (slotKey == null) {
+                Node child = ((Node) slotValue).with(key, hash, value, shift + BITS, added);
+                return child == slotValue ? this : replace(index + 1, child, bitmap);
+            }
+            if (key.equals(slotKey)) {
+                return slotValue == value ? this : replace(index + 1, value, bitmap);
+            }
+            added[0] = true;
+            Node child = EMPTY.with(slotKey, PersistentHashMap.hash(slotKey), slotValue, shift + BITS, added)
+                    .with(key, hash, value, shift + BITS, added);
+            Object[] copy = slots.clone();
+            copy[index] = null;
+            copy[index + 1] = child;
+            return new Node(bitmap, copy);
+        }
+
+        Node without(Object key, int hash, int shift) {
+            if (shift >= Integer.SIZE) {
+                int index = collisionIndex(key);
+                return index >= 0 ? remove(index, bitmap) : this;
+            }
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int index = index(bit);
+            Object slotKey = slots[index];
+            Object slotValue = slots[index + 1];
+            if (slotKey == null) {
+                Node child = ((Node) slotValue).without(key, hash, shift + BITS);
+                if (child == slotValue) {
+                    return this;
+                }
+                return child.slots.length == 0 ? remove(index, bitmap & ~bit) : replace(index + 1, child, bitmap);
+            }
+            return key.equals(slotKey) ? remove(index, bitmap & ~bit) : this;
+        }
+
+        private int collisionIndex(Object key) {
+            for (int i = 0; i < slots.length; i += 2) {
+                if (key.equals(slots[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private static int bit(int hash, int shift) {
+            return 1 << ((hash >>> shift) & MASK);
+        }
+
+        private int index(int bit) {
+            return 2 * Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        private Node replace(int index, Object value, int newBitmap) {
+            Object[] copy = slots.clone();
+            copy[index] = value;
+            return new Node(newBitmap, copy);
+        }
+
+        private Node insert(int index, Object key, Object value, int newBitmap) {
+            Object[] copy = new Object[slots.length + 2];
+            System.arraycopy(slots, 0, copy, 0, index);
+            copy[index] = key;
+            copy[index + 1] = value;
+            System.arraycopy(slots, index, copy, index + 2, slots.length - index);
+            return new Node(newBitmap, copy);
+        }
+
+        private Node remove(int index, int newBitmap) {
+            Object[] copy = new Object[slots.length - 2];
+            System.arraycopy(slots, 0, copy, 0, index);
+            System.arraycopy(slots, index + 2, copy, index, slots.length - index - 2);
+            return new Node(newBitmap, copy);
+        }
+
+    }
+
+    private static final class ValueIterator<V> implements Iterator<V> {
+
+        private final Deque<Node> nodes = new ArrayDeque<Node>();
+        private Node node;
+        private int index;
+
+        ValueIterator(Node root) {
+            node = root;
+        }
+
+        public boolean hasNext() {
+            while (true) {
+                while (node != null && index < node.slots.length) {
+                    if (node.slots[index] != null) {
+                        return true;
+                    }
+                    nodes.push((Node) node.slots[index + 1]);
+                    index += 2;
+                }
+                node = nodes.poll();
+                index = 0;
+                if (node == null) {
+                    return false;
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        public V next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            V value = (V) node.slots[index + 1];
+            index += 2;
+            return value;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+    }
+
+}
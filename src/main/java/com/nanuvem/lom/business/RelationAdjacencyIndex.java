@@ -0,0 +1,212 @@
+package com.nanuvem.lom.business;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.nanuvem.lom.api.Instance;
+import com.nanuvem.lom.api.Relation;
+import com.nanuvem.lom.api.RelationType;
+import com.nanuvem.lom.api.dao.RelationDao;
+
+/**
+ * The relations of each relation type, indexed by source and by target
+ * instance and keyed by relation id, so the relations an instance has for a
+ * type are counted and followed without listing or looking them up. A
+ * relation type is loaded from the RelationDao the first time it is looked up
+ * and kept in step by the RelationServiceImpl afterwards. The index holds its
+ * own copies of the relations; the ones it returns are those copies and must
+ * be copied again before they leave the business layer.
+ */
+class RelationAdjacencyIndex {
+
+    private final RelationDao dao;
+    private final ConcurrentMap<Long, TypeAdjacency> adjacencyByTypeId = new ConcurrentHashMap<Long, TypeAdjacency>();
+
+    RelationAdjacencyIndex(RelationDao dao) {
+        this.dao = dao;
+    }
+
+    int countBySource(RelationType relationType, Instance source) {
+        if (relationType.getId() == null) {
+            return dao.findRelationsBySourceInstance(source, relationType).size();
+        }
+        return adjacency(relationType).countBySource(source.getId());
+    }
+
+    int countByTarget(RelationType relationType, Instance target) {
+        if (relationType.getId() == null) {
+            int count = 0;
+            for (Relation relation : dao.findRelationsByTargetInstance(target)) {
+                if (relationType.equals(relation.getRelationType())) {
+                    count++;
+                }
+            }
+            return count;
+        }
+        return adjacency(relationType).countByTarget(target.getId());
+    }
+
+    /**
+     * @return the relations of the type leaving the source instance
+     */
+    Collection<Relation> findBySource(RelationType relationType, Long sourceId) {
+        return adjacency(relationType).findBySource(sourceId);
+    }
+
+    /**
+     * @return the relations of the type reaching the target instance
+     */
+    Collection<Relation> findByTarget(RelationType relationType, Long targetId) {
+        return adjacency(relationType).findByTarget(targetId);
+    }
+
+    /**
+     * @return the ids of all the relations of the type, in ascending order
+     */
+    long[] findRelationIds(RelationType relationType) {
+        return adjacency(relationType).relationIds();
+    }
+
+    void add(RelationType relationType, Relation relation) {
+        TypeAdjacency adjacency = loadedAdjacency(relationType, relation);
+        if (adjacency != null) {
+            adjacency.add(Util.clone(relation));
+        }
+    }
+
+    void remove(Relation relation) {
+        TypeAdjacency adjacency = relation != null ? loadedAdjacency(relation.getRelationType(), relation) : null;
+        if (adjacency != null) {
+            adjacency.remove(relation);
+        }
+    }
+
+    void evictRelationType(Long relationTypeId) {
+        if (relationTypeId != null) {
+            adjacencyByTypeId.remove(relationTypeId);
+        }
+    }
+
+    private TypeAdjacency loadedAdjacency(RelationType relationType, Relation relation) {
+        if (relation == null || relation.getId() == null || relationType == null || relationType.getId() == null) {
+            return null;
+        }
+        return adjacencyByTypeId.get(relationType.getId());
+    }
+
+    private TypeAdjacency adjacency(RelationType relationType) {
+        TypeAdjacency adjacency = adjacencyByTypeId.get(relationType.getId());
+        if (adjacency == null) {
+            TypeAdjacency created = new TypeAdjacency();
+            adjacency = adjacencyByTypeId.putIfAbsent(relationType.getId(), created);
+            if (adjacency == null) {
+                adjacency = created;
+            }
+        }
+        adjacency.loadIfNeeded(dao, relationType);
+        return adjacency;
+    }
+
+    private static class TypeAdjacency {
+
+        private boolean loaded;
+        private final Map<Long, Map<Long, Relation>> bySource = new HashMap<Long, Map<Long, Relation>>();
+        private final Map<Long, Map<Long, Relation>> byTarget = new HashMap<Long, Map<Long, Relation>>();
+
+        synchronized void loadIfNeeded(RelationDao dao, RelationType relationType) {
+            if (loaded) {
+                return;
+            }
+            List<Relation> relations = Util.clone(dao.findRelationsByRelationType(relationType));
+            for (Relation relation : relations) {
+                add(relation);
+            }
+            loaded = true;
+        }
+
+        synchronized int countBySource(Long sourceId) {
+            Map<Long, Relation> relations = bySource.get(sourceId);
+            return relations != null ? relations.size() : 0;
+        }
+
+        synchronized int countByTarget(Long targetId) {
+            Map<Long, Relation> relations = byTarget.get(targetId);
+            return relations != null ? relations.size() : 0;
+        }
+
+        synchronized Collection<Relation> findBySource(Long sourceId) {
+            return copyOf(bySource.get(sourceId));
+        }
+
+        synchronized Collection<Relation> findByTarget(Long targetId) {
+            return copyOf(byTarget.get(targetId));
+        }
+
+        synchronized long[] relationIds() {
+            int count = 0;
+            for (Map<Long, Relation> relations : bySource.values()) {
+                count += relations.size();
+            }
+            long[] ids = new long[count];
+            int i = 0;
+            for (Map<Long, Relation> relations : bySource.values()) {
+                for (Long id : relations.keySet()) {
+                    ids[i++] = id;
+                }
+            }
+            Arrays.sort(ids);
+            return ids;
+        }
+
+        synchronized void add(Relation relation) {
+            addRelation(bySource, instanceId(relation.getSource()), relation);
+            addRelation(byTarget, instanceId(relation.getTarget()), relation);
+        }
+
+        synchronized void remove(Relation relation) {
+            removeRelation(bySource, instanceId(relation.getSource()), relation.getId());
+            removeRelation(byTarget, instanceId(relation.getTarget()), relation.getId());
+        }
+
+        private static Long instanceId(Instance instance) {
+            return instance != null ? instance.getId() : null;
+        }
+
+        private static Collection<Relation> copyOf(Map<Long, Relation> relations) {
+            if (relations == null) {
+                return Collections.emptyList();
+            }
+            return new ArrayList<Relation>(relations.values());
+        }
+
+        private static void addRelation(Map<Long, Map<Long, Relation>> index, Long instanceId, Relation relation) {
+            if (instanceId == null) {
+                return;
+            }
+            Map<Long, Relation> relations = index.get(instanceId);
+            if (relations == null) {
+                relations = new HashMap<Long, Relation>();
+                index.put(instanceId, relations);
+            }
+            relations.put(relation.getId(), relation);
+        }
+
+        private static void removeRelation(Map<Long, Map<Long, Relation>> index, Long instanceId, Long relationId) {
+            Map<Long, Relation> relations = index.get(instanceId);
+            if (relations != null) {
+                relations.remove(relationId);
+                if (relations.isEmpty()) {
+                    index.remove(instanceId);
+                }
+            }
+        }
+    }
+
+}
@@ -1,6 +1,18 @@
 package com.nanuvem.lom.business;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
 
 import com.nanuvem.lom.api.Cardinality;
 import com.nanuvem.lom.api.Instance;
@@ -9,35 +21,28 @@ import com.nanuvem.lom.api.Relation;
 import com.nanuvem.lom.api.RelationType;
 import com.nanuvem.lom.api.dao.DaoFactory;
 import com.nanuvem.lom.api.dao.RelationDao;
-import com.nanuvem.lom.business.validator.definition.AttributeTypeDefinitionManager;
 
 public class RelationServiceImpl {
 
     private RelationDao dao;
-    private EntityServiceImpl entityService;
-    private AttributeServiceImpl attributeService;
     private InstanceServiceImpl instanceService;
+    private RelationAdjacencyIndex adjacencyIndex;
+    private SchemaRegistry schema;
+    private StripedLocks cardinalityLocks = new StripedLocks();
+    private StripedReadWriteLocks relationTypeLocks = new StripedReadWriteLocks();
+    private Set<Long> retiredRelationTypeIds = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
 
-    RelationServiceImpl(DaoFactory daoFactory) {
+    RelationServiceImpl(DaoFactory daoFactory, InstanceServiceImpl instanceService, SchemaRegistry schema) {
         this.dao = new RelationDaoDecorator(daoFactory.createRelationDao());
-        this.entityService = new EntityServiceImpl(daoFactory);
-        AttributeTypeDefinitionManager deployers = new AttributeTypeDefinitionManager();
-        this.attributeService = new AttributeServiceImpl(daoFactory, entityService, deployers);
-        this.instanceService = new InstanceServiceImpl(daoFactory, entityService, attributeService, deployers);
+        this.instanceService = instanceService;
+        this.adjacencyIndex = new RelationAdjacencyIndex(dao);
+        this.schema = schema;
     }
 
     public Relation create(Relation relation) {
-        if(relation.getRelationType() == null){
-            throw new MetadataException("Invalid argument: The relation type is mandatory!");
-        }
-        if (relation.getSource() == null || relation.getSource().getId() == null) {
-            throw new MetadataException("Invalid argument: The source instance is mandatory!");
-        }
-        if (relation.getTarget() == null || relation.getTarget().getId() == null) {
-            throw new MetadataException("Invalid argument: The target instance is mandatory!");
-        }
-        Instance sourceInstance = this.instanceService.findInstanceById(relation.getSource().getId());
-        Instance targetInstance = this.instanceService.findInstanceById(relation.getTarget().getId());
+        validateMandatoryArguments(relation);
+        Instance sourceInstance = this.instanceService.findInstanceByIdWithoutCopying(relation.getSource().getId());
+        Instance targetInstance = this.instanceService.findInstanceByIdWithoutCopying(relation.getTarget().getId());
         if (sourceInstance == null) {
             throw new MetadataException("Invalid argument: The source instance is mandatory!");
         }
@@ -45,30 +50,236 @@ public class RelationServiceImpl {
             throw new MetadataException("Invalid argument: The target instance is mandatory!");
         }
         RelationType relationType = relation.getRelationType();
-        if (relationType.getTargetCardinality() == Cardinality.ONE) {
-            List<Relation> sourceInstanceRelations = this.findRelationsBySourceInstance(sourceInstance, relationType);
-            if (sourceInstanceRelations.size() != 0) {
-                throw new MetadataException(
-                        "Invalid argument, the target cardinality is ONE, the target instance cannot be associated to the source instance!");
+        List<Lock> typeLocks = lockRelationTypes(Collections.singletonList(relationType));
+        try {
+            return createLocked(relation, sourceInstance, targetInstance);
+        } finally {
+            StripedLocks.unlockAll(typeLocks);
+        }
+    }
+
+    private Relation createLocked(Relation relation, Instance sourceInstance, Instance targetInstance) {
+        RelationType relationType = relation.getRelationType();
+        RelationType cardinalities = findPublished(relationType);
+        List<Lock> locks = cardinalityLocks.lockAll(addCardinalityKeys(relation, cardinalities,
+                new ArrayList<Object>()));
+        try {
+            if (cardinalities.getTargetCardinality() == Cardinality.ONE) {
+                if (adjacencyIndex.countBySource(relationType, sourceInstance) != 0) {
+                    throwTargetCardinalityViolation();
+                }
+            }
+            if (isSourceCardinalityChecked(cardinalities)) {
+                if (adjacencyIndex.countByTarget(relationType, targetInstance) != 0) {
+                    throwSourceCardinalityViolation();
+                }
+            }
+
+            Relation createdRelation = dao.create(relation);
+            adjacencyIndex.add(relationType, createdRelation);
+            return Util.clone(createdRelation);
+        } finally {
+            StripedLocks.unlockAll(locks);
+        }
+    }
+
+    /**
+     * Creates all the given relations, or none of them. Each instance is
+     * looked up once for the whole batch, and the cardinalities are checked
+     * against the stored relations and the other relations of the batch
+     * together, before the first relation is written. If the DAO fails on
+     * one of the writes, the relations already written are deleted again
+     * before the failure is rethrown.
+     * 
+     * @return the created relations, in the order they were given
+     */
+    public List<Relation> createRelations(List<Relation> relations) {
+        Map<Long, Boolean> existingInstances = new HashMap<Long, Boolean>();
+        Map<Long, RelationType> cardinalitiesByTypeId = new HashMap<Long, RelationType>();
+        List<Object> cardinalityKeys = new ArrayList<Object>();
+
+        for (Relation relation : relations) {
+            validateMandatoryArguments(relation);
+            Long sourceId = relation.getSource().getId();
+            Long targetId = relation.getTarget().getId();
+            if (!instanceExists(sourceId, existingInstances)) {
+                throw new MetadataException("Invalid argument: The source instance is mandatory!");
+            }
+            if (!instanceExists(targetId, existingInstances)) {
+                throw new MetadataException("Invalid argument: The target instance is mandatory!");
+            }
+
+            RelationType relationType = relation.getRelationType();
+            RelationType cardinalities = cardinalitiesByTypeId.get(relationType.getId());
+            if (cardinalities == null) {
+                cardinalities = findPublished(relationType);
+                cardinalitiesByTypeId.put(relationType.getId(), cardinalities);
+            }
+            addCardinalityKeys(relation, cardinalities, cardinalityKeys);
+        }
+
+        List<RelationType> relationTypes = new ArrayList<RelationType>(relations.size());
+        for (Relation relation : relations) {
+            relationTypes.add(relation.getRelationType());
+        }
+        List<Lock> typeLocks = lockRelationTypes(relationTypes);
+        List<Lock> locks = cardinalityLocks.lockAll(cardinalityKeys);
+        try {
+            checkBatchCardinalities(relations, cardinalitiesByTypeId);
+
+            List<Relation> createdRelations = new ArrayList<Relation>(relations.size());
+            try {
+                for (Relation relation : relations) {
+                    Relation createdRelation = dao.create(relation);
+                    adjacencyIndex.add(relation.getRelationType(), createdRelation);
+                    createdRelations.add(createdRelation);
+                }
+            } catch (RuntimeException e) {
+                rollBack(createdRelations, e);
+                throw e;
             }
+            return Util.clone(createdRelations);
+        } finally {
+            StripedLocks.unlockAll(locks);
+            StripedLocks.unlockAll(typeLocks);
         }
-        if (relationType.getSourceCardinality() == Cardinality.ONE
-                && relationType.getTargetCardinality() == Cardinality.MANY) {
-            List<Relation> targetInstanceRelations = this.findRelationsByTargetInstance(targetInstance);
-            for (Relation targetRelation : targetInstanceRelations) {
-                if (targetRelation.getRelationType().equals(relationType))
-                    throw new MetadataException(
-                            "Invalid argument, the source cardinality is ONE, the target instance cannot be associated to the source instance!");
+    }
+
+    /**
+     * Takes the read locks of the relation types, held while relations of
+     * theirs are written, and rejects a type retired meanwhile.
+     */
+    private List<Lock> lockRelationTypes(List<RelationType> relationTypes) {
+        List<Long> relationTypeIds = new ArrayList<Long>(relationTypes.size());
+        for (RelationType relationType : relationTypes) {
+            if (relationType.getId() != null) {
+                relationTypeIds.add(relationType.getId());
+            }
+        }
+        List<Lock> locks = relationTypeLocks.readLockAll(relationTypeIds);
+        for (Long relationTypeId : relationTypeIds) {
+            if (retiredRelationTypeIds.contains(relationTypeId)) {
+                StripedLocks.unlockAll(locks);
+                throw new StacklessMetadataException("Unknown relation type id: " + relationTypeId);
+            }
+        }
+        return locks;
+    }
+
+    /**
+     * Deletes the relations of a failed batch, newest first. A relation that
+     * cannot be deleted either is reported on the original failure and does
+     * not stop the others from being deleted.
+     */
+    private void rollBack(List<Relation> createdRelations, RuntimeException failure) {
+        for (int i = createdRelations.size() - 1; i >= 0; i--) {
+            Relation createdRelation = createdRelations.get(i);
+            adjacencyIndex.remove(createdRelation);
+            try {
+                dao.delete(createdRelation.getId());
+            } catch (RuntimeException e) {
+                failure.addSuppressed(e);
+            }
+        }
+    }
+
+    private void checkBatchCardinalities(List<Relation> relations, Map<Long, RelationType> cardinalitiesByTypeId) {
+        Map<Long, Set<Long>> boundSourcesByTypeId = new HashMap<Long, Set<Long>>();
+        Map<Long, Set<Long>> boundTargetsByTypeId = new HashMap<Long, Set<Long>>();
+
+        for (Relation relation : relations) {
+            RelationType relationType = relation.getRelationType();
+            RelationType cardinalities = cardinalitiesByTypeId.get(relationType.getId());
+            if (cardinalities.getTargetCardinality() == Cardinality.ONE) {
+                if (!bind(boundSourcesByTypeId, relationType.getId(), relation.getSource().getId())
+                        || adjacencyIndex.countBySource(relationType, relation.getSource()) != 0) {
+                    throwTargetCardinalityViolation();
+                }
+            }
+            if (isSourceCardinalityChecked(cardinalities)) {
+                if (!bind(boundTargetsByTypeId, relationType.getId(), relation.getTarget().getId())
+                        || adjacencyIndex.countByTarget(relationType, relation.getTarget()) != 0) {
+                    throwSourceCardinalityViolation();
+                }
             }
         }
-        
-        
-        Relation createdRelation = dao.create(relation);
-        return createdRelation;
     }
 
-    private List<Relation> findRelationsByTargetInstance(Instance targetInstance) {
-        return dao.findRelationsByTargetInstance(targetInstance);
+    /**
+     * Adds the keys of the places a relation takes under its cardinalities:
+     * its source when the target cardinality is ONE, its target when the
+     * source cardinality is checked. The cardinality check and the write of a
+     * relation run under the locks of its keys, so two relations cannot both
+     * take the only place there is.
+     */
+    private static List<Object> addCardinalityKeys(Relation relation, RelationType cardinalities,
+            List<Object> keys) {
+        Long relationTypeId = relation.getRelationType().getId();
+        if (cardinalities.getTargetCardinality() == Cardinality.ONE) {
+            keys.add("source:" + relationTypeId + ":" + relation.getSource().getId());
+        }
+        if (isSourceCardinalityChecked(cardinalities)) {
+            keys.add("target:" + relationTypeId + ":" + relation.getTarget().getId());
+        }
+        return keys;
+    }
+
+    private void validateMandatoryArguments(Relation relation) {
+        if (relation.getRelationType() == null) {
+            throw new MetadataException("Invalid argument: The relation type is mandatory!");
+        }
+        if (relation.getSource() == null || relation.getSource().getId() == null) {
+            throw new MetadataException("Invalid argument: The source instance is mandatory!");
+        }
+        if (relation.getTarget() == null || relation.getTarget().getId() == null) {
+            throw new MetadataException("Invalid argument: The target instance is mandatory!");
+        }
+    }
+
+    private boolean instanceExists(Long instanceId, Map<Long, Boolean> existingInstances) {
+        Boolean exists = existingInstances.get(instanceId);
+        if (exists == null) {
+            exists = this.instanceService.findInstanceByIdWithoutCopying(instanceId) != null;
+            existingInstances.put(instanceId, exists);
+        }
+        return exists;
+    }
+
+    /**
+     * @return the published relation type, whose cardinalities and direction
+     *         are the ones in force, or the given one if it is not published
+     */
+    private RelationType findPublished(RelationType relationType) {
+        RelationType publishedRelationType = schema.findRelationTypeById(relationType.getId());
+        return publishedRelationType != null ? publishedRelationType : relationType;
+    }
+
+    private static boolean isSourceCardinalityChecked(RelationType cardinalities) {
+        return cardinalities.getSourceCardinality() == Cardinality.ONE
+                && cardinalities.getTargetCardinality() == Cardinality.MANY;
+    }
+
+    /**
+     * @return false if the instance is already bound by another relation of
+     *         the same type in the batch
+     */
+    private static boolean bind(Map<Long, Set<Long>> boundByTypeId, Long relationTypeId, Long instanceId) {
+        Set<Long> bound = boundByTypeId.get(relationTypeId);
+        if (bound == null) {
+            bound = new HashSet<Long>();
+            boundByTypeId.put(relationTypeId, bound);
+        }
+        return bound.add(instanceId);
+    }
+
+    private static void throwTargetCardinalityViolation() {
+        throw new StacklessMetadataException(
+                "Invalid argument, the target cardinality is ONE, the target instance cannot be associated to the source instance!");
+    }
+
+    private static void throwSourceCardinalityViolation() {
+        throw new StacklessMetadataException(
+                "Invalid argument, the source cardinality is ONE, the target instance cannot be associated to the source instance!");
     }
 
     public Relation findRelationById(Long id) {
@@ -79,19 +290,194 @@ public class RelationServiceImpl {
         return dao.listAllRelations();
     }
 
+    /**
+     * Not implemented: the relation is neither validated nor written, and
+     * null is returned. Changing the ends or the type of a relation takes
+     * deleting it and creating the new one, which keeps the cardinality
+     * checks and the adjacency index in step.
+     */
     public Relation update(Relation relation) {
         // TODO Auto-generated method stub
         return null;
     }
 
     public void delete(Long id) {
+        Relation relation = dao.findById(id);
         dao.delete(id);
+        adjacencyIndex.remove(relation);
+    }
+
+    /**
+     * Deletes relations of a type about to be deleted, leaving the adjacency
+     * index of the type to be evicted with it. The write lock of the type is
+     * held meanwhile, so no relation of the type is written at the same time.
+     */
+    void deleteWithoutIndexing(RelationType relationType, long[] relationIds, int from, int to) {
+        Lock lock = relationTypeLocks.writeLockFor(relationType.getId());
+        lock.lock();
+        try {
+            for (int i = from; i < to; i++) {
+                dao.delete(relationIds[i]);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Deletes the relations of the type written since its relation ids were
+     * taken, and retires the type, under its write lock: no relation of the
+     * type is created afterwards.
+     * 
+     * @param deletedRelationIds
+     *            the relation ids taken, in ascending order, already deleted
+     * @return the number of relations deleted
+     */
+    int deleteRemainingRelations(RelationType relationType, long[] deletedRelationIds) {
+        Lock lock = relationTypeLocks.writeLockFor(relationType.getId());
+        lock.lock();
+        try {
+            int deleted = 0;
+            for (long relationId : adjacencyIndex.findRelationIds(relationType)) {
+                if (Arrays.binarySearch(deletedRelationIds, relationId) < 0) {
+                    dao.delete(relationId);
+                    deleted++;
+                }
+            }
+            retiredRelationTypeIds.add(relationType.getId());
+            return deleted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the ids of the relations of the type, in ascending order, taken
+     *         from the adjacency index instead of copies of the relations
+     */
+    long[] findRelationIdsByRelationType(RelationType relationType) {
+        return adjacencyIndex.findRelationIds(relationType);
+    }
+
+    /**
+     * Rejects the relations of the deleted type from now on and drops its
+     * adjacency index.
+     */
+    void retireRelationType(Long relationTypeId) {
+        Lock lock = relationTypeLocks.writeLockFor(relationTypeId);
+        lock.lock();
+        try {
+            retiredRelationTypeIds.add(relationTypeId);
+        } finally {
+            lock.unlock();
+        }
+        adjacencyIndex.evictRelationType(relationTypeId);
     }
 
     public List<Relation> findRelationsBySourceInstance(Instance source, RelationType relationType) {
         return dao.findRelationsBySourceInstance(source, relationType);
     }
 
+    /**
+     * Walks the relations reachable from the start instance, following the
+     * relations held by the adjacency index instead of querying them hop by
+     * hop. Each instance is given the depth of the shortest path found to it:
+     * when a depth first walk reaches an instance again through a shorter
+     * path, the instance is expanded again from there, so the order never
+     * hides an instance within the maximum depth. A relation is reported
+     * once, even when it is walked from both of its ends.
+     */
+    public TraversalResult traverse(Instance start, RelationTraversal traversal) {
+        if (start == null || start.getId() == null) {
+            throw new MetadataException("Invalid argument: The start instance is mandatory!");
+        }
+        if (traversal.getMaximumDepth() < 0) {
+            throw new MetadataException("Invalid argument: The maximum depth cannot be negative!");
+        }
+        if (this.instanceService.findInstanceByIdWithoutCopying(start.getId()) == null) {
+            throw new StacklessMetadataException("Unknown instance id: " + start.getId());
+        }
+
+        Collection<RelationType> relationTypes = findTraversedRelationTypes(traversal.getRelationTypes());
+        boolean depthFirst = traversal.getOrder() == RelationTraversal.Order.DEPTH_FIRST;
+        RelationTraversal.Direction direction = traversal.getDirection();
+
+        TraversalResult result = new TraversalResult();
+        Map<Long, Integer> depthByInstanceId = new HashMap<Long, Integer>();
+        Deque<Visit> frontier = new ArrayDeque<Visit>();
+        depthByInstanceId.put(start.getId(), 0);
+        frontier.add(new Visit(start.getId(), 0));
+
+        while (!frontier.isEmpty()) {
+            Visit visit = depthFirst ? frontier.pollLast() : frontier.pollFirst();
+            if (visit.depth > depthByInstanceId.get(visit.instanceId)) {
+                continue;
+            }
+            result.addVisit(visit.instanceId, visit.depth);
+            if (visit.depth == traversal.getMaximumDepth()) {
+                continue;
+            }
+
+            for (RelationType relationType : relationTypes) {
+                if (direction != RelationTraversal.Direction.INCOMING || relationType.isBidirectional()) {
+                    walk(adjacencyIndex.findBySource(relationType, visit.instanceId), false, visit, result, frontier,
+                            depthByInstanceId);
+                }
+                if (direction != RelationTraversal.Direction.OUTGOING || relationType.isBidirectional()) {
+                    walk(adjacencyIndex.findByTarget(relationType, visit.instanceId), true, visit, result, frontier,
+                            depthByInstanceId);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Queues the other end of each relation unless it was already reached
+     * through a path as short as this one.
+     */
+    private static void walk(Collection<Relation> relations, boolean reversed, Visit visit, TraversalResult result,
+            Deque<Visit> frontier, Map<Long, Integer> depthByInstanceId) {
+        int depth = visit.depth + 1;
+        for (Relation relation : relations) {
+            result.addStep(relation, depth, reversed);
+            Instance otherEnd = reversed ? relation.getSource() : relation.getTarget();
+            if (otherEnd == null || otherEnd.getId() == null) {
+                continue;
+            }
+            Integer knownDepth = depthByInstanceId.get(otherEnd.getId());
+            if (knownDepth == null || depth < knownDepth) {
+                depthByInstanceId.put(otherEnd.getId(), depth);
+                frontier.add(new Visit(otherEnd.getId(), depth));
+            }
+        }
+    }
+
+    private Collection<RelationType> findTraversedRelationTypes(List<RelationType> relationTypes) {
+        if (relationTypes == null) {
+            return schema.getRelationTypes();
+        }
+        List<RelationType> traversedRelationTypes = new ArrayList<RelationType>(relationTypes.size());
+        for (RelationType relationType : relationTypes) {
+            if (relationType == null || relationType.getId() == null) {
+                throw new MetadataException("Invalid argument: The relation type is mandatory!");
+            }
+            traversedRelationTypes.add(findPublished(relationType));
+        }
+        return traversedRelationTypes;
+    }
+
+    private static class Visit {
+
+        final Long instanceId;
+        final int depth;
+
+        Visit(Long instanceId, int depth) {
+            this.instanceId = instanceId;
+            this.depth = depth;
+        }
+    }
+
     public List<Relation> findRelationsByRelationType(RelationType relationType) {
         return dao.findRelationsByRelationType(relationType);
     }
@@ -0,0 +1,83 @@
+package com.nanuvem.lom.business;
+
+import java.util.List;
+
+import com.nanuvem.lom.api.RelationType;
+
+/**
+ * Options of a walk along the relations of an instance. By default only the
+ * relations leaving the instance directly are followed, whatever their type.
+ */
+public class RelationTraversal {
+
+    public enum Order {
+        BREADTH_FIRST, DEPTH_FIRST
+    }
+
+    /**
+     * Which way the relations are followed. A bidirectional relation type is
+     * followed both ways whatever the direction, its relations being walked
+     * back under the reverse name of the type.
+     */
+    public enum Direction {
+        /**
+         * From source to target
+         */
+        OUTGOING,
+
+        /**
+         * From target to source
+         */
+        INCOMING,
+
+        BOTH
+    }
+
+    private Order order = Order.BREADTH_FIRST;
+    private Direction direction = Direction.OUTGOING;
+    private int maximumDepth = 1;
+    private List<RelationType> relationTypes;
+
+    public Order getOrder() {
+        return order;
+    }
+
+    public void setOrder(Order order) {
+        this.order = order;
+    }
+
+    public Direction getDirection() {
+        return direction;
+    }
+
+    public void setDirection(Direction direction) {
+        this.direction = direction;
+    }
+
+    public int getMaximumDepth() {
+        return maximumDepth;
+    }
+
+    /**
+     * @param maximumDepth
+     *            number of relations, at most, between the starting instance
+     *            and any visited instance
+     */
+    public void setMaximumDepth(int maximumDepth) {
+        this.maximumDepth = maximumDepth;
+    }
+
+    public List<RelationType> getRelationTypes() {
+        return relationTypes;
+    }
+
+    /**
+     * @param relationTypes
+     *            the only relation types followed, or null to follow all of
+     *            them
+     */
+    public void setRelationTypes(List<RelationType> relationTypes) {
+        this.relationTypes = relationTypes;
+    }
+
+}
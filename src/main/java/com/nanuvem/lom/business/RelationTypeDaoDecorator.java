@@ -0,0 +1,35 @@
+package com.nanuvem.lom.business;
+
+import java.util.List;
+
+import com.nanuvem.lom.api.RelationType;
+import com.nanuvem.lom.api.dao.RelationTypeDao;
+
+class RelationTypeDaoDecorator implements RelationTypeDao {
+
+    private RelationTypeDao relationTypeDao;
+
+    public RelationTypeDaoDecorator(RelationTypeDao RelationTypeDao) {
+        this.relationTypeDao = RelationTypeDao;
+    }
+
+    public RelationType create(RelationType relationType) {
+        return this.relationTypeDao.create(relationType);
+    }
+
+    public RelationType findRelationTypeById(Long id) {
+        return this.relationTypeDao.findRelationTypeById(id);
+    }
+
+    public RelationType update(RelationType relationType) {
+        return this.relationTypeDao.update(relationType);
+    }
+
+    public List<RelationType> listAllRelationTypes() {
+        return this.relationTypeDao.listAllRelationTypes();
+    }
+
+    public void delete(Long id) {
+        this.relationTypeDao.delete(id);
+    }
+}
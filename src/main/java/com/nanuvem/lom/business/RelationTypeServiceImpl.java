@@ -5,7 +5,6 @@ import java.util.List;
 import java.util.Map;
 
 import com.nanuvem.lom.api.Cardinality;
-import com.nanuvem.lom.api.Entity;
 import com.nanuvem.lom.api.Instance;
 import com.nanuvem.lom.api.MetadataException;
 import com.nanuvem.lom.api.Relation;
@@ -18,11 +17,14 @@ public class RelationTypeServiceImpl {
     private RelationTypeDao dao;
     private EntityServiceImpl entityService;
     private RelationServiceImpl relationService;
+    private SchemaRegistry schema;
 
-    RelationTypeServiceImpl(DaoFactory daoFactory) {
+    RelationTypeServiceImpl(DaoFactory daoFactory, EntityServiceImpl entityService,
+            RelationServiceImpl relationService, SchemaRegistry schema) {
         this.dao = new RelationTypeDaoDecorator(daoFactory.createRelationTypeDao());
-        this.entityService = new EntityServiceImpl(daoFactory);
-        this.relationService = new RelationServiceImpl(daoFactory);
+        this.entityService = entityService;
+        this.relationService = relationService;
+        this.schema = schema;
     }
 
     public RelationType create(RelationType relationType) {
@@ -39,6 +41,7 @@ public class RelationTypeServiceImpl {
         }
 
         RelationType createdRelationType = dao.create(relationType);
+        schema.publishRelationType(createdRelationType);
         return createdRelationType;
     }
 
@@ -52,6 +55,8 @@ public class RelationTypeServiceImpl {
 
     public void delete(Long id) {
         dao.delete(id);
+        schema.removeRelationType(id);
+        relationService.retireRelationType(id);
     }
 
     public RelationType update(RelationType relationType) {
@@ -65,7 +70,9 @@ public class RelationTypeServiceImpl {
          * already exists in DB
          */
         this.executeCardinalityChanges(relationType);
-        return dao.update(relationType);
+        RelationType updatedRelationType = dao.update(relationType);
+        schema.publishRelationType(updatedRelationType);
+        return updatedRelationType;
     }
 
     private void executeCardinalityChanges(RelationType relationType) {
@@ -133,12 +140,10 @@ public class RelationTypeServiceImpl {
     }
 
     private boolean validateRelationTypeForUpdate(RelationType relationType) {
-        Entity sourceEntity = this.entityService.findById(relationType.getSourceEntity().getId());
-        if (sourceEntity == null) {
+        if (!this.entityService.findSchemaEntityById(relationType.getSourceEntity().getId()).isPresent()) {
             throw new MetadataException("Invalid argument: The source entity is mandatory!");
         }
-        Entity targetEntity = this.entityService.findById(relationType.getTargetEntity().getId());
-        if (targetEntity == null) {
+        if (!this.entityService.findSchemaEntityById(relationType.getTargetEntity().getId()).isPresent()) {
             throw new MetadataException("Invalid argument: The target entity is mandatory!");
         }
         if (relationType.getReverseName() == null && relationType.isBidirectional()) {
@@ -149,32 +154,3 @@ public class RelationTypeServiceImpl {
     }
 
 }
-
-class RelationTypeDaoDecorator implements RelationTypeDao {
-
-    private RelationTypeDao relationTypeDao;
-
-    public RelationTypeDaoDecorator(RelationTypeDao RelationTypeDao) {
-        this.relationTypeDao = RelationTypeDao;
-    }
-
-    public RelationType create(RelationType relationType) {
-        return this.relationTypeDao.create(relationType);
-    }
-
-    public RelationType findRelationTypeById(Long id) {
-        return this.relationTypeDao.findRelationTypeById(id);
-    }
-
-    public RelationType update(RelationType relationType) {
-        return this.relationTypeDao.update(relationType);
-    }
-
-    public List<RelationType> listAllRelationTypes() {
-        return this.relationTypeDao.listAllRelationTypes();
-    }
-
-    public void delete(Long id) {
-        this.relationTypeDao.delete(id);
-    }
-}
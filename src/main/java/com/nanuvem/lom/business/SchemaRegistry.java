@@ -0,0 +1,303 @@
+package com.nanuvem.lom.business;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.nanuvem.lom.api.Entity;
+import com.nanuvem.lom.api.MetadataException;
+import com.nanuvem.lom.api.RelationType;
+import com.nanuvem.lom.api.dao.DaoFactory;
+import com.nanuvem.lom.api.dao.EntityDao;
+import com.nanuvem.lom.api.dao.RelationTypeDao;
+
+/**
+ * Publishes the current SchemaSnapshot. Readers take the snapshot without
+ * locking; writers derive a new snapshot from the current one and swap it in,
+ * retrying when another writer got there first. The first snapshot is loaded
+ * from the DAOs in one go on first use.
+ * <p>
+ * With a snapshot file, the entities are loaded from the file instead, when
+ * it holds a valid one, and the file is written after loading them from the
+ * DAO otherwise. An entity coming from the file is checked against the
+ * version in the DAO the first time it is looked up, and replaced or dropped
+ * if it changed meanwhile. The entities never looked up are checked the same
+ * way before the file is saved again, so an entity deleted or changed while
+ * the file was on disk is not written back as it was. Relation types are
+ * always listed from the DAO.
+ */
+class SchemaRegistry {
+
+    private final EntityDao entityDao;
+    private final RelationTypeDao relationTypeDao;
+    private final AtomicReference<SchemaSnapshot> current = new AtomicReference<SchemaSnapshot>();
+    private final SchemaSnapshotFile snapshotFile;
+    private final Set<Long> unverifiedEntityIds = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    SchemaRegistry(DaoFactory daoFactory) {
+        this(daoFactory, null);
+    }
+
+    /**
+     * @param snapshotFile
+     *            where the entities are saved between restarts, or null to
+     *            always load them from the DAO
+     */
+    SchemaRegistry(DaoFactory daoFactory, File snapshotFile) {
+        this.entityDao = new EntityDaoDecorator(daoFactory.createEntityDao());
+        this.relationTypeDao = new RelationTypeDaoDecorator(daoFactory.createRelationTypeDao());
+        this.snapshotFile = snapshotFile != null ? new SchemaSnapshotFile(snapshotFile) : null;
+    }
+
+    SchemaSnapshot getSnapshot() {
+        SchemaSnapshot snapshot = current.get();
+        if (snapshot == null) {
+            snapshot = load();
+        }
+        return snapshot;
+    }
+
+    /**
+     * Reads the DAOs while holding the registry, so an entity written
+     * meanwhile is either in the listing or published afterwards on top of
+     * it.
+     */
+    private synchronized SchemaSnapshot load() {
+        SchemaSnapshot snapshot = current.get();
+        if (snapshot == null) {
+            snapshot = loadSnapshotFile();
+            if (snapshot != null) {
+                current.set(snapshot);
+            } else {
+                snapshot = SchemaSnapshot.of(entityDao.listAll(), relationTypeDao.listAllRelationTypes());
+                current.set(snapshot);
+                writeSnapshotFile(snapshot);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * @return the snapshot of the entities saved to the file, all of them
+     *         unverified, or null if there is no usable file
+     */
+    private SchemaSnapshot loadSnapshotFile() {
+        if (snapshotFile == null) {
+            return null;
+        }
+        try {
+            List<Entity> savedEntities = snapshotFile.read();
+            if (savedEntities == null) {
+                return null;
+            }
+            SchemaSnapshot snapshot = SchemaSnapshot.of(savedEntities, relationTypeDao.listAllRelationTypes());
+            for (Entity entity : snapshot.getEntities()) {
+                unverifiedEntityIds.add(entity.getId());
+            }
+            return snapshot;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Written on a best effort basis: without the file, the next start loads
+     * the entities from the DAO again.
+     */
+    private void writeSnapshotFile(SchemaSnapshot snapshot) {
+        if (snapshotFile == null) {
+            return;
+        }
+        try {
+            snapshotFile.write(snapshot.getEntities());
+        } catch (IOException e) {
+            // the file is left as it was
+        }
+    }
+
+    /**
+     * Saves the entities of the current snapshot to the snapshot file, for
+     * instance before a planned restart
+     */
+    void saveSnapshot() {
+        if (snapshotFile == null) {
+            throw new MetadataException("No schema snapshot file is configured");
+        }
+        verifyAll();
+        try {
+            snapshotFile.write(getSnapshot().getEntities());
+        } catch (IOException e) {
+            throw new MetadataException("Could not save the schema snapshot: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return the shared entity of the current snapshot, or null when it is
+     *         not there
+     */
+    Entity findEntityById(Long id) {
+        Entity entity = getSnapshot().getEntity(id);
+        if (entity != null && !isVerified(entity)) {
+            entity = getSnapshot().getEntity(id);
+        }
+        return hitOrMiss(entity);
+    }
+
+    Entity findEntityByFullName(String fullName) {
+        Entity entity = getSnapshot().getEntityByFullName(fullName);
+        if (entity != null && !isVerified(entity)) {
+            entity = getSnapshot().getEntityByFullName(fullName);
+        }
+        return hitOrMiss(entity);
+    }
+
+    /**
+     * Checks an entity loaded from the snapshot file against the DAO on its
+     * first lookup.
+     * 
+     * @return false if the entity had to be replaced or dropped, and has to
+     *         be looked up again
+     */
+    private boolean isVerified(Entity entity) {
+        if (unverifiedEntityIds.isEmpty() || !unverifiedEntityIds.contains(entity.getId())) {
+            return true;
+        }
+        Entity stored = entityDao.findById(entity.getId());
+        boolean unchanged = stored != null && stored.getVersion() != null
+                && stored.getVersion().equals(entity.getVersion());
+        if (stored == null) {
+            removeEntity(entity.getId());
+        } else if (!unchanged) {
+            replaceEntity(stored);
+        }
+        unverifiedEntityIds.remove(entity.getId());
+        return unchanged;
+    }
+
+    /**
+     * Checks every entity from the snapshot file that was never looked up
+     * against the DAO.
+     */
+    private void verifyAll() {
+        getSnapshot();
+        for (Long id : new ArrayList<Long>(unverifiedEntityIds)) {
+            Entity entity = getSnapshot().getEntity(id);
+            if (entity != null) {
+                isVerified(entity);
+            } else {
+                unverifiedEntityIds.remove(id);
+            }
+        }
+    }
+
+    RelationType findRelationTypeById(Long id) {
+        return getSnapshot().getRelationType(id);
+    }
+
+    Collection<RelationType> getRelationTypes() {
+        return getSnapshot().getRelationTypes();
+    }
+
+    private Entity hitOrMiss(Entity entity) {
+        if (entity == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return entity;
+    }
+
+    /**
+     * Publishes a private copy of the entity and returns the copy held by the
+     * new snapshot. An entity read from the DAO without any lock may be stale
+     * by the time it is published: an older version than the one held is not
+     * published, nor is a removed entity, so a lookup racing with a delete
+     * cannot bring the entity back.
+     * 
+     * @return the entity held by the snapshot, or null when it was removed
+     */
+    Entity publishEntity(Entity entity, String lookupFullName) {
+        if (entity == null || entity.getId() == null) {
+            return null;
+        }
+        Entity copy = Util.clone(entity);
+        while (true) {
+            SchemaSnapshot snapshot = getSnapshot();
+            SchemaSnapshot published = snapshot.withEntity(copy, lookupFullName);
+            if (published == snapshot || current.compareAndSet(snapshot, published)) {
+                Entity publishedEntity = published.getEntity(entity.getId());
+                if (publishedEntity == copy) {
+                    unverifiedEntityIds.remove(entity.getId());
+                }
+                return publishedEntity;
+            }
+        }
+    }
+
+    private void replaceEntity(Entity entity) {
+        Entity copy = Util.clone(entity);
+        while (true) {
+            SchemaSnapshot snapshot = getSnapshot();
+            SchemaSnapshot published = snapshot.replacingEntity(copy);
+            if (published == snapshot || current.compareAndSet(snapshot, published)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Removes the entity for good: it is not published again afterwards.
+     */
+    void removeEntity(Long id) {
+        unverifiedEntityIds.remove(id);
+        while (true) {
+            SchemaSnapshot snapshot = getSnapshot();
+            SchemaSnapshot published = snapshot.withoutEntity(id);
+            if (published == snapshot || current.compareAndSet(snapshot, published)) {
+                return;
+            }
+        }
+    }
+
+    void publishRelationType(RelationType relationType) {
+        if (relationType == null || relationType.getId() == null) {
+            return;
+        }
+        RelationType copy = RelationType.cloneObject(relationType);
+        while (true) {
+            SchemaSnapshot snapshot = getSnapshot();
+            if (current.compareAndSet(snapshot, snapshot.withRelationType(copy))) {
+                return;
+            }
+        }
+    }
+
+    void removeRelationType(Long id) {
+        while (true) {
+            SchemaSnapshot snapshot = getSnapshot();
+            SchemaSnapshot published = snapshot.withoutRelationType(id);
+            if (published == snapshot || current.compareAndSet(snapshot, published)) {
+                return;
+            }
+        }
+    }
+
+    long getHitCount() {
+        return hits.get();
+    }
+
+    long getMissCount() {
+        return misses.get();
+    }
+
+}
@@ -0,0 +1,214 @@
+package com.nanuvem.lom.business;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import com.nanuvem.lom.api.Entity;
+import com.nanuvem.lom.api.RelationType;
+
+/**
+ * Immutable view of the metadata model: entities, with their attributes, and
+ * relation types. A snapshot is never changed once built; writers derive a
+ * new one with the with/without methods and publish it through the
+ * SchemaRegistry. The objects it holds are shared by every reader, so they
+ * must be read only and copied before leaving the business layer.
+ */
+final class SchemaSnapshot {
+
+    static final SchemaSnapshot EMPTY = new SchemaSnapshot(0, PersistentHashMap.<Long, Entity> empty(),
+            PersistentHashMap.<String, Long> empty(), PersistentHashMap.<Long, List<String>> empty(),
+            PersistentHashMap.<Long, RelationType> empty(), PersistentHashMap.<Long, Boolean> empty());
+
+    private final long version;
+    private final PersistentHashMap<Long, Entity> entitiesById;
+    private final PersistentHashMap<String, Long> entityIdsByFullName;
+    private final PersistentHashMap<Long, List<String>> fullNamesByEntityId;
+    private final PersistentHashMap<Long, RelationType> relationTypesById;
+    private final PersistentHashMap<Long, Boolean> removedEntityIds;
+
+    /**
+     * The maps are persistent, so a derived snapshot shares all but the
+     * changed branches with the one it was derived from.
+     * 
+     * @param fullNamesByEntityId
+     *            reverse of entityIdsByFullName, so the names of an entity are
+     *            dropped without scanning the names of every other one
+     * @param removedEntityIds
+     *            tombstones of the removed entities, so an entity read from
+     *            the DAO before its removal is not published again after it.
+     *            The DAO never gives a removed id to a new entity.
+     */
+    private SchemaSnapshot(long version, PersistentHashMap<Long, Entity> entitiesById,
+            PersistentHashMap<String, Long> entityIdsByFullName,
+            PersistentHashMap<Long, List<String>> fullNamesByEntityId,
+            PersistentHashMap<Long, RelationType> relationTypesById,
+            PersistentHashMap<Long, Boolean> removedEntityIds) {
+        this.version = version;
+        this.entitiesById = entitiesById;
+        this.entityIdsByFullName = entityIdsByFullName;
+        this.fullNamesByEntityId = fullNamesByEntityId;
+        this.relationTypesById = relationTypesById;
+        this.removedEntityIds = removedEntityIds;
+    }
+
+    static SchemaSnapshot of(List<Entity> entities, List<RelationType> relationTypes) {
+        SchemaSnapshot snapshot = EMPTY;
+        for (Entity entity : entities) {
+            snapshot = snapshot.withEntity(entity, null);
+        }
+        for (RelationType relationType : relationTypes) {
+            snapshot = snapshot.withRelationType(relationType);
+        }
+        return new SchemaSnapshot(1, snapshot.entitiesById, snapshot.entityIdsByFullName,
+                snapshot.fullNamesByEntityId, snapshot.relationTypesById, snapshot.removedEntityIds);
+    }
+
+    /**
+     * Incremented for every snapshot derived from this one
+     */
+    long getVersion() {
+        return version;
+    }
+
+    Entity getEntity(Long id) {
+        return id != null ? entitiesById.get(id) : null;
+    }
+
+    Entity getEntityByFullName(String fullName) {
+        return getEntity(entityIdsByFullName.get(canonicalFullName(fullName)));
+    }
+
+    Collection<Entity> getEntities() {
+        return entitiesById.values();
+    }
+
+    RelationType getRelationType(Long id) {
+        return id != null ? relationTypesById.get(id) : null;
+    }
+
+    Collection<RelationType> getRelationTypes() {
+        return relationTypesById.values();
+    }
+
+    /**
+     * Derives a snapshot holding the entity, also found by the full name it
+     * was looked up with when one is given. An entity older than the one held
+     * (by version), or one that was removed, leaves this snapshot as it is.
+     */
+    SchemaSnapshot withEntity(Entity entity, String lookupFullName) {
+        if (removedEntityIds.containsKey(entity.getId())) {
+            return this;
+        }
+        Entity current = entitiesById.get(entity.getId());
+        if (current != null && isOlder(entity, current)) {
+            return this;
+        }
+
+        PersistentHashMap<String, Long> fullNames = entityIdsByFullName;
+        List<String> entityFullNames = fullNamesByEntityId.get(entity.getId());
+        if (current != null && !fullName(current).equals(fullName(entity))) {
+            fullNames = removeFullNames(fullNames, entity.getId(), entityFullNames);
+            entityFullNames = null;
+        }
+        List<String> addedFullNames = new ArrayList<String>(2);
+        addedFullNames.add(fullName(entity));
+        if (lookupFullName != null) {
+            addedFullNames.add(canonicalFullName(lookupFullName));
+        }
+        List<String> keptFullNames = entityFullNames != null ? new ArrayList<String>(entityFullNames)
+                : new ArrayList<String>(addedFullNames.size());
+        for (String fullName : addedFullNames) {
+            fullNames = fullNames.with(fullName, entity.getId());
+            if (!keptFullNames.contains(fullName)) {
+                keptFullNames.add(fullName);
+            }
+        }
+        return new SchemaSnapshot(version + 1, entitiesById.with(entity.getId(), entity), fullNames,
+                fullNamesByEntityId.with(entity.getId(), Collections.unmodifiableList(keptFullNames)),
+                relationTypesById, removedEntityIds);
+    }
+
+    /**
+     * Derives a snapshot holding the entity in place of the one held, whatever
+     * their versions, unless the entity was removed.
+     */
+    SchemaSnapshot replacingEntity(Entity entity) {
+        if (removedEntityIds.containsKey(entity.getId())) {
+            return this;
+        }
+        return dropEntity(entity.getId()).withEntity(entity, null);
+    }
+
+    /**
+     * Derives a snapshot without the entity, leaving a tombstone so it cannot
+     * be published again.
+     */
+    SchemaSnapshot withoutEntity(Long id) {
+        if (removedEntityIds.containsKey(id)) {
+            return this;
+        }
+        SchemaSnapshot dropped = dropEntity(id);
+        return new SchemaSnapshot(version + 1, dropped.entitiesById, dropped.entityIdsByFullName,
+                dropped.fullNamesByEntityId, relationTypesById, removedEntityIds.with(id, Boolean.TRUE));
+    }
+
+    private SchemaSnapshot dropEntity(Long id) {
+        if (!entitiesById.containsKey(id)) {
+            return this;
+        }
+        PersistentHashMap<String, Long> fullNames = removeFullNames(entityIdsByFullName, id,
+                fullNamesByEntityId.get(id));
+        return new SchemaSnapshot(version + 1, entitiesById.without(id), fullNames, fullNamesByEntityId.without(id),
+                relationTypesById, removedEntityIds);
+    }
+
+    SchemaSnapshot withRelationType(RelationType relationType) {
+        return new SchemaSnapshot(version + 1, entitiesById, entityIdsByFullName, fullNamesByEntityId,
+                relationTypesById.with(relationType.getId(), relationType), removedEntityIds);
+    }
+
+    SchemaSnapshot withoutRelationType(Long id) {
+        if (!relationTypesById.containsKey(id)) {
+            return this;
+        }
+        return new SchemaSnapshot(version + 1, entitiesById, entityIdsByFullName, fullNamesByEntityId,
+                relationTypesById.without(id), removedEntityIds);
+    }
+
+    /**
+     * Drops the names the entity was published under, unless another entity
+     * has taken one of them over since.
+     */
+    private static PersistentHashMap<String, Long> removeFullNames(PersistentHashMap<String, Long> fullNames,
+            Long id, List<String> entityFullNames) {
+        if (entityFullNames == null) {
+            return fullNames;
+        }
+        for (String fullName : entityFullNames) {
+            if (id.equals(fullNames.get(fullName))) {
+                fullNames = fullNames.without(fullName);
+            }
+        }
+        return fullNames;
+    }
+
+    private static boolean isOlder(Entity entity, Entity current) {
+        return entity.getVersion() != null && current.getVersion() != null
+                && entity.getVersion() < current.getVersion();
+    }
+
+    private static String fullName(Entity entity) {
+        String namespace = entity.getNamespace();
+        if (namespace == null || namespace.isEmpty()) {
+            namespace = EntityServiceImpl.DEFAULT_NAMESPACE;
+        }
+        return namespace + "." + entity.getName();
+    }
+
+    private static String canonicalFullName(String fullName) {
+        return Util.setDefaultNamespace(fullName);
+    }
+
+}
@@ -0,0 +1,209 @@
+package com.nanuvem.lom.business;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import com.nanuvem.lom.api.Attribute;
+import com.nanuvem.lom.api.AttributeType;
+import com.nanuvem.lom.api.Entity;
+
+/**
+ * Entities of a SchemaSnapshot, with their attributes, saved to a file so a
+ * restart can skip listing them from the DAO. The file starts with a magic
+ * number, the format version, the number of entities, the length and the
+ * CRC32 of the payload. The payload holds one record per entity:
+ *
+ * <pre>
+ * entity:    id long, version int?, namespace string, name string,
+ *            attribute count int, attributes
+ * attribute: id long?, version int?, sequence int?, name string,
+ *            type string, configuration string
+ * int?:      present byte, then the int when present
+ * long?:     present byte, then the long when present
+ * string:    UTF-8 length int, -1 for null, then the bytes
+ * </pre>
+ *
+ * The SchemaRegistry builds its snapshot from every entity at once, so the
+ * file is read and decoded whole. It is written to a temporary file moved
+ * over the previous one atomically.
+ */
+class SchemaSnapshotFile {
+
+    private static final int MAGIC = 0x4C4F4D53;
+    private static final int FORMAT_VERSION = 3;
+    private static final int HEADER_SIZE = 20;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final File file;
+
+    SchemaSnapshotFile(File file) {
+        this.file = file;
+    }
+
+    /**
+     * @return the saved entities, or null if there is no file or it was not
+     *         written by this format version or is damaged
+     */
+    List<Entity> read() throws IOException {
+        if (!file.isFile() || file.length() < HEADER_SIZE) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+
+        if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+            return null;
+        }
+        int count = buffer.getInt();
+        int length = buffer.getInt();
+        int checksum = buffer.getInt();
+        if (count < 0 || length != buffer.remaining()) {
+            return null;
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), HEADER_SIZE, length);
+        if ((int) crc.getValue() != checksum) {
+            return null;
+        }
+        try {
+            List<Entity> entities = new ArrayList<Entity>(Math.min(count, length));
+            for (int i = 0; i < count; i++) {
+                entities.add(readEntity(buffer));
+            }
+            return buffer.hasRemaining() ? null : entities;
+        } catch (BufferUnderflowException e) {
+            return null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    void write(Collection<Entity> entities) throws IOException {
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(records);
+        for (Entity entity : entities) {
+            writeEntity(output, entity);
+        }
+        output.flush();
+        byte[] payload = records.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC);
+        header.putInt(FORMAT_VERSION);
+        header.putInt(entities.size());
+        header.putInt(payload.length);
+        header.putInt((int) crc.getValue());
+
+        File temporaryFile = new File(file.getPath() + ".tmp");
+        FileOutputStream fileOutput = new FileOutputStream(temporaryFile);
+        try {
+            fileOutput.write(header.array());
+            fileOutput.write(payload);
+            fileOutput.getFD().sync();
+        } finally {
+            fileOutput.close();
+        }
+
+        Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void writeEntity(DataOutputStream output, Entity entity) throws IOException {
+        output.writeLong(entity.getId());
+        writeInteger(output, entity.getVersion());
+        writeString(output, entity.getNamespace());
+        writeString(output, entity.getName());
+        List<Attribute> attributes = entity.getAttributes() != null ? entity.getAttributes()
+                : new ArrayList<Attribute>();
+        output.writeInt(attributes.size());
+        for (Attribute attribute : attributes) {
+            writeLong(output, attribute.getId());
+            writeInteger(output, attribute.getVersion());
+            writeInteger(output, attribute.getSequence());
+            writeString(output, attribute.getName());
+            writeString(output, attribute.getType() != null ? attribute.getType().name() : null);
+            writeString(output, attribute.getConfiguration());
+        }
+    }
+
+    private static void writeLong(DataOutputStream output, Long value) throws IOException {
+        output.writeBoolean(value != null);
+        if (value != null) {
+            output.writeLong(value);
+        }
+    }
+
+    private static void writeInteger(DataOutputStream output, Integer value) throws IOException {
+        output.writeBoolean(value != null);
+        if (value != null) {
+            output.writeInt(value);
+        }
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        if (value == null) {
+            output.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static Entity readEntity(ByteBuffer record) {
+        Entity entity = new Entity();
+        entity.setId(record.getLong());
+        entity.setVersion(readInteger(record));
+        entity.setNamespace(readString(record));
+        entity.setName(readString(record));
+        int attributeCount = record.getInt();
+        List<Attribute> attributes = new ArrayList<Attribute>(attributeCount);
+        for (int i = 0; i < attributeCount; i++) {
+            Attribute attribute = new Attribute();
+            attribute.setId(readLong(record));
+            attribute.setVersion(readInteger(record));
+            attribute.setSequence(readInteger(record));
+            attribute.setName(readString(record));
+            String type = readString(record);
+            attribute.setType(type != null ? AttributeType.valueOf(type) : null);
+            attribute.setConfiguration(readString(record));
+            attribute.setEntity(entity);
+            attributes.add(attribute);
+        }
+        entity.setAttributes(attributes);
+        return entity;
+    }
+
+    private static Long readLong(ByteBuffer record) {
+        return record.get() != 0 ? Long.valueOf(record.getLong()) : null;
+    }
+
+    private static Integer readInteger(ByteBuffer record) {
+        return record.get() != 0 ? Integer.valueOf(record.getInt()) : null;
+    }
+
+    private static String readString(ByteBuffer record) {
+        int length = record.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        record.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+}
@@ -0,0 +1,24 @@
+package com.nanuvem.lom.business;
+
+import com.nanuvem.lom.api.MetadataException;
+
+/**
+ * MetadataException for expected outcomes, such as a lookup that finds
+ * nothing or a value that fails validation. These are raised often enough,
+ * in bulk provisioning and ingestion, that capturing a stack trace for each
+ * shows up in profiles, so none is captured.
+ */
+class StacklessMetadataException extends MetadataException {
+
+    private static final long serialVersionUID = 1L;
+
+    StacklessMetadataException(String message) {
+        super(message);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+
+}
@@ -0,0 +1,73 @@
+package com.nanuvem.lom.business;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed set of locks shared by hash among an unbounded set of keys. Writes on
+ * the same key are serialized while writes on different keys only contend
+ * when their keys fall on the same stripe.
+ */
+class StripedLocks {
+
+    static final int DEFAULT_STRIPES = 64;
+
+    private final Lock[] locks;
+
+    StripedLocks() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * @param stripes
+     *            number of locks, rounded up to a power of two
+     */
+    StripedLocks(int stripes) {
+        int size = Integer.highestOneBit(Math.max(stripes - 1, 1)) << 1;
+        locks = new Lock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    Lock lockFor(Object key) {
+        return locks[stripe(key)];
+    }
+
+    /**
+     * Locks the stripes of all the keys, each one once and in stripe order,
+     * so two callers locking overlapping sets of keys cannot deadlock.
+     * 
+     * @return the locks taken, to be released with {@link #unlockAll(List)}
+     */
+    List<Lock> lockAll(Collection<?> keys) {
+        boolean[] stripes = new boolean[locks.length];
+        for (Object key : keys) {
+            stripes[stripe(key)] = true;
+        }
+        List<Lock> taken = new ArrayList<Lock>();
+        for (int i = 0; i < stripes.length; i++) {
+            if (stripes[i]) {
+                locks[i].lock();
+                taken.add(locks[i]);
+            }
+        }
+        return taken;
+    }
+
+    static void unlockAll(List<Lock> taken) {
+        for (int i = taken.size() - 1; i >= 0; i--) {
+            taken.get(i).unlock();
+        }
+    }
+
+    private int stripe(Object key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+        return hash & (locks.length - 1);
+    }
+
+}
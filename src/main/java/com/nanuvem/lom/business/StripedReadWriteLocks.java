@@ -0,0 +1,67 @@
+package com.nanuvem.lom.business;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Read write counterpart of StripedLocks: any number of readers of a key run
+ * together, a writer of the key runs alone.
+ */
+class StripedReadWriteLocks {
+
+    private final ReadWriteLock[] locks;
+
+    StripedReadWriteLocks() {
+        this(StripedLocks.DEFAULT_STRIPES);
+    }
+
+    /**
+     * @param stripes
+     *            number of locks, rounded up to a power of two
+     */
+    StripedReadWriteLocks(int stripes) {
+        int size = Integer.highestOneBit(Math.max(stripes - 1, 1)) << 1;
+        locks = new ReadWriteLock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    Lock writeLockFor(Object key) {
+        return locks[stripe(key)].writeLock();
+    }
+
+    /**
+     * Locks the read locks of the stripes of all the keys, each one once and
+     * in stripe order, like {@link StripedLocks#lockAll(Collection)}.
+     * 
+     * @return the locks taken, to be released with
+     *         {@link StripedLocks#unlockAll(List)}
+     */
+    List<Lock> readLockAll(Collection<?> keys) {
+        boolean[] stripes = new boolean[locks.length];
+        for (Object key : keys) {
+            stripes[stripe(key)] = true;
+        }
+        List<Lock> taken = new ArrayList<Lock>();
+        for (int i = 0; i < stripes.length; i++) {
+            if (stripes[i]) {
+                Lock lock = locks[i].readLock();
+                lock.lock();
+                taken.add(lock);
+            }
+        }
+        return taken;
+    }
+
+    private int stripe(Object key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+        return hash & (locks.length - 1);
+    }
+
+}
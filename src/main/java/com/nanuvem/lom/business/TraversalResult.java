@@ -0,0 +1,118 @@
+package com.nanuvem.lom.business;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.nanuvem.lom.api.Relation;
+import com.nanuvem.lom.api.RelationType;
+
+/**
+ * Subgraph visited by a RelationTraversal: the instances reached, each with
+ * its depth, and the relations walked to reach them, in visiting order.
+ */
+public class TraversalResult {
+
+    private Map<Long, Integer> depthByInstanceId = new LinkedHashMap<Long, Integer>();
+    private List<Step> steps = new ArrayList<Step>();
+    private Map<Long, Integer> stepIndexByRelationId = new HashMap<Long, Integer>();
+
+    void addVisit(Long instanceId, int depth) {
+        depthByInstanceId.put(instanceId, depth);
+    }
+
+    /**
+     * Records a relation the first time it is walked, with a copy of it so
+     * the result does not share the relations held by the adjacency index.
+     * A relation walked again to a shallower depth keeps its place but takes
+     * the new depth and direction.
+     */
+    void addStep(Relation relation, int depth, boolean reversed) {
+        Integer index = stepIndexByRelationId.get(relation.getId());
+        if (index == null) {
+            stepIndexByRelationId.put(relation.getId(), steps.size());
+            steps.add(new Step(Util.clone(relation), depth, reversed));
+        } else if (depth < steps.get(index).getDepth()) {
+            steps.set(index, new Step(steps.get(index).getRelation(), depth, reversed));
+        }
+    }
+
+    /**
+     * @return the ids of the visited instances, the starting one first
+     */
+    public Set<Long> getVisitedInstanceIds() {
+        return Collections.unmodifiableSet(depthByInstanceId.keySet());
+    }
+
+    /**
+     * @return the length of the shortest path walked to the instance, or -1
+     *         if it was not visited
+     */
+    public int getDepth(Long instanceId) {
+        Integer depth = depthByInstanceId.get(instanceId);
+        return depth != null ? depth : -1;
+    }
+
+    public List<Step> getSteps() {
+        return Collections.unmodifiableList(steps);
+    }
+
+    public List<Relation> getRelations() {
+        List<Relation> relations = new ArrayList<Relation>(steps.size());
+        for (Step step : steps) {
+            relations.add(step.getRelation());
+        }
+        return relations;
+    }
+
+    public static class Step {
+
+        private Relation relation;
+        private int depth;
+        private boolean reversed;
+
+        Step(Relation relation, int depth, boolean reversed) {
+            this.relation = relation;
+            this.depth = depth;
+            this.reversed = reversed;
+        }
+
+        public Relation getRelation() {
+            return relation;
+        }
+
+        /**
+         * Depth of the instance the relation was walked to
+         */
+        public int getDepth() {
+            return depth;
+        }
+
+        /**
+         * Whether the relation was walked from its target to its source
+         */
+        public boolean isReversed() {
+            return reversed;
+        }
+
+        /**
+         * @return the reverse name of a bidirectional relation type walked
+         *         back, or the name of the relation type otherwise
+         */
+        public String getName() {
+            RelationType relationType = relation.getRelationType();
+            if (relationType == null) {
+                return null;
+            }
+            if (reversed && relationType.isBidirectional() && relationType.getReverseName() != null) {
+                return relationType.getReverseName();
+            }
+            return relationType.getName();
+        }
+    }
+
+}
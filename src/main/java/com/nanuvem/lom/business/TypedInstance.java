@@ -0,0 +1,90 @@
+package com.nanuvem.lom.business;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.nanuvem.lom.api.AttributeType;
+import com.nanuvem.lom.api.AttributeValue;
+import com.nanuvem.lom.api.Instance;
+import com.nanuvem.lom.api.MetadataException;
+
+/**
+ * Read view of an instance whose INTEGER values are parsed once, when the
+ * view is built, and kept as ints. Values are looked up by attribute name.
+ */
+public class TypedInstance {
+
+    private final Instance instance;
+    private final Map<String, Integer> slotsByName;
+    private final String[] values;
+    private final int[] integerValues;
+    private final boolean[] integers;
+
+    private TypedInstance(Instance instance) {
+        this.instance = instance;
+
+        List<AttributeValue> attributeValues = instance.getValues();
+        int size = attributeValues.size();
+        this.slotsByName = new HashMap<String, Integer>(size * 2);
+        this.values = new String[size];
+        this.integerValues = new int[size];
+        this.integers = new boolean[size];
+
+        for (int i = 0; i < size; i++) {
+            AttributeValue value = attributeValues.get(i);
+            if (value.getAttribute() == null) {
+                continue;
+            }
+            slotsByName.put(value.getAttribute().getName(), i);
+            values[i] = value.getValue();
+            if (value.getAttribute().getType() == AttributeType.INTEGER) {
+                long parsedValue = Util.parseInteger(value.getValue());
+                if (parsedValue != Util.NOT_AN_INTEGER) {
+                    integerValues[i] = (int) parsedValue;
+                    integers[i] = true;
+                }
+            }
+        }
+    }
+
+    public static TypedInstance of(Instance instance) {
+        return instance != null ? new TypedInstance(instance) : null;
+    }
+
+    public Instance getInstance() {
+        return instance;
+    }
+
+    public boolean hasValue(String attribute) {
+        Integer slot = slotsByName.get(attribute);
+        return slot != null && values[slot] != null;
+    }
+
+    public String getText(String attribute) {
+        Integer slot = slotsByName.get(attribute);
+        return slot != null ? values[slot] : null;
+    }
+
+    /**
+     * @return true when the attribute is an INTEGER attribute holding a value
+     */
+    public boolean isInteger(String attribute) {
+        Integer slot = slotsByName.get(attribute);
+        return slot != null && integers[slot];
+    }
+
+    public int getInt(String attribute) {
+        Integer slot = slotsByName.get(attribute);
+        if (slot == null || !integers[slot]) {
+            throw new MetadataException("The value for the '" + attribute + "' attribute is not an int");
+        }
+        return integerValues[slot];
+    }
+
+    public int getInt(String attribute, int defaultValue) {
+        Integer slot = slotsByName.get(attribute);
+        return slot != null && integers[slot] ? integerValues[slot] : defaultValue;
+    }
+
+}
@@ -4,13 +4,11 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.apache.commons.lang.SerializationUtils;
-
 import com.nanuvem.lom.api.Attribute;
 import com.nanuvem.lom.api.AttributeValue;
 import com.nanuvem.lom.api.Entity;
 import com.nanuvem.lom.api.Instance;
-import com.nanuvem.lom.api.MetadataException;
+import com.nanuvem.lom.business.metrics.OperationTimer;
 import com.nanuvem.lom.business.validator.ValidationError;
 
 public class Util {
@@ -47,19 +45,30 @@ public class Util {
         }
     }
 
-    @SuppressWarnings("unchecked")
     static <T extends Serializable> T clone(T t) {
-        return (T) SerializationUtils.clone(t);
+        OperationTimer timer = OperationTimer.current();
+        if (timer == null) {
+            return ObjectCopier.copy(t);
+        }
+
+        long startedAt = System.nanoTime();
+        ObjectCopier copier = new ObjectCopier();
+        T copy = copier.copyGraph(t);
+        timer.recordClone(System.nanoTime() - startedAt, copier.getCopiedObjectCount());
+        return copy;
     }
 
     static <T extends Serializable> List<T> clone(List<T> ts) {
-        List<T> clones = new ArrayList<T>();
-
-        for (T t : ts) {
-            clones.add(clone(t));
+        OperationTimer timer = OperationTimer.current();
+        if (timer == null) {
+            return ObjectCopier.copy(ts);
         }
 
-        return clones;
+        long startedAt = System.nanoTime();
+        ObjectCopier copier = new ObjectCopier();
+        List<T> copies = copier.copyGraphs(ts);
+        timer.recordClone(System.nanoTime() - startedAt, copier.getCopiedObjectCount());
+        return copies;
     }
 
     static String setDefaultNamespace(String fullName) {
@@ -87,17 +96,36 @@ public class Util {
         }
     }
 
+    static final long NOT_AN_INTEGER = -1;
+
+    /**
+     * Parses a value accepted by the INTEGER type (digits only, no sign)
+     * without creating any object.
+     * 
+     * @return the value, or NOT_AN_INTEGER when it is null, empty, not made of
+     *         digits only or out of the int range
+     */
+    static long parseInteger(String value) {
+        if (value == null || value.isEmpty()) {
+            return NOT_AN_INTEGER;
+        }
+        long parsed = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return NOT_AN_INTEGER;
+            }
+            parsed = parsed * 10 + (c - '0');
+            if (parsed > Integer.MAX_VALUE) {
+                return NOT_AN_INTEGER;
+            }
+        }
+        return parsed;
+    }
+
     static void throwValidationErrors(List<ValidationError> errors, String message) {
         if (!errors.isEmpty()) {
-            String errorMessage = "";
-            for (ValidationError error : errors) {
-                if (errorMessage.isEmpty()) {
-                    errorMessage += message + error.getMessage();
-                } else {
-                    errorMessage += ", " + error.getMessage();
-                }
-            }
-            throw new MetadataException(errorMessage);
+            throw new ValidationException(message, new ArrayList<ValidationError>(errors));
         }
     }
 
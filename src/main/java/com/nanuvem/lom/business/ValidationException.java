@@ -0,0 +1,48 @@
+package com.nanuvem.lom.business;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.nanuvem.lom.business.validator.ValidationError;
+
+/**
+ * Rejection of a value or configuration that failed validation. The errors
+ * are kept as they were reported, and joined into the message only when the
+ * message is first read.
+ */
+public class ValidationException extends StacklessMetadataException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String prefix;
+    private final List<ValidationError> errors;
+    private volatile String message;
+
+    ValidationException(String prefix, List<ValidationError> errors) {
+        super(prefix);
+        this.prefix = prefix;
+        this.errors = Collections.unmodifiableList(errors);
+    }
+
+    public List<ValidationError> getErrors() {
+        return errors;
+    }
+
+    @Override
+    public String getMessage() {
+        String built = message;
+        if (built == null) {
+            StringBuilder builder = new StringBuilder(prefix);
+            for (int i = 0; i < errors.size(); i++) {
+                if (i > 0) {
+                    builder.append(", ");
+                }
+                builder.append(errors.get(i).getMessage());
+            }
+            built = builder.toString();
+            message = built;
+        }
+        return built;
+    }
+
+}
@@ -0,0 +1,19 @@
+package com.nanuvem.lom.business;
+
+/**
+ * How many errors are gathered for a value before it is rejected
+ */
+public enum ValidationMode {
+
+    /**
+     * Stops at the first rule the value breaks. Meant for high-throughput
+     * ingestion, where a rejected value only needs to be known as rejected.
+     */
+    FAIL_FAST,
+
+    /**
+     * Checks every rule, reporting all the errors of the value together
+     */
+    COLLECT_ALL
+
+}
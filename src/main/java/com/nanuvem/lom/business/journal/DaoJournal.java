@@ -0,0 +1,266 @@
+package com.nanuvem.lom.business.journal;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.apache.commons.lang.SerializationException;
+import org.apache.commons.lang.SerializationUtils;
+
+import com.nanuvem.lom.api.MetadataException;
+import com.nanuvem.lom.api.dao.DaoFactory;
+
+/**
+ * Makes the DAOs of a DaoFactory durable, typically the in-memory ones, by
+ * journaling every mutation (the create, update and delete methods) to an
+ * append-only file and replaying the file into the factory when the journal
+ * is opened again.
+ * <p>
+ * Mutations are applied to the wrapped DAOs and appended to the journal in
+ * the same order, one at a time, and the call returns once the journal is
+ * forced to disk; see {@link JournalWriter} for the group commit. Replay
+ * calls the same methods again with the same arguments, so the wrapped DAOs
+ * must assign ids deterministically, as the in-memory ones do; a replayed
+ * create returning another id than the journaled one fails the replay.
+ */
+public class DaoJournal implements Closeable {
+
+    private final DaoFactory daoFactory;
+    private final DaoFactory journaledDaoFactory;
+    private final JournalWriter writer;
+    private final Object mutationLock = new Object();
+    private final long replayedCount;
+
+    private DaoJournal(DaoFactory daoFactory, FileChannel channel, long replayedCount, String name) {
+        this.daoFactory = daoFactory;
+        this.replayedCount = replayedCount;
+        this.writer = new JournalWriter(channel, name);
+        this.journaledDaoFactory = (DaoFactory) Proxy.newProxyInstance(DaoFactory.class.getClassLoader(),
+                new Class<?>[] { DaoFactory.class }, new FactoryHandler());
+    }
+
+    /**
+     * Replays the journal file, if it exists, into the given factory and
+     * keeps appending to it. A record torn by a crash at the end of the file
+     * is dropped.
+     */
+    public static DaoJournal open(File file, DaoFactory daoFactory) throws IOException {
+        FileChannel channel = new RandomAccessFile(file, "rw").getChannel();
+        try {
+            long replayedCount = replay(channel, daoFactory);
+            return new DaoJournal(daoFactory, channel, replayedCount, "lom-journal-" + file.getName());
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        } catch (RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the factory whose DAOs journal their mutations
+     */
+    public DaoFactory getDaoFactory() {
+        return journaledDaoFactory;
+    }
+
+    /**
+     * @return the number of mutations replayed when the journal was opened
+     */
+    public long getReplayedCount() {
+        return replayedCount;
+    }
+
+    /**
+     * Waits for the mutations already made to reach the disk and closes the
+     * file. The journaled DAOs reject mutations afterwards.
+     */
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    private static long replay(FileChannel channel, DaoFactory daoFactory) throws IOException {
+        Map<String, Object> daos = new HashMap<String, Object>();
+        ByteBuffer header = ByteBuffer.allocate(JournalWriter.HEADER_SIZE);
+        long size = channel.size();
+        long position = 0;
+        long replayedCount = 0;
+
+        while (size - position >= JournalWriter.HEADER_SIZE) {
+            header.clear();
+            readFully(channel, header, position);
+            header.flip();
+            int length = header.getInt();
+            int checksum = header.getInt();
+            if (length <= 0 || length > size - position - JournalWriter.HEADER_SIZE) {
+                break;
+            }
+
+            byte[] payload = new byte[length];
+            readFully(channel, ByteBuffer.wrap(payload), position + JournalWriter.HEADER_SIZE);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+
+            JournalRecord record;
+            try {
+                record = (JournalRecord) SerializationUtils.deserialize(payload);
+            } catch (SerializationException e) {
+                break;
+            }
+            apply(record, daoFactory, daos);
+            replayedCount++;
+            position += JournalWriter.HEADER_SIZE + length;
+        }
+
+        channel.truncate(position);
+        channel.position(position);
+        return replayedCount;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of the journal");
+            }
+        }
+    }
+
+    private static void apply(JournalRecord record, DaoFactory daoFactory, Map<String, Object> daos) {
+        try {
+            Object dao = daos.get(record.getDaoInterface());
+            if (dao == null) {
+                dao = createDao(daoFactory, record.getDaoInterface());
+                daos.put(record.getDaoInterface(), dao);
+            }
+            String[] parameterTypeNames = record.getParameterTypes();
+            Class<?>[] parameterTypes = new Class<?>[parameterTypeNames.length];
+            for (int i = 0; i < parameterTypes.length; i++) {
+                parameterTypes[i] = classFor(parameterTypeNames[i]);
+            }
+            Method method = Class.forName(record.getDaoInterface()).getMethod(record.getMethod(), parameterTypes);
+            Object[] arguments = (Object[]) SerializationUtils.deserialize(record.getArguments());
+            Object result = invoke(dao, method, arguments);
+
+            Object resultId = idOf(result);
+            if (record.getResultId() != null && !record.getResultId().equals(resultId)) {
+                throw new MetadataException("The journal replay diverged: " + record.getDaoInterface() + "."
+                        + record.getMethod() + " returned the id " + resultId + " instead of "
+                        + record.getResultId());
+            }
+        } catch (MetadataException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new MetadataException("Could not replay " + record.getDaoInterface() + "." + record.getMethod()
+                    + " from the journal: " + e);
+        }
+    }
+
+    private static Object createDao(DaoFactory daoFactory, String daoInterface) throws Throwable {
+        for (Method method : DaoFactory.class.getMethods()) {
+            if (method.getParameterTypes().length == 0 && method.getReturnType().getName().equals(daoInterface)) {
+                return invoke(daoFactory, method, null);
+            }
+        }
+        throw new MetadataException("The DaoFactory creates no " + daoInterface);
+    }
+
+    private static Class<?> classFor(String name) throws ClassNotFoundException {
+        if ("long".equals(name)) {
+            return long.class;
+        }
+        if ("int".equals(name)) {
+            return int.class;
+        }
+        return Class.forName(name);
+    }
+
+    private static boolean isMutation(Method method) {
+        String name = method.getName();
+        return name.startsWith("create") || name.startsWith("update") || name.startsWith("delete");
+    }
+
+    private static Object idOf(Object result) {
+        if (result == null) {
+            return null;
+        }
+        try {
+            return result.getClass().getMethod("getId").invoke(result);
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (Exception e) {
+            throw new MetadataException("Could not read the id of " + result + ": " + e);
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private class FactoryHandler implements InvocationHandler {
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = DaoJournal.invoke(daoFactory, method, args);
+            Class<?> returnType = method.getReturnType();
+            if (result == null || !returnType.isInterface() || method.getDeclaringClass() == Object.class) {
+                return result;
+            }
+            return Proxy.newProxyInstance(returnType.getClassLoader(), new Class<?>[] { returnType },
+                    new DaoHandler(result, returnType));
+        }
+    }
+
+    private class DaoHandler implements InvocationHandler {
+
+        private final Object dao;
+        private final Class<?> daoInterface;
+
+        DaoHandler(Object dao, Class<?> daoInterface) {
+            this.dao = dao;
+            this.daoInterface = daoInterface;
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class || !isMutation(method)) {
+                return DaoJournal.invoke(dao, method, args);
+            }
+
+            Class<?>[] parameterTypes = method.getParameterTypes();
+            String[] parameterTypeNames = new String[parameterTypes.length];
+            for (int i = 0; i < parameterTypes.length; i++) {
+                parameterTypeNames[i] = parameterTypes[i].getName();
+            }
+            // the arguments are captured before the DAO can change them
+            byte[] arguments = SerializationUtils.serialize(args);
+
+            Object result;
+            long sequence;
+            synchronized (mutationLock) {
+                result = DaoJournal.invoke(dao, method, args);
+                JournalRecord record = new JournalRecord(daoInterface.getName(), method.getName(),
+                        parameterTypeNames, arguments, idOf(result));
+                sequence = writer.append(SerializationUtils.serialize(record));
+            }
+            writer.awaitDurable(sequence);
+            return result;
+        }
+    }
+
+}
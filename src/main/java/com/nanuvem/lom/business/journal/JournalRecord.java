@@ -0,0 +1,48 @@
+package com.nanuvem.lom.business.journal;
+
+import java.io.Serializable;
+
+/**
+ * One DAO mutation as written to the journal: the DAO interface and method
+ * called, the arguments serialized as they were passed, and the id of the
+ * object it returned, which replay checks against the id it obtains.
+ */
+class JournalRecord implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String daoInterface;
+    private final String method;
+    private final String[] parameterTypes;
+    private final byte[] arguments;
+    private final Object resultId;
+
+    JournalRecord(String daoInterface, String method, String[] parameterTypes, byte[] arguments, Object resultId) {
+        this.daoInterface = daoInterface;
+        this.method = method;
+        this.parameterTypes = parameterTypes;
+        this.arguments = arguments;
+        this.resultId = resultId;
+    }
+
+    String getDaoInterface() {
+        return daoInterface;
+    }
+
+    String getMethod() {
+        return method;
+    }
+
+    String[] getParameterTypes() {
+        return parameterTypes;
+    }
+
+    byte[] getArguments() {
+        return arguments;
+    }
+
+    Object getResultId() {
+        return resultId;
+    }
+
+}
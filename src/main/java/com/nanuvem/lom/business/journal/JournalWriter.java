@@ -0,0 +1,162 @@
+package com.nanuvem.lom.business.journal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+import com.nanuvem.lom.api.MetadataException;
+
+/**
+ * Appends records to the journal file with group commit. Records are
+ * buffered as they are appended, and a single flusher thread writes and
+ * forces to disk everything buffered since its previous pass, so one force
+ * covers all the writers that appended meanwhile. A writer waits for the pass
+ * covering its record before its call returns.
+ * <p>
+ * Each record is framed as its payload length, the CRC32 of the payload and
+ * the payload itself, so a record torn by a crash is detected on replay.
+ */
+class JournalWriter {
+
+    static final int HEADER_SIZE = 8;
+
+    private final FileChannel channel;
+    private final Thread flusher;
+
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private long appendedSequence;
+    private long durableSequence;
+    private IOException failure;
+    private boolean closed;
+
+    JournalWriter(FileChannel channel, String name) {
+        this.channel = channel;
+        this.flusher = new Thread(new Runnable() {
+            public void run() {
+                flushUntilClosed();
+            }
+        }, name);
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * @return the sequence number to wait for with {@link #awaitDurable(long)}
+     */
+    synchronized long append(byte[] payload) {
+        checkWritable();
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        DataOutputStream out = new DataOutputStream(pending);
+        try {
+            out.writeInt(payload.length);
+            out.writeInt((int) crc.getValue());
+            out.write(payload);
+        } catch (IOException e) {
+            throw new MetadataException("Could not append to the journal: " + e.getMessage());
+        }
+        appendedSequence++;
+        notifyAll();
+        return appendedSequence;
+    }
+
+    synchronized void awaitDurable(long sequence) {
+        boolean interrupted = false;
+        try {
+            while (durableSequence < sequence && failure == null) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (durableSequence < sequence) {
+            throw new MetadataException("Could not write the journal: " + failure.getMessage());
+        }
+    }
+
+    /**
+     * Writes what is still buffered, stops the flusher and closes the file
+     */
+    void close() throws IOException {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        boolean interrupted = false;
+        while (flusher.isAlive()) {
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    private void checkWritable() {
+        if (closed) {
+            throw new MetadataException("The journal is closed");
+        }
+        if (failure != null) {
+            throw new MetadataException("Could not write the journal: " + failure.getMessage());
+        }
+    }
+
+    private void flushUntilClosed() {
+        while (true) {
+            byte[] batch;
+            long batchSequence;
+            synchronized (this) {
+                while (pending.size() == 0 && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        // the flusher only stops when the journal is closed
+                    }
+                }
+                if (pending.size() == 0) {
+                    return;
+                }
+                batch = pending.toByteArray();
+                batchSequence = appendedSequence;
+                pending = new ByteArrayOutputStream();
+            }
+
+            IOException batchFailure = null;
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(batch);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                batchFailure = e;
+            }
+
+            synchronized (this) {
+                if (batchFailure != null) {
+                    failure = batchFailure;
+                } else {
+                    durableSequence = batchSequence;
+                }
+                notifyAll();
+                if (failure != null) {
+                    return;
+                }
+            }
+        }
+    }
+
+}
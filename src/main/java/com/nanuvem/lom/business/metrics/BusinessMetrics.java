@@ -0,0 +1,194 @@
+package com.nanuvem.lom.business.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.nanuvem.lom.api.MetadataException;
+
+/**
+ * Default {@link MetricsSink}: keeps the measurements in memory, per facade
+ * operation and per attribute type, and exposes them through JMX once
+ * {@link #register(String)} is called.
+ */
+public class BusinessMetrics implements MetricsSink, BusinessMetricsMBean {
+
+    public static final String DOMAIN = "com.nanuvem.lom.business";
+
+    private final ConcurrentMap<String, OperationStatistics> operations =
+            new ConcurrentHashMap<String, OperationStatistics>();
+    private final ConcurrentMap<String, LatencyHistogram> validations =
+            new ConcurrentHashMap<String, LatencyHistogram>();
+    private volatile long startedAt = System.nanoTime();
+
+    public void operationCompleted(String operation, long elapsedNanos, boolean failed) {
+        statisticsFor(operation).recordCompletion(elapsedNanos, failed);
+    }
+
+    public void daoCalled(String operation, String daoMethod) {
+        statisticsFor(operation).recordDaoCall(daoMethod);
+    }
+
+    public void objectsCloned(String operation, long elapsedNanos, int copiedObjects) {
+        statisticsFor(operation).recordClone(elapsedNanos, copiedObjects);
+    }
+
+    public void valueValidated(String attributeType, long elapsedNanos) {
+        LatencyHistogram histogram = validations.get(attributeType);
+        if (histogram == null) {
+            LatencyHistogram created = new LatencyHistogram();
+            histogram = validations.putIfAbsent(attributeType, created);
+            if (histogram == null) {
+                histogram = created;
+            }
+        }
+        histogram.record(elapsedNanos);
+    }
+
+    private OperationStatistics statisticsFor(String operation) {
+        OperationStatistics statistics = operations.get(operation);
+        if (statistics == null) {
+            OperationStatistics created = new OperationStatistics();
+            statistics = operations.putIfAbsent(operation, created);
+            if (statistics == null) {
+                statistics = created;
+            }
+        }
+        return statistics;
+    }
+
+    /**
+     * @return the statistics of the operation, or null if it never ran
+     */
+    public OperationStatistics getOperationStatistics(String operation) {
+        return operations.get(operation);
+    }
+
+    /**
+     * @return the validation latencies of the attribute type, or null if no
+     *         value of that type was validated
+     */
+    public LatencyHistogram getValidationLatency(String attributeType) {
+        return validations.get(attributeType);
+    }
+
+    public String[] getOperationNames() {
+        return new TreeSet<String>(operations.keySet()).toArray(new String[0]);
+    }
+
+    public long getInvocationCount(String operation) {
+        OperationStatistics statistics = operations.get(operation);
+        return statistics != null ? statistics.getInvocationCount() : 0;
+    }
+
+    public long getFailureCount(String operation) {
+        OperationStatistics statistics = operations.get(operation);
+        return statistics != null ? statistics.getFailureCount() : 0;
+    }
+
+    public double getThroughputPerSecond(String operation) {
+        double elapsedSeconds = (System.nanoTime() - startedAt) / 1e9;
+        return elapsedSeconds > 0 ? getInvocationCount(operation) / elapsedSeconds : 0;
+    }
+
+    public double getMeanLatencyMicros(String operation) {
+        OperationStatistics statistics = operations.get(operation);
+        return statistics != null ? statistics.getLatency().getMeanNanos() / 1000 : 0;
+    }
+
+    public long getMaximumLatencyMicros(String operation) {
+        OperationStatistics statistics = operations.get(operation);
+        return statistics != null ? statistics.getLatency().getMaximumNanos() / 1000 : 0;
+    }
+
+    public long getLatencyPercentileMicros(String operation, double percentile) {
+        OperationStatistics statistics = operations.get(operation);
+        return statistics != null ? statistics.getLatency().getPercentileNanos(percentile) / 1000 : 0;
+    }
+
+    public String[] getDaoCallCounts(String operation) {
+        OperationStatistics statistics = operations.get(operation);
+        if (statistics == null) {
+            return new String[0];
+        }
+        Map<String, Long> counts = statistics.getDaoCallCounts();
+        String[] entries = new String[counts.size()];
+        int i = 0;
+        for (Map.Entry<String, Long> entry : counts.entrySet()) {
+            entries[i++] = entry.getKey() + "=" + entry.getValue();
+        }
+        return entries;
+    }
+
+    public long getCloneCount(String operation) {
+        OperationStatistics statistics = operations.get(operation);
+        return statistics != null ? statistics.getCloneLatency().getCount() : 0;
+    }
+
+    public double getTotalCloneMicros(String operation) {
+        OperationStatistics statistics = operations.get(operation);
+        return statistics != null ? statistics.getCloneLatency().getTotalNanos() / 1000.0 : 0;
+    }
+
+    public long getClonedObjectCount(String operation) {
+        OperationStatistics statistics = operations.get(operation);
+        return statistics != null ? statistics.getClonedObjectCount() : 0;
+    }
+
+    public String[] getValidatedAttributeTypes() {
+        return new TreeSet<String>(validations.keySet()).toArray(new String[0]);
+    }
+
+    public long getValidationCount(String attributeType) {
+        LatencyHistogram histogram = validations.get(attributeType);
+        return histogram != null ? histogram.getCount() : 0;
+    }
+
+    public double getMeanValidationMicros(String attributeType) {
+        LatencyHistogram histogram = validations.get(attributeType);
+        return histogram != null ? histogram.getMeanNanos() / 1000 : 0;
+    }
+
+    public void reset() {
+        operations.clear();
+        validations.clear();
+        startedAt = System.nanoTime();
+    }
+
+    /**
+     * Registers these metrics in the platform MBean server as
+     * "com.nanuvem.lom.business:type=BusinessMetrics,name=&lt;name&gt;"
+     */
+    public ObjectName register(String name) {
+        try {
+            ObjectName objectName = objectName(name);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            return objectName;
+        } catch (JMException e) {
+            throw new MetadataException("Could not register the business metrics as " + name + ": " + e.getMessage());
+        }
+    }
+
+    public void unregister(String name) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = objectName(name);
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            throw new MetadataException("Could not unregister the business metrics " + name + ": " + e.getMessage());
+        }
+    }
+
+    private static ObjectName objectName(String name) throws JMException {
+        return new ObjectName(DOMAIN + ":type=BusinessMetrics,name=" + ObjectName.quote(name));
+    }
+
+}
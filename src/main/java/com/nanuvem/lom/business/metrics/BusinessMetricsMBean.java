@@ -0,0 +1,43 @@
+package com.nanuvem.lom.business.metrics;
+
+/**
+ * JMX view of {@link BusinessMetrics}. Latencies are in microseconds and
+ * operations are named after the facade methods, as in "createEntity".
+ */
+public interface BusinessMetricsMBean {
+
+    String[] getOperationNames();
+
+    long getInvocationCount(String operation);
+
+    long getFailureCount(String operation);
+
+    double getThroughputPerSecond(String operation);
+
+    double getMeanLatencyMicros(String operation);
+
+    long getMaximumLatencyMicros(String operation);
+
+    long getLatencyPercentileMicros(String operation, double percentile);
+
+    /**
+     * DAO calls made by the operation, one "EntityDao.findById=12" entry per
+     * DAO method
+     */
+    String[] getDaoCallCounts(String operation);
+
+    long getCloneCount(String operation);
+
+    double getTotalCloneMicros(String operation);
+
+    long getClonedObjectCount(String operation);
+
+    String[] getValidatedAttributeTypes();
+
+    long getValidationCount(String attributeType);
+
+    double getMeanValidationMicros(String attributeType);
+
+    void reset();
+
+}
@@ -0,0 +1,83 @@
+package com.nanuvem.lom.business.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with one bucket per power of two nanoseconds.
+ * Percentiles are therefore accurate to within a factor of two, which is
+ * enough to tell a hot spot from noise while keeping recording a handful of
+ * atomic increments.
+ */
+public class LatencyHistogram {
+
+    private static final int BUCKETS = 64;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maximumNanos = new AtomicLong();
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        counts.incrementAndGet(bucketOf(nanos));
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+
+        long maximum = maximumNanos.get();
+        while (nanos > maximum && !maximumNanos.compareAndSet(maximum, nanos)) {
+            maximum = maximumNanos.get();
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.get();
+    }
+
+    public long getMaximumNanos() {
+        return maximumNanos.get();
+    }
+
+    public double getMeanNanos() {
+        long currentCount = count.get();
+        return currentCount == 0 ? 0 : (double) totalNanos.get() / currentCount;
+    }
+
+    /**
+     * Upper bound of the bucket holding the given percentile
+     * 
+     * @param percentile
+     *            between 0 and 100
+     */
+    public long getPercentileNanos(double percentile) {
+        long currentCount = count.get();
+        if (currentCount == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(currentCount * Math.min(Math.max(percentile, 0), 100) / 100);
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts.get(bucket);
+            if (seen >= rank && seen > 0) {
+                return Math.min(upperBoundOf(bucket), maximumNanos.get());
+            }
+        }
+        return maximumNanos.get();
+    }
+
+    private static int bucketOf(long nanos) {
+        return Math.min(BUCKETS - Long.numberOfLeadingZeros(nanos), BUCKETS - 1);
+    }
+
+    private static long upperBoundOf(int bucket) {
+        return bucket >= BUCKETS - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+
+}
@@ -0,0 +1,74 @@
+package com.nanuvem.lom.business.metrics;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import com.nanuvem.lom.api.dao.DaoFactory;
+
+/**
+ * Wraps a DaoFactory so that every DAO it creates reports its calls to the
+ * {@link OperationTimer} running on the calling thread. DAOs are wrapped with
+ * dynamic proxies over their interfaces, so new DAO methods are counted
+ * without changes here.
+ */
+public class MeteredDaoFactory {
+
+    private MeteredDaoFactory() {
+    }
+
+    public static DaoFactory meter(DaoFactory daoFactory) {
+        return (DaoFactory) Proxy.newProxyInstance(DaoFactory.class.getClassLoader(),
+                new Class<?>[] { DaoFactory.class }, new FactoryHandler(daoFactory));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static class FactoryHandler implements InvocationHandler {
+
+        private final DaoFactory daoFactory;
+
+        FactoryHandler(DaoFactory daoFactory) {
+            this.daoFactory = daoFactory;
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = MeteredDaoFactory.invoke(daoFactory, method, args);
+            Class<?> returnType = method.getReturnType();
+            if (result == null || !returnType.isInterface() || method.getDeclaringClass() == Object.class) {
+                return result;
+            }
+            return Proxy.newProxyInstance(returnType.getClassLoader(), new Class<?>[] { returnType },
+                    new DaoHandler(result, returnType.getSimpleName()));
+        }
+    }
+
+    private static class DaoHandler implements InvocationHandler {
+
+        private final Object dao;
+        private final String daoName;
+
+        DaoHandler(Object dao, String daoName) {
+            this.dao = dao;
+            this.daoName = daoName;
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() != Object.class) {
+                OperationTimer timer = OperationTimer.current();
+                if (timer != null) {
+                    timer.recordDaoCall(daoName + "." + method.getName());
+                }
+            }
+            return MeteredDaoFactory.invoke(dao, method, args);
+        }
+    }
+
+}
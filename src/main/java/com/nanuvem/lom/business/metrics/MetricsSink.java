@@ -0,0 +1,37 @@
+package com.nanuvem.lom.business.metrics;
+
+/**
+ * Receives the measurements taken by the business layer. Implementations are
+ * called from every thread using the facade and must be thread safe and
+ * cheap: they run inline with the measured operation.
+ */
+public interface MetricsSink {
+
+    /**
+     * Called once for every facade operation, after it returns or fails
+     */
+    void operationCompleted(String operation, long elapsedNanos, boolean failed);
+
+    /**
+     * Called for every DAO method invoked while an operation is running
+     * 
+     * @param daoMethod
+     *            the DAO interface and method, as in "EntityDao.findById"
+     */
+    void daoCalled(String operation, String daoMethod);
+
+    /**
+     * Called for every object graph copied while an operation is running
+     * 
+     * @param copiedObjects
+     *            number of objects created by the copy
+     */
+    void objectsCloned(String operation, long elapsedNanos, int copiedObjects);
+
+    /**
+     * Called for every attribute value validated, with the name of the
+     * attribute type whose definition validated it
+     */
+    void valueValidated(String attributeType, long elapsedNanos);
+
+}
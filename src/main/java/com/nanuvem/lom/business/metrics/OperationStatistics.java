@@ -0,0 +1,76 @@
+package com.nanuvem.lom.business.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * What BusinessMetrics recorded for one facade operation
+ */
+public class OperationStatistics {
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicLong failures = new AtomicLong();
+    private final ConcurrentMap<String, AtomicLong> daoCalls = new ConcurrentHashMap<String, AtomicLong>();
+    private final LatencyHistogram cloneLatency = new LatencyHistogram();
+    private final AtomicLong clonedObjects = new AtomicLong();
+
+    void recordCompletion(long elapsedNanos, boolean failed) {
+        latency.record(elapsedNanos);
+        if (failed) {
+            failures.incrementAndGet();
+        }
+    }
+
+    void recordDaoCall(String daoMethod) {
+        AtomicLong calls = daoCalls.get(daoMethod);
+        if (calls == null) {
+            AtomicLong created = new AtomicLong();
+            calls = daoCalls.putIfAbsent(daoMethod, created);
+            if (calls == null) {
+                calls = created;
+            }
+        }
+        calls.incrementAndGet();
+    }
+
+    void recordClone(long elapsedNanos, int copiedObjects) {
+        cloneLatency.record(elapsedNanos);
+        clonedObjects.addAndGet(copiedObjects);
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public long getInvocationCount() {
+        return latency.getCount();
+    }
+
+    public long getFailureCount() {
+        return failures.get();
+    }
+
+    /**
+     * Number of calls made to each DAO method, keyed as in
+     * "EntityDao.findById"
+     */
+    public Map<String, Long> getDaoCallCounts() {
+        Map<String, Long> counts = new TreeMap<String, Long>();
+        for (Map.Entry<String, AtomicLong> entry : daoCalls.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().get());
+        }
+        return counts;
+    }
+
+    public LatencyHistogram getCloneLatency() {
+        return cloneLatency;
+    }
+
+    public long getClonedObjectCount() {
+        return clonedObjects.get();
+    }
+
+}
@@ -0,0 +1,91 @@
+package com.nanuvem.lom.business.metrics;
+
+/**
+ * Measures one facade operation and attributes to it the DAO calls, copies
+ * and validations made by the same thread until it is stopped. Used as
+ * 
+ * <pre>
+ * OperationTimer timer = OperationTimer.start(sink, &quot;createEntity&quot;);
+ * try {
+ *     return timer.succeeded(service.create(entity));
+ * } finally {
+ *     timer.stop();
+ * }
+ * </pre>
+ * 
+ * An operation not marked as succeeded when stopped is recorded as failed.
+ */
+public class OperationTimer {
+
+    private static final ThreadLocal<OperationTimer> CURRENT = new ThreadLocal<OperationTimer>();
+
+    private static final OperationTimer DISABLED = new OperationTimer(null, null, null);
+
+    private final MetricsSink sink;
+    private final String operation;
+    private final OperationTimer previous;
+    private final long startedAt;
+    private boolean succeeded;
+
+    private OperationTimer(MetricsSink sink, String operation, OperationTimer previous) {
+        this.sink = sink;
+        this.operation = operation;
+        this.previous = previous;
+        this.startedAt = sink != null ? System.nanoTime() : 0;
+    }
+
+    /**
+     * @param sink
+     *            where the measurements go, or null to measure nothing
+     */
+    public static OperationTimer start(MetricsSink sink, String operation) {
+        if (sink == null) {
+            return DISABLED;
+        }
+        OperationTimer timer = new OperationTimer(sink, operation, CURRENT.get());
+        CURRENT.set(timer);
+        return timer;
+    }
+
+    /**
+     * @return the operation running on this thread, or null if none is being
+     *         measured
+     */
+    public static OperationTimer current() {
+        return CURRENT.get();
+    }
+
+    public <T> T succeeded(T result) {
+        succeeded = true;
+        return result;
+    }
+
+    public void succeeded() {
+        succeeded = true;
+    }
+
+    public void stop() {
+        if (sink == null) {
+            return;
+        }
+        if (previous != null) {
+            CURRENT.set(previous);
+        } else {
+            CURRENT.remove();
+        }
+        sink.operationCompleted(operation, System.nanoTime() - startedAt, !succeeded);
+    }
+
+    public void recordDaoCall(String daoMethod) {
+        sink.daoCalled(operation, daoMethod);
+    }
+
+    public void recordClone(long elapsedNanos, int copiedObjects) {
+        sink.objectsCloned(operation, elapsedNanos, copiedObjects);
+    }
+
+    public void recordValidation(String attributeType, long elapsedNanos) {
+        sink.valueValidated(attributeType, elapsedNanos);
+    }
+
+}
@@ -1,32 +1,26 @@
 package com.nanuvem.lom.business.validator;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import com.nanuvem.lom.business.validator.configuration.AttributeValidator;
 import com.nanuvem.lom.business.validator.configuration.ConfigurationFieldValidator;
 
 public class MaximumRepeatAttributeConfigurationValidator implements ValueValidator<Integer> {
 
-    public void validate(List<ValidationError> errors, String attribute, String value, Integer maxRepeat,
-            boolean defaultValue) {
+    private PasswordAnalyzer analyzer;
+
+    public MaximumRepeatAttributeConfigurationValidator() {
+        this(new PasswordAnalyzer());
+    }
 
-        Map<String, Integer> mapCounter = new HashMap<String, Integer>();
-        int characterCounter = 0;
+    public MaximumRepeatAttributeConfigurationValidator(PasswordAnalyzer analyzer) {
+        this.analyzer = analyzer;
+    }
 
-        for (int i = 0; i < value.toCharArray().length; i++) {
-            Integer count = mapCounter.get(String.valueOf(value.toCharArray()[i]));
-            if (count == null) {
-                count = new Integer(-1);
-            }
-            count++;
-            mapCounter.put(String.valueOf(value.toCharArray()[i]), count);
+    public void validate(List<ValidationError> errors, String attribute, String value, Integer maxRepeat,
+            boolean defaultValue) {
 
-            if (characterCounter < count) {
-                characterCounter = count;
-            }
-        }
+        int characterCounter = analyzer.analyze(value).getMaximumRepeat();
 
         if (characterCounter > maxRepeat) {
             String messagePlural = characterCounter > 1 ? " more than " + (maxRepeat + 1) + " " : " ";
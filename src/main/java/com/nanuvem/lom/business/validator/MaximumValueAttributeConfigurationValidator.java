@@ -5,18 +5,31 @@ import java.util.List;
 import com.nanuvem.lom.business.validator.configuration.AttributeValidator;
 import com.nanuvem.lom.business.validator.configuration.ConfigurationFieldValidator;
 
-public class MaximumValueAttributeConfigurationValidator implements ValueValidator<Integer> {
+public class MaximumValueAttributeConfigurationValidator implements NumericValueValidator {
 
     public void validate(List<ValidationError> errors, String attribute, String value, Integer maxValue,
             boolean defaultValue) {
 
-        if (value == null || Integer.parseInt(value) > maxValue) {
-            String message = (defaultValue) ? "the default value is greater than maxvalue" : "The value for '"
-                    + attribute + "' must be smaller or equal to " + maxValue;
-            ValidationError.addError(errors, message);
+        if (value == null) {
+            addError(errors, attribute, maxValue, defaultValue);
+        } else {
+            validate(errors, attribute, Integer.parseInt(value), maxValue, defaultValue);
         }
     }
 
+    public void validate(List<ValidationError> errors, String attribute, int value, Integer maxValue,
+            boolean defaultValue) {
+        if (value > maxValue) {
+            addError(errors, attribute, maxValue, defaultValue);
+        }
+    }
+
+    private void addError(List<ValidationError> errors, String attribute, Integer maxValue, boolean defaultValue) {
+        String message = (defaultValue) ? "the default value is greater than maxvalue" : "The value for '"
+                + attribute + "' must be smaller or equal to " + maxValue;
+        ValidationError.addError(errors, message);
+    }
+
     public AttributeValidator createFieldValidator(String field) {
         return new ConfigurationFieldValidator(field, Integer.class);
     }
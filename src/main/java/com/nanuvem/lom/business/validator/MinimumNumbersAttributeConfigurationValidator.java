@@ -7,15 +7,20 @@ import com.nanuvem.lom.business.validator.configuration.ConfigurationFieldValida
 
 public class MinimumNumbersAttributeConfigurationValidator implements ValueValidator<Integer> {
 
+    private PasswordAnalyzer analyzer;
+
+    public MinimumNumbersAttributeConfigurationValidator() {
+        this(new PasswordAnalyzer());
+    }
+
+    public MinimumNumbersAttributeConfigurationValidator(PasswordAnalyzer analyzer) {
+        this.analyzer = analyzer;
+    }
+
     public void validate(List<ValidationError> errors, String attribute, String value, Integer minNumbers,
             boolean defaultValue) {
 
-        int numericCharacterCounter = 0;
-        for (int i = 0; i < value.length(); i++) {
-            if (Character.isDigit(value.toCharArray()[i])) {
-                numericCharacterCounter++;
-            }
-        }
+        int numericCharacterCounter = analyzer.analyze(value).getDigitCount();
         if (numericCharacterCounter < minNumbers) {
             String messagePlural = minNumbers > 1 ? "s" : "";
 
@@ -7,15 +7,20 @@ import com.nanuvem.lom.business.validator.configuration.ConfigurationFieldValida
 
 public class MinimumSymbolsAttributeConfigurationValidator implements ValueValidator<Integer> {
 
+    private PasswordAnalyzer analyzer;
+
+    public MinimumSymbolsAttributeConfigurationValidator() {
+        this(new PasswordAnalyzer());
+    }
+
+    public MinimumSymbolsAttributeConfigurationValidator(PasswordAnalyzer analyzer) {
+        this.analyzer = analyzer;
+    }
+
     public void validate(List<ValidationError> errors, String attribute, String value, Integer minSymbols,
             boolean defaultValue) {
 
-        int numericSymbolCounter = 0;
-        for (int i = 0; i < value.length(); i++) {
-            if (!Character.isLetterOrDigit(value.toCharArray()[i])) {
-                numericSymbolCounter++;
-            }
-        }
+        int numericSymbolCounter = analyzer.analyze(value).getSymbolCount();
 
         if (numericSymbolCounter < minSymbols) {
             String messagePlural = minSymbols > 1 ? "s" : "";
@@ -7,15 +7,20 @@ import com.nanuvem.lom.business.validator.configuration.ConfigurationFieldValida
 
 public class MinimumUppersAttributeConfigurationValidator implements ValueValidator<Integer> {
 
+    private PasswordAnalyzer analyzer;
+
+    public MinimumUppersAttributeConfigurationValidator() {
+        this(new PasswordAnalyzer());
+    }
+
+    public MinimumUppersAttributeConfigurationValidator(PasswordAnalyzer analyzer) {
+        this.analyzer = analyzer;
+    }
+
     public void validate(List<ValidationError> errors, String attribute, String value, Integer minUppers,
             boolean defaultValue) {
 
-        int uppercaseCharacterCounter = 0;
-        for (int i = 0; i < value.length(); i++) {
-            if (Character.isUpperCase(value.toCharArray()[i])) {
-                uppercaseCharacterCounter++;
-            }
-        }
+        int uppercaseCharacterCounter = analyzer.analyze(value).getUppercaseCount();
         if (uppercaseCharacterCounter < minUppers) {
             String messagePlural = minUppers > 1 ? "s" : "";
 
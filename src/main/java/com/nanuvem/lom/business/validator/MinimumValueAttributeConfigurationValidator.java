@@ -5,18 +5,29 @@ import java.util.List;
 import com.nanuvem.lom.business.validator.configuration.AttributeValidator;
 import com.nanuvem.lom.business.validator.configuration.ConfigurationFieldValidator;
 
-public class MinimumValueAttributeConfigurationValidator implements ValueValidator<Integer> {
+public class MinimumValueAttributeConfigurationValidator implements NumericValueValidator {
 
     public void validate(List<ValidationError> errors, String attribute, String value, Integer minValue,
             boolean defaultValue) {
 
-        if (value == null || Integer.parseInt(value) < minValue) {
+        if (value == null) {
+            addError(errors, attribute, minValue, defaultValue);
+        } else {
+            validate(errors, attribute, Integer.parseInt(value), minValue, defaultValue);
+        }
+    }
 
-            String message = (defaultValue) ? "the default value is smaller than minvalue" : "The value for '"
-                    + attribute + "' must be greater or equal to " + minValue;
-            ValidationError.addError(errors, message);
+    public void validate(List<ValidationError> errors, String attribute, int value, Integer minValue,
+            boolean defaultValue) {
+        if (value < minValue) {
+            addError(errors, attribute, minValue, defaultValue);
         }
+    }
 
+    private void addError(List<ValidationError> errors, String attribute, Integer minValue, boolean defaultValue) {
+        String message = (defaultValue) ? "the default value is smaller than minvalue" : "The value for '"
+                + attribute + "' must be greater or equal to " + minValue;
+        ValidationError.addError(errors, message);
     }
 
     public AttributeValidator createFieldValidator(String field) {
@@ -0,0 +1,14 @@
+package com.nanuvem.lom.business.validator;
+
+import java.util.List;
+
+/**
+ * ValueValidator that can also check a value already parsed to an int, so
+ * the value is not parsed again for every numeric rule.
+ */
+public interface NumericValueValidator extends ValueValidator<Integer> {
+
+    void validate(List<ValidationError> errors, String attribute, int value, Integer configurationValue,
+            boolean defaultValue);
+
+}
@@ -0,0 +1,21 @@
+package com.nanuvem.lom.business.validator;
+
+/**
+ * Shares one {@link PasswordStatistics} between the password validators of an
+ * attribute: the statistics of the last analyzed value are kept, so validating
+ * a value against several constraints scans it only once.
+ */
+public class PasswordAnalyzer {
+
+    private volatile PasswordStatistics lastStatistics;
+
+    public PasswordStatistics analyze(String value) {
+        PasswordStatistics statistics = lastStatistics;
+        if (statistics == null || statistics.getValue() != value) {
+            statistics = new PasswordStatistics(value);
+            lastStatistics = statistics;
+        }
+        return statistics;
+    }
+
+}
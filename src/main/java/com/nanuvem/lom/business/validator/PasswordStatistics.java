@@ -0,0 +1,89 @@
+package com.nanuvem.lom.business.validator;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Character class statistics of a password value, computed in a single pass
+ * over its characters.
+ */
+public class PasswordStatistics {
+
+    private static final int ASCII_CHARACTERS = 128;
+
+    private final String value;
+    private int uppercaseCount;
+    private int digitCount;
+    private int symbolCount;
+    private int maximumRepeat;
+
+    public PasswordStatistics(String value) {
+        this.value = value;
+        if (value != null) {
+            analyze(value);
+        }
+    }
+
+    private void analyze(String value) {
+        int[] asciiOccurrences = new int[ASCII_CHARACTERS];
+        Map<Character, Integer> otherOccurrences = null;
+        int maximumOccurrences = 0;
+
+        for (int i = 0; i < value.length(); i++) {
+            char character = value.charAt(i);
+
+            if (Character.isUpperCase(character)) {
+                uppercaseCount++;
+            }
+            if (Character.isDigit(character)) {
+                digitCount++;
+            }
+            if (!Character.isLetterOrDigit(character)) {
+                symbolCount++;
+            }
+
+            int occurrences;
+            if (character < ASCII_CHARACTERS) {
+                occurrences = ++asciiOccurrences[character];
+            } else {
+                if (otherOccurrences == null) {
+                    otherOccurrences = new HashMap<Character, Integer>();
+                }
+                Integer previous = otherOccurrences.get(character);
+                occurrences = previous == null ? 1 : previous + 1;
+                otherOccurrences.put(character, occurrences);
+            }
+
+            if (occurrences > maximumOccurrences) {
+                maximumOccurrences = occurrences;
+            }
+        }
+
+        maximumRepeat = Math.max(0, maximumOccurrences - 1);
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public int getUppercaseCount() {
+        return uppercaseCount;
+    }
+
+    public int getDigitCount() {
+        return digitCount;
+    }
+
+    public int getSymbolCount() {
+        return symbolCount;
+    }
+
+    /**
+     * Number of times the most frequent character appears beyond its first
+     * occurrence
+     */
+    public int getMaximumRepeat() {
+        return maximumRepeat;
+    }
+
+}
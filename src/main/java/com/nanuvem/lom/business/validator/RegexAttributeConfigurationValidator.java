@@ -1,23 +1,131 @@
 package com.nanuvem.lom.business.validator;
 
 import java.util.List;
+import java.util.regex.Pattern;
 
 import com.nanuvem.lom.business.validator.configuration.AttributeValidator;
 import com.nanuvem.lom.business.validator.configuration.ConfigurationFieldValidator;
 
+/**
+ * Matches values against the regex of an attribute. Every
+ * AttributeValidationPlan builds its own validators, so the validator keeps
+ * the pattern compiled for the regex of its attribute and reuses it for every
+ * value, without any lock. A configuration change rebuilds the plan, and with
+ * it the validator.
+ */
 public class RegexAttributeConfigurationValidator implements ValueValidator<String> {
 
+    /**
+     * Matches without a step budget, the default.
+     */
+    public static final long NO_MATCH_STEP_BUDGET = 0;
+
+    private final long matchStepBudget;
+    private volatile Pattern pattern;
+
+    public RegexAttributeConfigurationValidator() {
+        this(NO_MATCH_STEP_BUDGET);
+    }
+
+    /**
+     * @param matchStepBudget
+     *            maximum number of characters the regex engine may read from
+     *            a value before the match is abandoned, or zero for no limit.
+     *            Linear patterns read each character a few times, so a budget
+     *            well above the longest expected value is only reached by
+     *            catastrophic backtracking.
+     */
+    public RegexAttributeConfigurationValidator(long matchStepBudget) {
+        this.matchStepBudget = matchStepBudget;
+    }
+
     public void validate(List<ValidationError> errors, String attribute, String value, String regexValue,
             boolean defaultValue) {
 
-        if (!value.matches(regexValue)) {
+        boolean matches;
+        try {
+            matches = matches(compile(regexValue), value);
+        } catch (MatchStepBudgetExceededException e) {
+            String message = (defaultValue) ? "the default value took too long to match the regex configuration"
+                    : "The value for the '" + attribute
+                            + "' attribute took too long to match the defined regular expression";
+            ValidationError.addError(errors, message);
+            return;
+        }
+
+        if (!matches) {
             String message = (defaultValue) ? "the default value does not match regex configuration"
                     : "The value for the '" + attribute + "' attribute does not meet the defined regular expression";
             ValidationError.addError(errors, message);
         }
     }
 
+    private boolean matches(Pattern pattern, String value) {
+        if (matchStepBudget <= 0) {
+            return pattern.matcher(value).matches();
+        }
+        return pattern.matcher(new BoundedCharSequence(value, new long[] { matchStepBudget })).matches();
+    }
+
+    /**
+     * Racing threads may both compile the regex of a new validator; either
+     * pattern is kept, they are equivalent.
+     */
+    private Pattern compile(String regex) {
+        Pattern compiled = pattern;
+        if (compiled == null || !compiled.pattern().equals(regex)) {
+            compiled = Pattern.compile(regex);
+            pattern = compiled;
+        }
+        return compiled;
+    }
+
     public AttributeValidator createFieldValidator(String field) {
         return new ConfigurationFieldValidator(field, String.class);
     }
+
+    /**
+     * Charges every character read by the regex engine against a shared
+     * budget, aborting the match once it is spent.
+     */
+    private static class BoundedCharSequence implements CharSequence {
+
+        private final CharSequence value;
+        private final long[] remainingSteps;
+
+        BoundedCharSequence(CharSequence value, long[] remainingSteps) {
+            this.value = value;
+            this.remainingSteps = remainingSteps;
+        }
+
+        public char charAt(int index) {
+            if (--remainingSteps[0] < 0) {
+                throw new MatchStepBudgetExceededException();
+            }
+            return value.charAt(index);
+        }
+
+        public int length() {
+            return value.length();
+        }
+
+        public CharSequence subSequence(int start, int end) {
+            return new BoundedCharSequence(value.subSequence(start, end), remainingSteps);
+        }
+
+        @Override
+        public String toString() {
+            return value.toString();
+        }
+    }
+
+    private static class MatchStepBudgetExceededException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
 }
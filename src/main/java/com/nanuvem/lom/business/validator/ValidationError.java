@@ -5,15 +5,52 @@ import java.util.List;
 public class ValidationError {
 
     private String message;
+    private String attribute;
+    private String rule;
+    private String value;
 
     public ValidationError(String message) {
         this.message = message;
     }
 
+    public ValidationError(String message, String attribute, String rule, String value) {
+        this.message = message;
+        this.attribute = attribute;
+        this.rule = rule;
+        this.value = value;
+    }
+
     public String getMessage() {
         return message;
     }
 
+    /**
+     * @return the name of the attribute whose value was rejected, or null for
+     *         an error on an attribute configuration
+     */
+    public String getAttribute() {
+        return attribute;
+    }
+
+    /**
+     * @return the configuration rule that rejected the value, such as
+     *         "minlength" or "type"
+     */
+    public String getRule() {
+        return rule;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * @return a copy of this error reporting where it was raised
+     */
+    public ValidationError locate(String attribute, String rule, String value) {
+        return new ValidationError(message, attribute, rule, value);
+    }
+
     public static void addError(List<ValidationError> errors, String message) {
         ValidationError validationError = new ValidationError(message);
         errors.add(validationError);
@@ -41,4 +41,8 @@ public class AttributeTypeValidator implements AttributeValidator {
         }
     }
 
+    public String getRule() {
+        return "type";
+    }
+
 }
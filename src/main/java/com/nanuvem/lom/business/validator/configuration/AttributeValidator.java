@@ -12,4 +12,10 @@ public interface AttributeValidator {
     void validateDefault(List<ValidationError> errors, JsonNode configuration);
 
     void validateValue(List<ValidationError> errors, JsonNode configuration, AttributeValue value);
+
+    /**
+     * @return the configuration rule this validator enforces, reported with
+     *         the errors it raises
+     */
+    String getRule();
 }
\ No newline at end of file
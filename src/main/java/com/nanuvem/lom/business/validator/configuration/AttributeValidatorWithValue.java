@@ -64,4 +64,8 @@ public class AttributeValidatorWithValue<T> implements AttributeValidator {
 
     }
 
+    public String getRule() {
+        return field;
+    }
+
 }
\ No newline at end of file
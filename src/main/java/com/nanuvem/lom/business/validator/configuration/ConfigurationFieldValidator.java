@@ -42,4 +42,8 @@ public class ConfigurationFieldValidator implements AttributeValidator {
         // Do not need to validate value
     }
 
+    public String getRule() {
+        return field;
+    }
+
 }
@@ -26,4 +26,8 @@ public class MandatoryValidator implements AttributeValidator {
         }
     }
 
+    public String getRule() {
+        return Attribute.MANDATORY_CONFIGURATION_NAME;
+    }
+
 }
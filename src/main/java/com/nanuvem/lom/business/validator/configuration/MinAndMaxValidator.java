@@ -35,4 +35,8 @@ public class MinAndMaxValidator implements AttributeValidator {
         // Do not need to validate value
     }
 
+    public String getRule() {
+        return minField + "/" + maxField;
+    }
+
 }
@@ -0,0 +1,17 @@
+package com.nanuvem.lom.business.validator.configuration;
+
+import java.util.List;
+
+import org.codehaus.jackson.JsonNode;
+
+import com.nanuvem.lom.api.AttributeValue;
+import com.nanuvem.lom.business.validator.ValidationError;
+
+/**
+ * AttributeValidator that accepts the value already parsed to an int
+ */
+public interface NumericAttributeValidator extends AttributeValidator {
+
+    void validateValue(List<ValidationError> errors, JsonNode configuration, AttributeValue value, int parsedValue);
+
+}
@@ -0,0 +1,32 @@
+package com.nanuvem.lom.business.validator.configuration;
+
+import java.util.List;
+
+import org.codehaus.jackson.JsonNode;
+
+import com.nanuvem.lom.api.AttributeValue;
+import com.nanuvem.lom.business.validator.NumericValueValidator;
+import com.nanuvem.lom.business.validator.ValidationError;
+
+public class NumericAttributeValidatorWithValue extends AttributeValidatorWithValue<Integer> implements
+        NumericAttributeValidator {
+
+    private NumericValueValidator numericValueValidator;
+
+    public NumericAttributeValidatorWithValue(String field, String defaultField,
+            NumericValueValidator valueValidator) {
+        super(field, defaultField, valueValidator, Integer.class);
+        this.numericValueValidator = valueValidator;
+    }
+
+    public void validateValue(List<ValidationError> errors, JsonNode configuration, AttributeValue value,
+            int parsedValue) {
+        if (configuration != null && configuration.has(field)) {
+
+            Integer configurationValue = getConfigurationValue(configuration);
+            numericValueValidator.validate(errors, value.getAttribute().getName(), parsedValue, configurationValue,
+                    false);
+        }
+    }
+
+}
@@ -4,13 +4,23 @@ import java.util.HashMap;
 import java.util.Map;
 
 import com.nanuvem.lom.api.AttributeType;
+import com.nanuvem.lom.business.validator.RegexAttributeConfigurationValidator;
 
 public class AttributeTypeDefinitionManager {
 
     private Map<String, AttributeTypeDefinition> definitions = new HashMap<String, AttributeTypeDefinition>();
 
     public AttributeTypeDefinitionManager() {
-        add(AttributeType.TEXT.name(), new TextAttributeType());
+        this(RegexAttributeConfigurationValidator.NO_MATCH_STEP_BUDGET);
+    }
+
+    /**
+     * @param regexMatchStepBudget
+     *            step budget for the regex matching of TEXT values, zero to
+     *            match without a limit
+     */
+    public AttributeTypeDefinitionManager(long regexMatchStepBudget) {
+        add(AttributeType.TEXT.name(), new TextAttributeType(regexMatchStepBudget));
         add(AttributeType.LONGTEXT.name(), new LongTextAttributeType());
         add(AttributeType.PASSWORD.name(), new PasswordAttributeType());
         add(AttributeType.INTEGER.name(), new IntegerAttributeType());
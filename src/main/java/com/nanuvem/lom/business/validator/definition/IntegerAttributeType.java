@@ -7,10 +7,10 @@ import com.nanuvem.lom.api.Attribute;
 import com.nanuvem.lom.business.validator.MaximumValueAttributeConfigurationValidator;
 import com.nanuvem.lom.business.validator.MinimumValueAttributeConfigurationValidator;
 import com.nanuvem.lom.business.validator.configuration.AttributeValidator;
-import com.nanuvem.lom.business.validator.configuration.AttributeValidatorWithValue;
 import com.nanuvem.lom.business.validator.configuration.ConfigurationFieldValidator;
 import com.nanuvem.lom.business.validator.configuration.MandatoryValidator;
 import com.nanuvem.lom.business.validator.configuration.MinAndMaxValidator;
+import com.nanuvem.lom.business.validator.configuration.NumericAttributeValidatorWithValue;
 
 public class IntegerAttributeType implements AttributeTypeDefinition {
 
@@ -21,14 +21,10 @@ public class IntegerAttributeType implements AttributeTypeDefinition {
 
         validators.add(new ConfigurationFieldValidator(Attribute.DEFAULT_CONFIGURATION_NAME, Integer.class));
 
-        validators
-                .add(new AttributeValidatorWithValue<Integer>(Attribute.MINVALUE_CONFIGURATION_NAME,
-                        Attribute.DEFAULT_CONFIGURATION_NAME, new MinimumValueAttributeConfigurationValidator(),
-                        Integer.class));
-        validators
-                .add(new AttributeValidatorWithValue<Integer>(Attribute.MAXVALUE_CONFIGURATION_NAME,
-                        Attribute.DEFAULT_CONFIGURATION_NAME, new MaximumValueAttributeConfigurationValidator(),
-                        Integer.class));
+        validators.add(new NumericAttributeValidatorWithValue(Attribute.MINVALUE_CONFIGURATION_NAME,
+                Attribute.DEFAULT_CONFIGURATION_NAME, new MinimumValueAttributeConfigurationValidator()));
+        validators.add(new NumericAttributeValidatorWithValue(Attribute.MAXVALUE_CONFIGURATION_NAME,
+                Attribute.DEFAULT_CONFIGURATION_NAME, new MaximumValueAttributeConfigurationValidator()));
         validators.add(new MinAndMaxValidator(Attribute.MAXVALUE_CONFIGURATION_NAME,
                 Attribute.MINVALUE_CONFIGURATION_NAME));
 
@@ -10,6 +10,7 @@ import com.nanuvem.lom.business.validator.MinimumLengthAttributeConfigurationVal
 import com.nanuvem.lom.business.validator.MinimumNumbersAttributeConfigurationValidator;
 import com.nanuvem.lom.business.validator.MinimumSymbolsAttributeConfigurationValidator;
 import com.nanuvem.lom.business.validator.MinimumUppersAttributeConfigurationValidator;
+import com.nanuvem.lom.business.validator.PasswordAnalyzer;
 import com.nanuvem.lom.business.validator.configuration.AttributeValidator;
 import com.nanuvem.lom.business.validator.configuration.AttributeValidatorWithValue;
 import com.nanuvem.lom.business.validator.configuration.ConfigurationFieldValidator;
@@ -20,6 +21,7 @@ public class PasswordAttributeType implements AttributeTypeDefinition {
 
     public List<AttributeValidator> getValidators() {
         List<AttributeValidator> validators = new ArrayList<AttributeValidator>();
+        PasswordAnalyzer analyzer = new PasswordAnalyzer();
 
         validators.add(new MandatoryValidator());
 
@@ -35,23 +37,21 @@ public class PasswordAttributeType implements AttributeTypeDefinition {
         validators.add(new MinAndMaxValidator(Attribute.MAXLENGTH_CONFIGURATION_NAME,
                 Attribute.MINLENGTH_CONFIGURATION_NAME));
 
-        validators
-                .add(new AttributeValidatorWithValue<Integer>(Attribute.MINUPPERS_CONFIGURATION_NAME,
-                        Attribute.DEFAULT_CONFIGURATION_NAME, new MinimumUppersAttributeConfigurationValidator(),
-                        Integer.class));
+        validators.add(new AttributeValidatorWithValue<Integer>(Attribute.MINUPPERS_CONFIGURATION_NAME,
+                Attribute.DEFAULT_CONFIGURATION_NAME, new MinimumUppersAttributeConfigurationValidator(analyzer),
+                Integer.class));
 
         validators.add(new AttributeValidatorWithValue<Integer>(Attribute.MINNUMBERS_CONFIGURATION_NAME,
-                Attribute.DEFAULT_CONFIGURATION_NAME, new MinimumNumbersAttributeConfigurationValidator(),
+                Attribute.DEFAULT_CONFIGURATION_NAME, new MinimumNumbersAttributeConfigurationValidator(analyzer),
                 Integer.class));
 
         validators.add(new AttributeValidatorWithValue<Integer>(Attribute.MINSYMBOLS_CONFIGURATION_NAME,
-                Attribute.DEFAULT_CONFIGURATION_NAME, new MinimumSymbolsAttributeConfigurationValidator(),
+                Attribute.DEFAULT_CONFIGURATION_NAME, new MinimumSymbolsAttributeConfigurationValidator(analyzer),
                 Integer.class));
 
-        validators
-                .add(new AttributeValidatorWithValue<Integer>(Attribute.MAXREPEAT_CONFIGURATION_NAME,
-                        Attribute.DEFAULT_CONFIGURATION_NAME, new MaximumRepeatAttributeConfigurationValidator(),
-                        Integer.class));
+        validators.add(new AttributeValidatorWithValue<Integer>(Attribute.MAXREPEAT_CONFIGURATION_NAME,
+                Attribute.DEFAULT_CONFIGURATION_NAME, new MaximumRepeatAttributeConfigurationValidator(analyzer),
+                Integer.class));
 
         validators.add(new ConfigurationFieldValidator(Attribute.MANDATORY_CONFIGURATION_NAME, Boolean.class));
 
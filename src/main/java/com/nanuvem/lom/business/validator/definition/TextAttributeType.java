@@ -15,12 +15,28 @@ import com.nanuvem.lom.business.validator.configuration.MinAndMaxValidator;
 
 public class TextAttributeType implements AttributeTypeDefinition {
 
+    private long regexMatchStepBudget;
+
+    public TextAttributeType() {
+        this(RegexAttributeConfigurationValidator.NO_MATCH_STEP_BUDGET);
+    }
+
+    /**
+     * @param regexMatchStepBudget
+     *            step budget for regex matching, zero, the default, to match
+     *            without a limit
+     */
+    public TextAttributeType(long regexMatchStepBudget) {
+        this.regexMatchStepBudget = regexMatchStepBudget;
+    }
+
     public List<AttributeValidator> getValidators() {
         List<AttributeValidator> validators = new ArrayList<AttributeValidator>();
         validators.add(new MandatoryValidator());
 
         validators.add(new AttributeValidatorWithValue<String>(Attribute.REGEX_CONFIGURATION_NAME,
-                Attribute.DEFAULT_CONFIGURATION_NAME, new RegexAttributeConfigurationValidator(), String.class));
+                Attribute.DEFAULT_CONFIGURATION_NAME, new RegexAttributeConfigurationValidator(regexMatchStepBudget),
+                String.class));
 
         validators.add(new ConfigurationFieldValidator(Attribute.DEFAULT_CONFIGURATION_NAME, String.class));
         validators
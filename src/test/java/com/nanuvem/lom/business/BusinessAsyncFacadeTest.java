@@ -0,0 +1,123 @@
+package com.nanuvem.lom.business;
+
+import static com.nanuvem.lom.business.BusinessFixtures.newEntity;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.nanuvem.lom.api.Entity;
+import com.nanuvem.lom.api.MetadataException;
+import com.nanuvem.lom.kernel.dao.MemoryDaoFactory;
+
+public class BusinessAsyncFacadeTest {
+
+    private ExecutorService executor;
+    private AsyncBusinessFacade async;
+
+    @Before
+    public void init() {
+        executor = Executors.newSingleThreadExecutor();
+        async = new AsyncBusinessFacade(new BusinessFacade(new MemoryDaoFactory()), executor, 1);
+    }
+
+    @After
+    public void release() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void operationsCanBeComposed() throws Exception {
+        CompletableFuture<Entity> found = async.create(newEntity("abc", "Person")).thenCompose(
+                created -> async.findEntityById(created.getId()));
+
+        assertEquals("abc.person", found.get(5, TimeUnit.SECONDS).getFullName());
+    }
+
+    @Test
+    public void defaultExecutorRunsOperationsOnVirtualOrDaemonThreads() throws Exception {
+        ExecutorService defaultExecutor = AsyncBusinessFacade.newDefaultExecutor();
+        try {
+            Thread thread = defaultExecutor.submit(() -> Thread.currentThread()).get(5, TimeUnit.SECONDS);
+
+            assertTrue(thread.isDaemon());
+            if (hasVirtualThreads()) {
+                assertEquals(Boolean.TRUE, Thread.class.getMethod("isVirtual").invoke(thread));
+            }
+        } finally {
+            defaultExecutor.shutdownNow();
+        }
+    }
+
+    private static boolean hasVirtualThreads() {
+        String version = System.getProperty("java.specification.version");
+        return Integer.parseInt(version.startsWith("1.") ? version.substring(2) : version) >= 21;
+    }
+
+    @Test
+    public void failureCompletesTheFutureExceptionally() throws Exception {
+        try {
+            async.findEntityByFullName("abc.missing").get(5, TimeUnit.SECONDS);
+            fail("The lookup of a missing entity must fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof MetadataException);
+        }
+    }
+
+    @Test
+    public void operationPastTheLimitFailsWithoutBlocking() throws Exception {
+        CountDownLatch busy = blockExecutor();
+        CompletableFuture<Entity> queued = async.create(newEntity("abc", "Queued"));
+
+        CompletableFuture<Entity> rejected = async.create(newEntity("abc", "Rejected"));
+        assertTrue(rejected.isCompletedExceptionally());
+        try {
+            rejected.get();
+            fail("An operation past the limit must be rejected");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+
+        busy.countDown();
+        queued.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void cancelledOperationReturnsItsPlaceAndIsNotRun() throws Exception {
+        CountDownLatch busy = blockExecutor();
+        CompletableFuture<Entity> cancelled = async.create(newEntity("abc", "Cancelled"));
+        cancelled.cancel(false);
+
+        CompletableFuture<Entity> accepted = async.create(newEntity("abc", "Accepted"));
+        busy.countDown();
+
+        assertEquals("abc.accepted", accepted.get(5, TimeUnit.SECONDS).getFullName());
+        assertEquals(1, async.getFacade().listAllEntities().size());
+    }
+
+    private CountDownLatch blockExecutor() {
+        final CountDownLatch busy = new CountDownLatch(1);
+        executor.execute(new Runnable() {
+            public void run() {
+                try {
+                    busy.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        return busy;
+    }
+
+}
@@ -0,0 +1,225 @@
+package com.nanuvem.lom.business;
+
+import static com.nanuvem.lom.business.BusinessFixtures.createEntity;
+import static com.nanuvem.lom.business.BusinessFixtures.createInstance;
+import static com.nanuvem.lom.business.BusinessFixtures.createRelation;
+import static com.nanuvem.lom.business.BusinessFixtures.createRelationType;
+import static com.nanuvem.lom.business.BusinessFixtures.newRelation;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.nanuvem.lom.api.Cardinality;
+import com.nanuvem.lom.api.Entity;
+import com.nanuvem.lom.api.Instance;
+import com.nanuvem.lom.api.MetadataException;
+import com.nanuvem.lom.api.Relation;
+import com.nanuvem.lom.api.RelationType;
+import com.nanuvem.lom.kernel.dao.MemoryDaoFactory;
+
+public class BusinessCascadeDeleteTest {
+
+    private static final int CHUNK = CascadeDeleteService.DEFAULT_CHUNK_SIZE;
+
+    private BusinessFacade facade;
+    private Entity person;
+    private Entity passport;
+    private Entity pet;
+    private RelationType holds;
+    private RelationType owns;
+    private RelationType plays;
+
+    @Before
+    public void init() {
+        facade = new BusinessFacade(new MemoryDaoFactory());
+        person = createEntity(facade, "abc", "Person");
+        passport = createEntity(facade, "abc", "Passport");
+        pet = createEntity(facade, "abc", "Pet");
+        holds = createRelationType(facade, "holds", person, passport, Cardinality.MANY, Cardinality.MANY);
+        owns = createRelationType(facade, "owns", pet, person, Cardinality.MANY, Cardinality.MANY);
+        plays = createRelationType(facade, "plays", pet, pet, Cardinality.MANY, Cardinality.MANY);
+    }
+
+    @Test
+    public void entityIsDeletedWithItsInstancesAndTheRelationTypesTouchingIt() {
+        Instance ann = createInstance(facade, person);
+        Instance first = createInstance(facade, passport);
+        Instance rex = createInstance(facade, pet);
+        Instance tom = createInstance(facade, pet);
+        createRelation(facade, holds, ann, first);
+        createRelation(facade, owns, rex, ann);
+        Relation playing = createRelation(facade, plays, rex, tom);
+
+        CascadeDeleteReport report = facade.deleteEntityCascading(person.getId(), null);
+
+        assertTrue(report.isCompleted());
+        assertEquals(1, report.getInstanceCount());
+        assertEquals(1, report.getDeletedInstanceCount());
+        assertEquals(2, report.getDeletedRelationCount());
+        assertEquals(2, report.getDeletedRelationTypeCount());
+        assertEquals(Arrays.asList(passport.getId(), pet.getId()), entityIds(facade.listAllEntities()));
+        assertEquals(Arrays.asList(plays.getId()), relationTypeIds(facade.listAllRelationTypes()));
+        assertEquals(Arrays.asList(playing.getId()), relationIds(facade.listAllRelations()));
+        assertNull(facade.findInstanceById(ann.getId()));
+        assertEquals(1, facade.findInstancesByEntityId(passport.getId()).size());
+    }
+
+    @Test
+    public void relationTypeIsDeletedWithItsRelationsOnly() {
+        Instance ann = createInstance(facade, person);
+        Instance first = createInstance(facade, passport);
+        Instance rex = createInstance(facade, pet);
+        createRelation(facade, holds, ann, first);
+        Relation owning = createRelation(facade, owns, rex, ann);
+
+        CascadeDeleteReport report = facade.deleteRelationTypeCascading(holds.getId(), null);
+
+        assertTrue(report.isCompleted());
+        assertEquals(1, report.getDeletedRelationCount());
+        assertEquals(1, report.getDeletedRelationTypeCount());
+        assertEquals(0, report.getDeletedInstanceCount());
+        assertEquals(Arrays.asList(owns.getId(), plays.getId()), relationTypeIds(facade.listAllRelationTypes()));
+        assertEquals(Arrays.asList(owning.getId()), relationIds(facade.listAllRelations()));
+        assertEquals(3, facade.listAllEntities().size());
+        assertEquals(1, facade.findInstancesByEntityId(person.getId()).size());
+    }
+
+    @Test
+    public void listenerIsToldAfterEveryChunk() {
+        int instances = 2 * CHUNK + CHUNK / 2;
+        int relations = CHUNK + CHUNK / 2;
+        Instance first = createInstance(facade, passport);
+        List<Relation> batch = new ArrayList<Relation>();
+        for (int i = 0; i < instances; i++) {
+            Instance instance = createInstance(facade, person);
+            if (i < relations) {
+                batch.add(newRelation(holds, instance, first));
+            }
+        }
+        facade.createRelations(batch);
+
+        final List<long[]> progress = new ArrayList<long[]>();
+        CascadeDeleteReport report = facade.deleteEntityCascading(person.getId(), new CascadeDeleteListener() {
+            public void chunkDeleted(CascadeDeleteReport report) {
+                assertFalse(report.isCompleted());
+                progress.add(new long[] { report.getDeletedRelationCount(), report.getDeletedInstanceCount() });
+            }
+        });
+
+        assertEquals(5, progress.size());
+        assertProgress(CHUNK, 0, progress.get(0));
+        assertProgress(relations, 0, progress.get(1));
+        assertProgress(relations, CHUNK, progress.get(2));
+        assertProgress(relations, 2 * CHUNK, progress.get(3));
+        assertProgress(relations, instances, progress.get(4));
+        assertEquals(instances, report.getInstanceCount());
+        assertTrue(report.isCompleted());
+        assertEquals(0, facade.listAllRelations().size());
+    }
+
+    @Test
+    public void relationCreatedDuringTheDeletionIsDeletedToo() {
+        final Instance ann = createInstance(facade, person);
+        final Instance first = createInstance(facade, passport);
+        createRelation(facade, holds, ann, first);
+        final List<Relation> created = new ArrayList<Relation>();
+
+        CascadeDeleteReport report = facade.deleteRelationTypeCascading(holds.getId(), new CascadeDeleteListener() {
+            public void chunkDeleted(CascadeDeleteReport report) {
+                if (created.isEmpty()) {
+                    created.add(createRelation(facade, holds, ann, first));
+                }
+            }
+        });
+
+        assertEquals(1, created.size());
+        assertEquals(2, report.getDeletedRelationCount());
+        assertEquals(0, facade.listAllRelations().size());
+    }
+
+    @Test
+    public void relationOntoAnInstanceBeingDeletedIsRejected() {
+        final Instance first = createInstance(facade, passport);
+        for (int i = 0; i < CHUNK + 1; i++) {
+            createInstance(facade, person);
+        }
+        final Instance ann = createInstance(facade, person);
+        final List<MetadataException> rejections = new ArrayList<MetadataException>();
+
+        facade.deleteEntityCascading(person.getId(), new CascadeDeleteListener() {
+            public void chunkDeleted(CascadeDeleteReport report) {
+                try {
+                    createRelation(facade, holds, ann, first);
+                } catch (MetadataException e) {
+                    rejections.add(e);
+                }
+            }
+        });
+
+        assertEquals(2, rejections.size());
+        assertEquals("Unknown relation type id: " + holds.getId(), rejections.get(0).getMessage());
+        assertEquals(0, facade.listAllRelations().size());
+    }
+
+    @Test
+    public void unknownIdsAreRejected() {
+        try {
+            facade.deleteEntityCascading(Long.valueOf(-1), null);
+            fail();
+        } catch (MetadataException e) {
+            assertEquals("Unknown entity id: -1", e.getMessage());
+        }
+        try {
+            facade.deleteRelationTypeCascading(Long.valueOf(-1), null);
+            fail();
+        } catch (MetadataException e) {
+            assertEquals("Unknown relation type id: -1", e.getMessage());
+        }
+    }
+
+    private static void assertProgress(long relations, long instances, long[] progress) {
+        assertEquals(relations, progress[0]);
+        assertEquals(instances, progress[1]);
+    }
+
+    /**
+     * Ids in ascending order, which is creation order
+     */
+    private static List<Long> entityIds(List<Entity> entities) {
+        List<Long> ids = new ArrayList<Long>();
+        for (Entity entity : entities) {
+            ids.add(entity.getId());
+        }
+        Collections.sort(ids);
+        return ids;
+    }
+
+    private static List<Long> relationTypeIds(List<RelationType> relationTypes) {
+        List<Long> ids = new ArrayList<Long>();
+        for (RelationType relationType : relationTypes) {
+            ids.add(relationType.getId());
+        }
+        Collections.sort(ids);
+        return ids;
+    }
+
+    private static List<Long> relationIds(List<Relation> relations) {
+        List<Long> ids = new ArrayList<Long>();
+        for (Relation relation : relations) {
+            ids.add(relation.getId());
+        }
+        Collections.sort(ids);
+        return ids;
+    }
+
+}
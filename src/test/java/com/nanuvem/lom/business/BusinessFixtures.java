@@ -0,0 +1,97 @@
+package com.nanuvem.lom.business;
+
+import com.nanuvem.lom.api.Attribute;
+import com.nanuvem.lom.api.AttributeType;
+import com.nanuvem.lom.api.AttributeValue;
+import com.nanuvem.lom.api.Cardinality;
+import com.nanuvem.lom.api.Entity;
+import com.nanuvem.lom.api.Instance;
+import com.nanuvem.lom.api.Relation;
+import com.nanuvem.lom.api.RelationType;
+
+/**
+ * Builds the schemas and data the business tests run against, always through
+ * the BusinessFacade.
+ */
+public final class BusinessFixtures {
+
+    private BusinessFixtures() {
+    }
+
+    public static Entity createEntity(BusinessFacade facade, String namespace, String name) {
+        return facade.create(newEntity(namespace, name));
+    }
+
+    public static Entity newEntity(String namespace, String name) {
+        Entity entity = new Entity();
+        entity.setNamespace(namespace);
+        entity.setName(name);
+        return entity;
+    }
+
+    public static Attribute createAttribute(BusinessFacade facade, Entity entity, String name, AttributeType type,
+            String configuration) {
+        return facade.create(newAttribute(entity, name, type, configuration));
+    }
+
+    public static Attribute newAttribute(Entity entity, String name, AttributeType type, String configuration) {
+        Attribute attribute = new Attribute();
+        attribute.setEntity(entity);
+        attribute.setName(name);
+        attribute.setType(type);
+        attribute.setConfiguration(configuration);
+        return attribute;
+    }
+
+    public static Instance createInstance(BusinessFacade facade, Entity entity) {
+        Instance instance = new Instance();
+        instance.setEntity(entity);
+        return facade.create(instance);
+    }
+
+    /**
+     * @param attributesAndValues
+     *            attribute, value, attribute, value...
+     */
+    public static Instance newInstance(Entity entity, Object... attributesAndValues) {
+        Instance instance = new Instance();
+        instance.setEntity(entity);
+        for (int i = 0; i < attributesAndValues.length; i += 2) {
+            Attribute attribute = (Attribute) attributesAndValues[i];
+            instance.getValues().add(newValue(attribute, (String) attributesAndValues[i + 1]));
+        }
+        return instance;
+    }
+
+    public static AttributeValue newValue(Attribute attribute, String value) {
+        AttributeValue attributeValue = new AttributeValue();
+        attributeValue.setAttribute(attribute);
+        attributeValue.setValue(value);
+        return attributeValue;
+    }
+
+    public static RelationType createRelationType(BusinessFacade facade, String name, Entity source, Entity target,
+            Cardinality sourceCardinality, Cardinality targetCardinality) {
+        RelationType relationType = new RelationType();
+        relationType.setName(name);
+        relationType.setSourceEntity(source);
+        relationType.setTargetEntity(target);
+        relationType.setSourceCardinality(sourceCardinality);
+        relationType.setTargetCardinality(targetCardinality);
+        return facade.create(relationType);
+    }
+
+    public static Relation createRelation(BusinessFacade facade, RelationType relationType, Instance source,
+            Instance target) {
+        return facade.create(newRelation(relationType, source, target));
+    }
+
+    public static Relation newRelation(RelationType relationType, Instance source, Instance target) {
+        Relation relation = new Relation();
+        relation.setRelationType(relationType);
+        relation.setSource(source);
+        relation.setTarget(target);
+        return relation;
+    }
+
+}
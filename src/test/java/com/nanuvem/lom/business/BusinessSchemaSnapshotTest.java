@@ -0,0 +1,93 @@
+package com.nanuvem.lom.business;
+
+import static com.nanuvem.lom.business.BusinessFixtures.createAttribute;
+import static com.nanuvem.lom.business.BusinessFixtures.createEntity;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.nanuvem.lom.api.AttributeType;
+import com.nanuvem.lom.api.Entity;
+import com.nanuvem.lom.api.MetadataException;
+import com.nanuvem.lom.kernel.dao.MemoryDaoFactory;
+
+public class BusinessSchemaSnapshotTest {
+
+    private File file;
+    private MemoryDaoFactory daoFactory;
+    private Entity person;
+    private Entity place;
+
+    @Before
+    public void init() throws IOException {
+        file = File.createTempFile("lom-schema", ".snapshot");
+        daoFactory = new MemoryDaoFactory();
+        BusinessFacade facade = new BusinessFacade(daoFactory, null, file);
+        person = createEntity(facade, "abc", "Person");
+        createAttribute(facade, person, "name", AttributeType.TEXT, null);
+        place = createEntity(facade, "abc", "Place");
+        facade.saveSchemaSnapshot();
+
+        BusinessFacade elsewhere = new BusinessFacade(daoFactory);
+        elsewhere.deleteEntity(place.getId());
+        Entity renamed = elsewhere.findEntityById(person.getId());
+        renamed.setName("Client");
+        elsewhere.update(renamed);
+    }
+
+    @After
+    public void deleteFile() {
+        file.delete();
+    }
+
+    @Test
+    public void entitiesChangedWhileTheFileWasOnDiskAreNotSavedAgain() throws IOException {
+        BusinessFacade restarted = new BusinessFacade(daoFactory, null, file);
+
+        restarted.saveSchemaSnapshot();
+
+        List<Entity> saved = new SchemaSnapshotFile(file).read();
+        assertEquals(1, saved.size());
+        assertEquals(person.getId(), saved.get(0).getId());
+        assertEquals("client", saved.get(0).getName());
+        assertEquals("name", saved.get(0).getAttributes().get(0).getName());
+    }
+
+    @Test
+    public void entitiesChangedWhileTheFileWasOnDiskAreLookedUpFromTheDao() {
+        BusinessFacade restarted = new BusinessFacade(daoFactory, null, file);
+
+        assertNull(restarted.findEntityById(place.getId()));
+        assertEquals("client", restarted.findEntityById(person.getId()).getName());
+        assertNotFound(restarted, "abc.place");
+        assertNotFound(restarted, "abc.person");
+        assertEquals(person.getId(), restarted.findEntityByFullName("abc.client").getId());
+    }
+
+    @Test
+    public void deletedNameCanBeTakenAgainAfterRestart() {
+        BusinessFacade restarted = new BusinessFacade(daoFactory, null, file);
+
+        Entity newPlace = createEntity(restarted, "abc", "Place");
+
+        assertEquals(newPlace.getId(), restarted.findEntityByFullName("abc.place").getId());
+    }
+
+    private static void assertNotFound(BusinessFacade facade, String fullName) {
+        try {
+            facade.findEntityByFullName(fullName);
+            fail();
+        } catch (MetadataException e) {
+            assertEquals("Entity not found: " + fullName, e.getMessage());
+        }
+    }
+
+}
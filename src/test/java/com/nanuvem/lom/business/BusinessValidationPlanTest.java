@@ -0,0 +1,57 @@
+package com.nanuvem.lom.business;
+
+import static com.nanuvem.lom.business.BusinessFixtures.newAttribute;
+import static com.nanuvem.lom.business.BusinessFixtures.newEntity;
+import static com.nanuvem.lom.business.BusinessFixtures.newInstance;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.nanuvem.lom.api.Attribute;
+import com.nanuvem.lom.api.AttributeType;
+import com.nanuvem.lom.api.Entity;
+import com.nanuvem.lom.kernel.dao.MemoryDaoFactory;
+
+public class BusinessValidationPlanTest {
+
+    private BusinessServices services;
+    private Entity person;
+    private Entity pet;
+
+    @Before
+    public void init() {
+        services = new BusinessServices(new MemoryDaoFactory(), null, null, 0);
+        person = createEntityWithInstance("Person");
+        pet = createEntityWithInstance("Pet");
+    }
+
+    @Test
+    public void plansOfADeletedEntityAreDropped() {
+        assertEquals(4, services.getAttributeService().getValidationPlanCount());
+
+        services.getAttributeService().deleteEntity(person.getId());
+
+        assertEquals(2, services.getAttributeService().getValidationPlanCount());
+    }
+
+    @Test
+    public void plansOfAnEntityDeletedByCascadeAreDropped() {
+        services.getCascadeDeleteService().deleteEntity(pet.getId(), null);
+
+        assertEquals(2, services.getAttributeService().getValidationPlanCount());
+        services.getCascadeDeleteService().deleteEntity(person.getId(), null);
+        assertEquals(0, services.getAttributeService().getValidationPlanCount());
+    }
+
+    private Entity createEntityWithInstance(String name) {
+        Entity entity = services.getEntityService().create(newEntity("abc", name));
+        Attribute label = services.getAttributeService().create(
+                newAttribute(entity, "label", AttributeType.TEXT, "{\"maxlength\":10}"));
+        Attribute count = services.getAttributeService().create(
+                newAttribute(entity, "count", AttributeType.INTEGER, null));
+        services.getInstanceService().create(newInstance(entity, label, "first", count, "1"));
+        return entity;
+    }
+
+}
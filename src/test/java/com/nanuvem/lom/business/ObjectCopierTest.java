@@ -0,0 +1,208 @@
+package com.nanuvem.lom.business;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.Test;
+
+import com.nanuvem.lom.api.Attribute;
+import com.nanuvem.lom.api.AttributeType;
+import com.nanuvem.lom.api.AttributeValue;
+import com.nanuvem.lom.api.Entity;
+import com.nanuvem.lom.api.Instance;
+
+public class ObjectCopierTest {
+
+    @Test
+    public void cycleIsCopiedOnce() {
+        Entity entity = new Entity();
+        entity.setName("person");
+        Attribute attribute = new Attribute();
+        attribute.setName("name");
+        attribute.setType(AttributeType.TEXT);
+        attribute.setEntity(entity);
+        entity.setAttributes(new ArrayList<Attribute>(Arrays.asList(attribute)));
+
+        Entity copy = ObjectCopier.copy(entity);
+
+        assertNotSame(entity, copy);
+        Attribute copiedAttribute = copy.getAttributes().get(0);
+        assertNotSame(attribute, copiedAttribute);
+        assertSame(copy, copiedAttribute.getEntity());
+        assertSame(AttributeType.TEXT, copiedAttribute.getType());
+        assertEquals("name", copiedAttribute.getName());
+    }
+
+    @Test
+    public void sharedReferencesStayShared() {
+        Attribute attribute = new Attribute();
+        attribute.setName("name");
+        Instance instance = new Instance();
+        instance.getValues().add(newValue(attribute, "first"));
+        instance.getValues().add(newValue(attribute, "second"));
+
+        Instance copy = ObjectCopier.copy(instance);
+
+        Attribute first = copy.getValues().get(0).getAttribute();
+        assertNotSame(attribute, first);
+        assertSame(first, copy.getValues().get(1).getAttribute());
+        assertEquals("second", copy.getValues().get(1).getValue());
+    }
+
+    @Test
+    public void graphsCopiedTogetherShareTheirCommonObjects() {
+        Entity entity = new Entity();
+        Holder first = new Holder(entity, null);
+        Holder second = new Holder(entity, null);
+
+        List<Holder> copies = new ObjectCopier().copyGraphs(Arrays.asList(first, second));
+
+        assertNotSame(entity, copies.get(0).first);
+        assertSame(copies.get(0).first, copies.get(1).first);
+    }
+
+    @Test
+    public void collectionsKeepTheirClassAndContent() {
+        LinkedList<String> linkedList = new LinkedList<String>(Arrays.asList("b", "a"));
+        TreeSet<String> reversed = new TreeSet<String>(Collections.reverseOrder());
+        reversed.addAll(Arrays.asList("a", "c", "b"));
+        CopyOnWriteArrayList<String> copyOnWrite = new CopyOnWriteArrayList<String>(Arrays.asList("a"));
+
+        assertCopiedCollection(linkedList);
+        TreeSet<String> copiedSet = assertCopiedCollection(reversed);
+        assertEquals(Arrays.asList("c", "b", "a"), new ArrayList<String>(copiedSet));
+        copiedSet.add("d");
+        assertEquals("d", copiedSet.first());
+        assertCopiedCollection(copyOnWrite);
+    }
+
+    @Test
+    public void mapsKeepTheirClassAndContent() {
+        LinkedHashMap<String, Entity> linked = new LinkedHashMap<String, Entity>();
+        linked.put("z", new Entity());
+        linked.put("a", new Entity());
+        TreeMap<String, Integer> reversed = new TreeMap<String, Integer>(Collections.reverseOrder());
+        reversed.put("a", 1);
+        reversed.put("b", 2);
+
+        LinkedHashMap<String, Entity> copiedLinked = assertCopiedMap(linked);
+        assertEquals(Arrays.asList("z", "a"), new ArrayList<String>(copiedLinked.keySet()));
+        assertNotSame(linked.get("z"), copiedLinked.get("z"));
+        TreeMap<String, Integer> copiedReversed = assertCopiedMap(reversed);
+        assertEquals("b", copiedReversed.firstKey());
+        assertCopiedMap(new HashMap<String, Integer>(reversed));
+    }
+
+    @Test
+    public void unmodifiableCollectionsAreCopiedThroughSerialization() {
+        List<String> unmodifiable = Collections.unmodifiableList(new ArrayList<String>(Arrays.asList("a")));
+        Map<String, String> singleton = Collections.singletonMap("a", "b");
+        List<String> fixedSize = Arrays.asList("a", "b");
+
+        assertCopiedCollection(unmodifiable);
+        assertCopiedMap(singleton);
+        assertCopiedCollection(fixedSize);
+    }
+
+    @Test
+    public void subListBecomesAnArrayList() {
+        List<String> subList = new ArrayList<String>(Arrays.asList("a", "b", "c")).subList(1, 3);
+
+        List<String> copy = ObjectCopier.copy(subList);
+
+        assertSame(ArrayList.class, copy.getClass());
+        assertEquals(Arrays.asList("b", "c"), copy);
+    }
+
+    @Test
+    public void objectWithoutANoArgumentConstructorIsSerialized() {
+        Entity entity = new Entity();
+        Holder holder = new Holder(new Named("value"), entity);
+
+        Holder copy = ObjectCopier.copy(holder);
+
+        assertNotSame(holder.first, copy.first);
+        assertEquals("value", ((Named) copy.first).name);
+        assertNotSame(entity, copy.second);
+    }
+
+    @Test
+    public void copiedObjectsAreCounted() {
+        ObjectCopier copier = new ObjectCopier();
+        Attribute attribute = new Attribute();
+        attribute.setName("name");
+
+        copier.copyGraph(newValue(attribute, "value"));
+
+        assertTrue(copier.getCopiedObjectCount() >= 2);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T assertCopiedCollection(T source) {
+        T copy = ObjectCopier.copy(source);
+        assertNotSame(source, copy);
+        assertSame(source.getClass(), copy.getClass());
+        assertEquals(new ArrayList<Object>((Collection<Object>) source),
+                new ArrayList<Object>((Collection<Object>) copy));
+        return copy;
+    }
+
+    private static <T extends Map<?, ?>> T assertCopiedMap(T source) {
+        T copy = ObjectCopier.copy(source);
+        assertNotSame(source, copy);
+        assertSame(source.getClass(), copy.getClass());
+        assertEquals(source.keySet(), copy.keySet());
+        return copy;
+    }
+
+    private static AttributeValue newValue(Attribute attribute, String value) {
+        AttributeValue attributeValue = new AttributeValue();
+        attributeValue.setAttribute(attribute);
+        attributeValue.setValue(value);
+        return attributeValue;
+    }
+
+    private static class Holder implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        Object first;
+        Object second;
+
+        Holder() {
+        }
+
+        Holder(Object first, Object second) {
+            this.first = first;
+            this.second = second;
+        }
+    }
+
+    private static class Named implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        final String name;
+
+        Named(String name) {
+            this.name = name;
+        }
+    }
+
+}
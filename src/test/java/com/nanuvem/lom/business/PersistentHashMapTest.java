@@ -0,0 +1,111 @@
+package com.nanuvem.lom.business;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class PersistentHashMapTest {
+
+    @Test
+    public void updatesLeaveTheOriginalMapUnchanged() {
+        PersistentHashMap<Long, String> empty = PersistentHashMap.empty();
+        PersistentHashMap<Long, String> one = empty.with(1L, "one");
+        PersistentHashMap<Long, String> two = one.with(2L, "two");
+        PersistentHashMap<Long, String> replaced = two.with(1L, "uno");
+        PersistentHashMap<Long, String> removed = replaced.without(2L);
+
+        assertEquals(0, empty.size());
+        assertEquals("one", one.get(1L));
+        assertNull(one.get(2L));
+        assertEquals("one", two.get(1L));
+        assertEquals("uno", replaced.get(1L));
+        assertEquals(2, replaced.size());
+        assertEquals(1, removed.size());
+        assertNull(removed.get(2L));
+        assertEquals("two", two.get(2L));
+    }
+
+    @Test
+    public void unchangedUpdatesReturnTheSameMap() {
+        String value = "one";
+        PersistentHashMap<Long, String> map = PersistentHashMap.<Long, String> empty().with(1L, value);
+
+        assertSame(map, map.with(1L, value));
+        assertSame(map, map.without(2L));
+        assertSame(map, map.without(null));
+    }
+
+    @Test
+    public void collidingKeysAreKeptApart() {
+        PersistentHashMap<Colliding, Integer> map = PersistentHashMap.empty();
+        for (int i = 0; i < 5; i++) {
+            map = map.with(new Colliding(i), i);
+        }
+
+        assertEquals(5, map.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(Integer.valueOf(i), map.get(new Colliding(i)));
+        }
+        map = map.without(new Colliding(2));
+        assertEquals(4, map.size());
+        assertNull(map.get(new Colliding(2)));
+        assertEquals(Integer.valueOf(3), map.get(new Colliding(3)));
+    }
+
+    @Test
+    public void behavesLikeAHashMapUnderRandomUpdates() {
+        Random random = new Random(42);
+        Map<Long, Long> expected = new HashMap<Long, Long>();
+        PersistentHashMap<Long, Long> map = PersistentHashMap.empty();
+        for (int i = 0; i < 20000; i++) {
+            Long key = Long.valueOf(random.nextInt(5000));
+            if (random.nextInt(3) == 0) {
+                expected.remove(key);
+                map = map.without(key);
+            } else {
+                expected.put(key, Long.valueOf(i));
+                map = map.with(key, Long.valueOf(i));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<Long, Long> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+        List<Long> values = new ArrayList<Long>(map.values());
+        List<Long> expectedValues = new ArrayList<Long>(expected.values());
+        Collections.sort(values);
+        Collections.sort(expectedValues);
+        assertEquals(expectedValues, values);
+    }
+
+    private static class Colliding {
+
+        private final int id;
+
+        Colliding(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public int hashCode() {
+            return 7;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Colliding && ((Colliding) other).id == id;
+        }
+
+    }
+
+}
@@ -0,0 +1,129 @@
+package com.nanuvem.lom.business;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.nanuvem.lom.api.Attribute;
+import com.nanuvem.lom.api.AttributeType;
+import com.nanuvem.lom.api.Entity;
+
+public class SchemaSnapshotFileTest {
+
+    private File file;
+
+    @Before
+    public void createFile() throws IOException {
+        file = File.createTempFile("lom-schema", ".snapshot");
+    }
+
+    @After
+    public void deleteFile() {
+        file.delete();
+    }
+
+    @Test
+    public void savedEntitiesAreReadBack() throws IOException {
+        new SchemaSnapshotFile(file).write(Arrays.asList(newEntity(1L, "Customer"), newEntity(2L, "Supplier")));
+
+        List<Entity> entities = new SchemaSnapshotFile(file).read();
+
+        assertEquals(2, entities.size());
+        assertEquals("Customer", entities.get(0).getName());
+        assertEquals(Integer.valueOf(3), entities.get(1).getVersion());
+    }
+
+    @Test
+    public void attributesAndMissingValuesAreReadBack() throws IOException {
+        Entity customer = newEntity(1L, "Customer");
+        customer.setNamespace(null);
+        Attribute age = new Attribute();
+        age.setId(4L);
+        age.setSequence(1);
+        age.setName("age");
+        age.setType(AttributeType.INTEGER);
+        age.setEntity(customer);
+        customer.getAttributes().add(age);
+        new SchemaSnapshotFile(file).write(Arrays.asList(customer));
+
+        Entity entity = new SchemaSnapshotFile(file).read().get(0);
+
+        assertNull(entity.getNamespace());
+        Attribute attribute = entity.getAttributes().get(0);
+        assertEquals(Long.valueOf(4), attribute.getId());
+        assertNull(attribute.getVersion());
+        assertEquals(Integer.valueOf(1), attribute.getSequence());
+        assertEquals("age", attribute.getName());
+        assertEquals(AttributeType.INTEGER, attribute.getType());
+        assertNull(attribute.getConfiguration());
+        assertSame(entity, attribute.getEntity());
+    }
+
+    @Test
+    public void savingAgainReplacesTheFile() throws IOException {
+        new SchemaSnapshotFile(file).write(Arrays.asList(newEntity(1L, "Customer"), newEntity(2L, "Supplier")));
+        new SchemaSnapshotFile(file).write(Arrays.asList(newEntity(2L, "Supplier")));
+
+        List<Entity> entities = new SchemaSnapshotFile(file).read();
+
+        assertEquals(1, entities.size());
+        assertEquals("Supplier", entities.get(0).getName());
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void damagedFileIsIgnored() throws IOException {
+        new SchemaSnapshotFile(file).write(Arrays.asList(newEntity(1L, "Customer")));
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        randomAccessFile.seek(file.length() - 1);
+        int lastByte = randomAccessFile.read();
+        randomAccessFile.seek(file.length() - 1);
+        randomAccessFile.write(lastByte ^ 0xFF);
+        randomAccessFile.close();
+
+        assertNull(new SchemaSnapshotFile(file).read());
+    }
+
+    @Test
+    public void entityCountNotMatchingTheRecordsIsIgnored() throws IOException {
+        new SchemaSnapshotFile(file).write(Arrays.asList(newEntity(1L, "Customer"), newEntity(2L, "Supplier")));
+
+        writeEntityCount(3);
+        assertNull(new SchemaSnapshotFile(file).read());
+        writeEntityCount(1);
+        assertNull(new SchemaSnapshotFile(file).read());
+    }
+
+    private void writeEntityCount(int count) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        randomAccessFile.seek(8);
+        randomAccessFile.writeInt(count);
+        randomAccessFile.close();
+    }
+
+    @Test
+    public void emptyFileIsIgnored() throws IOException {
+        assertNull(new SchemaSnapshotFile(file).read());
+    }
+
+    private static Entity newEntity(Long id, String name) {
+        Entity entity = new Entity();
+        entity.setId(id);
+        entity.setVersion(3);
+        entity.setNamespace("schema");
+        entity.setName(name);
+        return entity;
+    }
+
+}
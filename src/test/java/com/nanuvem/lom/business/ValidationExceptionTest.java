@@ -0,0 +1,38 @@
+package com.nanuvem.lom.business;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.nanuvem.lom.business.validator.ValidationError;
+
+public class ValidationExceptionTest {
+
+    @Test
+    public void messageJoinsTheErrorsAfterThePrefix() {
+        List<ValidationError> errors = new ArrayList<ValidationError>();
+        errors.add(new ValidationError("the value is too short", "name", "minlength", "ab"));
+        errors.add(new ValidationError("the value has no numbers", "name", "minnumbers", "ab"));
+
+        ValidationException exception = new ValidationException("Invalid value for the Instance. ", errors);
+
+        assertEquals("Invalid value for the Instance. the value is too short, the value has no numbers",
+                exception.getMessage());
+    }
+
+    @Test
+    public void errorsKeepWhereTheyWereRaised() {
+        List<ValidationError> errors = new ArrayList<ValidationError>();
+        errors.add(new ValidationError("the value is too short").locate("name", "minlength", "ab"));
+
+        ValidationError error = new ValidationException("", errors).getErrors().get(0);
+
+        assertEquals("name", error.getAttribute());
+        assertEquals("minlength", error.getRule());
+        assertEquals("ab", error.getValue());
+    }
+
+}
@@ -0,0 +1,129 @@
+package com.nanuvem.lom.business.entity;
+
+import static com.nanuvem.lom.business.BusinessFixtures.createEntity;
+import static com.nanuvem.lom.business.BusinessFixtures.newAttribute;
+import static com.nanuvem.lom.business.BusinessFixtures.newEntity;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.nanuvem.lom.api.Attribute;
+import com.nanuvem.lom.api.AttributeType;
+import com.nanuvem.lom.api.Entity;
+import com.nanuvem.lom.api.MetadataException;
+import com.nanuvem.lom.business.BusinessFacade;
+import com.nanuvem.lom.kernel.dao.MemoryDaoFactory;
+
+public class BusinessConcurrentNameTest {
+
+    private static final int WRITERS = 8;
+
+    private BusinessFacade facade;
+    private ExecutorService executor;
+
+    @Before
+    public void init() {
+        facade = new BusinessFacade(new MemoryDaoFactory());
+        executor = Executors.newFixedThreadPool(WRITERS);
+    }
+
+    @After
+    public void release() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void concurrentEntitiesWithTheSameFullNameAreCreatedOnce() throws Exception {
+        List<Callable<Entity>> writes = new ArrayList<Callable<Entity>>();
+        for (int i = 0; i < WRITERS; i++) {
+            writes.add(new Callable<Entity>() {
+                public Entity call() {
+                    return facade.create(newEntity("abc", "Person"));
+                }
+            });
+        }
+
+        assertEquals(1, countSucceeded(runTogether(writes)));
+        assertEquals(1, facade.listAllEntities().size());
+    }
+
+    @Test
+    public void concurrentAttributesWithTheSameNameAreCreatedOnce() throws Exception {
+        final Entity person = createEntity(facade, "abc", "Person");
+        List<Callable<Attribute>> writes = new ArrayList<Callable<Attribute>>();
+        for (int i = 0; i < WRITERS; i++) {
+            writes.add(new Callable<Attribute>() {
+                public Attribute call() {
+                    return facade.create(newAttribute(person, "name", AttributeType.TEXT, null));
+                }
+            });
+        }
+
+        assertEquals(1, countSucceeded(runTogether(writes)));
+        assertEquals(1, facade.findEntityById(person.getId()).getAttributes().size());
+    }
+
+    @Test
+    public void concurrentAttributesWithDistinctNamesTakeDistinctSequences() throws Exception {
+        final Entity person = createEntity(facade, "abc", "Person");
+        List<Callable<Attribute>> writes = new ArrayList<Callable<Attribute>>();
+        for (int i = 0; i < WRITERS; i++) {
+            final String name = "attribute" + (char) ('a' + i);
+            writes.add(new Callable<Attribute>() {
+                public Attribute call() {
+                    return facade.create(newAttribute(person, name, AttributeType.TEXT, null));
+                }
+            });
+        }
+
+        assertEquals(WRITERS, countSucceeded(runTogether(writes)));
+        Set<Integer> sequences = new HashSet<Integer>();
+        for (Attribute attribute : facade.findEntityById(person.getId()).getAttributes()) {
+            sequences.add(attribute.getSequence());
+        }
+        assertEquals(WRITERS, sequences.size());
+    }
+
+    private <T> List<Future<T>> runTogether(List<Callable<T>> writes) {
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Future<T>> results = new ArrayList<Future<T>>();
+        for (final Callable<T> write : writes) {
+            results.add(executor.submit(new Callable<T>() {
+                public T call() throws Exception {
+                    start.await();
+                    return write.call();
+                }
+            }));
+        }
+        start.countDown();
+        return results;
+    }
+
+    private static <T> int countSucceeded(List<Future<T>> results) throws InterruptedException {
+        int succeeded = 0;
+        for (Future<T> result : results) {
+            try {
+                result.get();
+                succeeded++;
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof MetadataException);
+            }
+        }
+        return succeeded;
+    }
+
+}
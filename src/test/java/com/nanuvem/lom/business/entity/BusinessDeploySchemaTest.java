@@ -0,0 +1,202 @@
+package com.nanuvem.lom.business.entity;
+
+import static com.nanuvem.lom.business.BusinessFixtures.createEntity;
+import static com.nanuvem.lom.business.BusinessFixtures.newAttribute;
+import static com.nanuvem.lom.business.BusinessFixtures.newEntity;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.nanuvem.lom.api.Attribute;
+import com.nanuvem.lom.api.AttributeType;
+import com.nanuvem.lom.api.Entity;
+import com.nanuvem.lom.api.MetadataException;
+import com.nanuvem.lom.api.dao.EntityDao;
+import com.nanuvem.lom.business.BusinessFacade;
+import com.nanuvem.lom.kernel.dao.MemoryDaoFactory;
+
+public class BusinessDeploySchemaTest {
+
+    private static final int SCHEMA_ATTRIBUTES = 16;
+
+    private BusinessFacade facade;
+    private ExecutorService executor;
+
+    @Before
+    public void init() {
+        facade = new BusinessFacade(new MemoryDaoFactory());
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void release() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void entityIsCreatedWithAllItsAttributesInSequence() {
+        Entity person = newEntity("abc", "Person");
+        person.getAttributes().add(newAttribute(null, "name", AttributeType.TEXT, null));
+        person.getAttributes().add(newAttribute(null, "age", AttributeType.INTEGER, null));
+        person.getAttributes().add(newAttribute(null, "email", AttributeType.LONGTEXT, null));
+
+        Entity deployed = facade.deploySchema(person);
+
+        Entity found = facade.findEntityById(deployed.getId());
+        assertEquals("abc.person", found.getFullName());
+        assertEquals(3, found.getAttributes().size());
+        assertAttribute(found, "name", 1);
+        assertAttribute(found, "age", 2);
+        assertAttribute(found, "email", 3);
+    }
+
+    @Test
+    public void invalidAttributeLeavesNoEntityBehind() {
+        Entity person = newEntity("abc", "Person");
+        person.getAttributes().add(newAttribute(null, "name", AttributeType.TEXT, null));
+        person.getAttributes().add(newAttribute(null, "age", null, null));
+
+        try {
+            facade.deploySchema(person);
+            fail();
+        } catch (MetadataException e) {
+            assertEquals("The type of an Attribute is mandatory", e.getMessage());
+        }
+        assertEquals(0, facade.listAllEntities().size());
+    }
+
+    @Test
+    public void duplicatedAttributeNameLeavesNoEntityBehind() {
+        Entity person = newEntity("abc", "person");
+        person.getAttributes().add(newAttribute(null, "name", AttributeType.TEXT, null));
+        person.getAttributes().add(newAttribute(null, "Name", AttributeType.TEXT, null));
+
+        try {
+            facade.deploySchema(person);
+            fail();
+        } catch (MetadataException e) {
+            assertEquals("Attribute duplication on abc.person Entity. It already has an attribute name.",
+                    e.getMessage());
+        }
+        assertEquals(0, facade.listAllEntities().size());
+    }
+
+    @Test
+    public void existingFullNameIsRejected() {
+        createEntity(facade, "abc", "Person");
+        Entity person = newEntity("abc", "Person");
+        person.getAttributes().add(newAttribute(null, "name", AttributeType.TEXT, null));
+
+        try {
+            facade.deploySchema(person);
+            fail();
+        } catch (MetadataException e) {
+            assertEquals("The abc.person Entity already exists", e.getMessage());
+        }
+        assertEquals(1, facade.listAllEntities().size());
+        assertEquals(0, facade.findEntityByFullName("abc.person").getAttributes().size());
+    }
+
+    @Test
+    public void attributeCreatedDuringTheDeploymentTakesTheNextSequence() throws Exception {
+        final PausingEntityDaoFactory daoFactory = new PausingEntityDaoFactory();
+        facade = new BusinessFacade(daoFactory);
+        Future<Attribute> extra = executor.submit(new Callable<Attribute>() {
+            public Attribute call() throws InterruptedException {
+                daoFactory.entityCreated.await();
+                try {
+                    Entity person = facade.findEntityById(daoFactory.createdEntityId);
+                    return facade.create(newAttribute(person, "extra", AttributeType.TEXT, null));
+                } finally {
+                    daoFactory.attributeWritten.countDown();
+                }
+            }
+        });
+        Entity person = newEntity("abc", "Person");
+        for (int i = 0; i < SCHEMA_ATTRIBUTES; i++) {
+            person.getAttributes().add(newAttribute(null, "attribute" + letters(i), AttributeType.TEXT, null));
+        }
+
+        Entity deployed = facade.deploySchema(person);
+
+        assertEquals(SCHEMA_ATTRIBUTES + 1, extra.get(10, TimeUnit.SECONDS).getSequence().intValue());
+        Entity found = facade.findEntityById(deployed.getId());
+        Set<Integer> sequences = new HashSet<Integer>();
+        for (Attribute attribute : found.getAttributes()) {
+            sequences.add(attribute.getSequence());
+        }
+        assertEquals(SCHEMA_ATTRIBUTES + 1, sequences.size());
+    }
+
+    /**
+     * Names only take letters and the digits 1 to 9.
+     */
+    private static String letters(int number) {
+        return Integer.toString(number, 26).replace('0', 'z');
+    }
+
+    private static void assertAttribute(Entity entity, String name, int sequence) {
+        for (Attribute attribute : entity.getAttributes()) {
+            if (attribute.getName().equals(name)) {
+                assertEquals(sequence, attribute.getSequence().intValue());
+                return;
+            }
+        }
+        fail("No attribute " + name + " on " + entity.getFullName());
+    }
+
+    /**
+     * Holds the first entity write right after it is stored, until
+     * {@link #attributeWritten} is counted down or {@link #PAUSE_MILLIS} went
+     * by, which opens the window between the entity and its attributes to
+     * another writer.
+     */
+    private static class PausingEntityDaoFactory extends MemoryDaoFactory {
+
+        private static final long PAUSE_MILLIS = 500;
+
+        final CountDownLatch entityCreated = new CountDownLatch(1);
+        final CountDownLatch attributeWritten = new CountDownLatch(1);
+        volatile Long createdEntityId;
+
+        @Override
+        public EntityDao createEntityDao() {
+            final EntityDao dao = super.createEntityDao();
+            return (EntityDao) Proxy.newProxyInstance(EntityDao.class.getClassLoader(),
+                    new Class<?>[] { EntityDao.class }, new InvocationHandler() {
+                        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                            Object result;
+                            try {
+                                result = method.invoke(dao, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                            if (method.getName().equals("create") && entityCreated.getCount() > 0) {
+                                createdEntityId = ((Entity) result).getId();
+                                entityCreated.countDown();
+                                attributeWritten.await(PAUSE_MILLIS, TimeUnit.MILLISECONDS);
+                            }
+                            return result;
+                        }
+                    });
+        }
+
+    }
+
+}
@@ -0,0 +1,164 @@
+package com.nanuvem.lom.business.entity;
+
+import static com.nanuvem.lom.business.BusinessFixtures.createEntity;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.nanuvem.lom.api.Entity;
+import com.nanuvem.lom.api.MetadataException;
+import com.nanuvem.lom.api.dao.EntityDao;
+import com.nanuvem.lom.business.BusinessFacade;
+import com.nanuvem.lom.business.metrics.BusinessMetrics;
+import com.nanuvem.lom.kernel.dao.MemoryDaoFactory;
+
+public class BusinessEntityCacheTest {
+
+    private BusinessMetrics metrics;
+    private BusinessFacade facade;
+    private Entity person;
+
+    @Before
+    public void init() {
+        metrics = new BusinessMetrics();
+        facade = new BusinessFacade(new MemoryDaoFactory(), metrics);
+        person = createEntity(facade, "abc", "Person");
+    }
+
+    @Test
+    public void lookupsOfACreatedEntityDoNotReachTheDao() {
+        long hits = facade.getEntityService().getCacheHitCount();
+
+        facade.findEntityById(person.getId());
+        facade.findEntityByFullName("abc.person");
+
+        assertEquals(hits + 2, facade.getEntityService().getCacheHitCount());
+        assertNull(metrics.getOperationStatistics("findEntityById").getDaoCallCounts().get("EntityDao.findById"));
+        assertNull(metrics.getOperationStatistics("findEntityByFullName").getDaoCallCounts()
+                .get("EntityDao.findByFullName"));
+    }
+
+    @Test
+    public void cachedEntityIsHandedOutAsACopy() {
+        Entity found = facade.findEntityById(person.getId());
+        found.setName("changed");
+
+        Entity foundAgain = facade.findEntityById(person.getId());
+        assertNotSame(found, foundAgain);
+        assertEquals("person", foundAgain.getName());
+    }
+
+    @Test
+    public void updateReplacesTheCachedEntity() {
+        Entity renamed = facade.findEntityById(person.getId());
+        renamed.setName("Customer");
+        facade.update(renamed);
+
+        assertEquals("customer", facade.findEntityById(person.getId()).getName());
+        assertEquals(person.getId(), facade.findEntityByFullName("abc.customer").getId());
+        try {
+            facade.findEntityByFullName("abc.person");
+            fail("The former full name must no longer be found");
+        } catch (MetadataException e) {
+            assertTrue(e.getMessage().contains("abc.person"));
+        }
+    }
+
+    @Test
+    public void deleteEvictsTheCachedEntity() {
+        facade.deleteEntity(person.getId());
+
+        assertNull(facade.findEntityById(person.getId()));
+        try {
+            facade.findEntityByFullName("abc.person");
+            fail("A deleted entity must no longer be found");
+        } catch (MetadataException e) {
+            assertTrue(e.getMessage().contains("abc.person"));
+        }
+    }
+
+    @Test
+    public void lookupRacingWithADeleteDoesNotBringTheEntityBack() throws Exception {
+        final PausingEntityDaoFactory daoFactory = new PausingEntityDaoFactory();
+        final BusinessFacade reader = new BusinessFacade(daoFactory);
+        createEntity(reader, "abc", "Person");
+        final Entity customer = createEntity(new BusinessFacade(daoFactory), "abc", "Customer");
+        daoFactory.paused = true;
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Entity> lookup = executor.submit(new Callable<Entity>() {
+                public Entity call() {
+                    return reader.findEntityById(customer.getId());
+                }
+            });
+            daoFactory.entityRead.await(10, TimeUnit.SECONDS);
+            reader.deleteEntity(customer.getId());
+            daoFactory.entityDeleted.countDown();
+            lookup.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertNull(reader.findEntityById(customer.getId()));
+        try {
+            reader.findEntityByFullName("abc.customer");
+            fail("A deleted entity must no longer be found");
+        } catch (MetadataException e) {
+            assertTrue(e.getMessage().contains("abc.customer"));
+        }
+    }
+
+    /**
+     * Once paused, holds the first entity lookup by id right after it read
+     * the DAO, until {@link #entityDeleted} is counted down or
+     * {@link #PAUSE_MILLIS} went by.
+     */
+    private static class PausingEntityDaoFactory extends MemoryDaoFactory {
+
+        private static final long PAUSE_MILLIS = 500;
+
+        final CountDownLatch entityRead = new CountDownLatch(1);
+        final CountDownLatch entityDeleted = new CountDownLatch(1);
+        volatile boolean paused;
+
+        @Override
+        public EntityDao createEntityDao() {
+            final EntityDao dao = super.createEntityDao();
+            return (EntityDao) Proxy.newProxyInstance(EntityDao.class.getClassLoader(),
+                    new Class<?>[] { EntityDao.class }, new InvocationHandler() {
+                        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                            Object result;
+                            try {
+                                result = method.invoke(dao, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                            if (paused && method.getName().equals("findById") && entityRead.getCount() > 0) {
+                                entityRead.countDown();
+                                entityDeleted.await(PAUSE_MILLIS, TimeUnit.MILLISECONDS);
+                            }
+                            return result;
+                        }
+                    });
+        }
+
+    }
+
+}
@@ -0,0 +1,116 @@
+package com.nanuvem.lom.business.entity;
+
+import static com.nanuvem.lom.business.BusinessFixtures.createEntity;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.nanuvem.lom.api.Entity;
+import com.nanuvem.lom.api.MetadataException;
+import com.nanuvem.lom.business.BusinessFacade;
+import com.nanuvem.lom.kernel.dao.MemoryDaoFactory;
+
+public class BusinessListEntitiesByPrefixTest {
+
+    private BusinessFacade facade;
+
+    @Before
+    public void init() {
+        facade = new BusinessFacade(new MemoryDaoFactory());
+        createEntity(facade, "abc", "Person");
+        createEntity(facade, "abc", "Place");
+        createEntity(facade, "abc.sub", "Pet");
+        createEntity(facade, "abd", "Animal");
+        createEntity(facade, "", "Product");
+        createEntity(facade, null, "Client");
+    }
+
+    @Test
+    public void prefixListsTheMatchingEntitiesInFullNameOrder() {
+        assertFullNames(Arrays.asList("abc.person", "abc.place", "abc.sub.pet"),
+                facade.listEntitiesByFullNamePrefix("abc."));
+        assertFullNames(Arrays.asList("abc.person"), facade.listEntitiesByFullNamePrefix("abc.pe"));
+    }
+
+    @Test
+    public void prefixIsCaseInsensitive() {
+        assertFullNames(Arrays.asList("abc.person", "abc.place"), facade.listEntitiesByFullNamePrefix("ABC.P"));
+    }
+
+    @Test
+    public void defaultNamespaceEntitiesMatchByTheirBareName() {
+        assertFullNames(Arrays.asList("product"), facade.listEntitiesByFullNamePrefix("pro"));
+        assertFullNames(Arrays.asList("client"), facade.listEntitiesByFullNamePrefix("c"));
+    }
+
+    @Test
+    public void emptyPrefixListsEveryEntity() {
+        assertEquals(6, facade.listEntitiesByFullNamePrefix("").size());
+        assertEquals(6, facade.listEntitiesByFullNamePrefix(null).size());
+    }
+
+    @Test
+    public void unmatchedPrefixListsNothing() {
+        assertEquals(0, facade.listEntitiesByFullNamePrefix("xyz").size());
+    }
+
+    @Test
+    public void invalidPrefixIsRejected() {
+        try {
+            facade.listEntitiesByFullNamePrefix("abc_");
+            fail();
+        } catch (MetadataException e) {
+            assertEquals("Invalid value for Entity full name: abc_", e.getMessage());
+        }
+    }
+
+    @Test
+    public void namespaceListsOnlyItsOwnEntitiesInNameOrder() {
+        assertFullNames(Arrays.asList("abc.person", "abc.place"), facade.listEntitiesByNamespace("abc"));
+        assertFullNames(Arrays.asList("abc.sub.pet"), facade.listEntitiesByNamespace("abc.sub"));
+        assertEquals(0, facade.listEntitiesByNamespace("ab").size());
+    }
+
+    @Test
+    public void emptyNamespaceListsTheDefaultNamespace() {
+        assertFullNames(Arrays.asList("client", "product"), facade.listEntitiesByNamespace(""));
+        assertFullNames(Arrays.asList("client", "product"), facade.listEntitiesByNamespace(null));
+    }
+
+    @Test
+    public void renamedEntityMovesBetweenListings() {
+        Entity place = facade.findEntityByFullName("abc.place");
+        place.setNamespace("abd");
+        place.setName("Location");
+        facade.update(place);
+
+        assertFullNames(Arrays.asList("abc.person"), facade.listEntitiesByNamespace("abc"));
+        assertFullNames(Arrays.asList("abd.animal", "abd.location"), facade.listEntitiesByNamespace("abd"));
+        assertFullNames(Arrays.asList("abd.location"), facade.listEntitiesByFullNamePrefix("abd.l"));
+    }
+
+    @Test
+    public void deletedEntityLeavesTheListings() {
+        facade.deleteEntity(facade.findEntityByFullName("abc.person").getId());
+        createEntity(facade, "abc", "Pencil");
+
+        assertFullNames(Arrays.asList("abc.pencil", "abc.place"), facade.listEntitiesByNamespace("abc"));
+        assertFullNames(Arrays.asList("abc.pencil"), facade.listEntitiesByFullNamePrefix("abc.pe"));
+    }
+
+    private static void assertFullNames(List<String> expected, List<Entity> entities) {
+        List<String> fullNames = new ArrayList<String>();
+        for (Entity entity : entities) {
+            boolean defaultNamespace = entity.getNamespace() == null || entity.getNamespace().isEmpty();
+            fullNames.add(defaultNamespace ? entity.getName() : entity.getNamespace() + "." + entity.getName());
+        }
+        assertEquals(expected, fullNames);
+    }
+
+}
@@ -0,0 +1,112 @@
+package com.nanuvem.lom.business.instance;
+
+import static com.nanuvem.lom.business.BusinessFixtures.createAttribute;
+import static com.nanuvem.lom.business.BusinessFixtures.createEntity;
+import static com.nanuvem.lom.business.BusinessFixtures.newInstance;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.nanuvem.lom.api.Attribute;
+import com.nanuvem.lom.api.AttributeType;
+import com.nanuvem.lom.api.AttributeValue;
+import com.nanuvem.lom.api.Entity;
+import com.nanuvem.lom.api.Instance;
+import com.nanuvem.lom.api.dao.AttributeValueDao;
+import com.nanuvem.lom.business.BusinessFacade;
+import com.nanuvem.lom.business.InstanceBatchReport;
+import com.nanuvem.lom.kernel.dao.MemoryDaoFactory;
+
+public class BusinessCreateAllInstancesTest {
+
+    private static final String UNWRITABLE = "unwritable";
+
+    private BusinessFacade facade;
+    private Entity person;
+    private Attribute name;
+    private Attribute nickname;
+
+    @Before
+    public void init() {
+        facade = new BusinessFacade(new FailingValueDaoFactory());
+        person = createEntity(facade, "abc", "Person");
+        name = createAttribute(facade, person, "name", AttributeType.TEXT, "{\""
+                + Attribute.MANDATORY_CONFIGURATION_NAME + "\": true}");
+        nickname = createAttribute(facade, person, "nickname", AttributeType.TEXT, "{\""
+                + Attribute.DEFAULT_CONFIGURATION_NAME + "\": \"none\"}");
+    }
+
+    @Test
+    public void validInstancesAreCreatedAndInvalidOnesReported() {
+        InstanceBatchReport report = facade.createAll(Arrays.asList(newInstance(person, name, "ann"),
+                newInstance(person, name, null), newInstance(person, name, "bob")));
+
+        assertEquals(2, report.getCreatedCount());
+        assertEquals(1, report.getFailedCount());
+        assertEquals(1, report.getFailures().get(0).getIndex());
+        assertEquals(name.getName(), report.getFailures().get(0).getErrors().get(0).getAttribute());
+        assertEquals(2, facade.findInstancesByEntityId(person.getId()).size());
+    }
+
+    @Test
+    public void defaultValuesAreWrittenWithoutChangingTheSubmittedInstances() {
+        Instance submitted = newInstance(person, name, "ann", nickname, null);
+        AttributeValue submittedNickname = submitted.getValues().get(1);
+
+        InstanceBatchReport report = facade.createAll(Arrays.asList(submitted));
+
+        assertEquals("none", report.getCreatedInstances().get(0).getValues().get(1).getValue());
+        assertEquals(2, submitted.getValues().size());
+        assertSame(submittedNickname, submitted.getValues().get(1));
+        assertNull(submittedNickname.getValue());
+        assertNull(submittedNickname.getInstance());
+        assertNull(submitted.getId());
+    }
+
+    @Test
+    public void failedWriteIsReportedAndLeavesNoInstanceBehind() {
+        InstanceBatchReport report = facade.createAll(Arrays.asList(newInstance(person, name, "ann"),
+                newInstance(person, name, UNWRITABLE), newInstance(person, name, "bob")));
+
+        assertEquals(2, report.getCreatedCount());
+        assertEquals(1, report.getFailures().get(0).getIndex());
+        assertFalse(report.isSuccessful());
+        assertEquals(2, facade.findInstancesByEntityId(person.getId()).size());
+    }
+
+    /**
+     * Fails to write any attribute value holding {@link #UNWRITABLE}.
+     */
+    private static class FailingValueDaoFactory extends MemoryDaoFactory {
+
+        @Override
+        public AttributeValueDao createAttributeValueDao() {
+            final AttributeValueDao dao = super.createAttributeValueDao();
+            return (AttributeValueDao) Proxy.newProxyInstance(AttributeValueDao.class.getClassLoader(),
+                    new Class<?>[] { AttributeValueDao.class }, new InvocationHandler() {
+                        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                            if (args != null && args.length == 1 && args[0] instanceof AttributeValue
+                                    && UNWRITABLE.equals(((AttributeValue) args[0]).getValue())) {
+                                throw new IllegalStateException("The value cannot be written");
+                            }
+                            try {
+                                return method.invoke(dao, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                        }
+                    });
+        }
+    }
+
+}
@@ -0,0 +1,110 @@
+package com.nanuvem.lom.business.instance;
+
+import static com.nanuvem.lom.business.BusinessFixtures.createEntity;
+import static com.nanuvem.lom.business.BusinessFixtures.createInstance;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.nanuvem.lom.api.Entity;
+import com.nanuvem.lom.api.Instance;
+import com.nanuvem.lom.api.MetadataException;
+import com.nanuvem.lom.business.BusinessFacade;
+import com.nanuvem.lom.business.InstancePage;
+import com.nanuvem.lom.kernel.dao.MemoryDaoFactory;
+
+public class BusinessInstancePagingTest {
+
+    private BusinessFacade facade;
+    private Entity person;
+    private List<Long> ids;
+
+    @Before
+    public void init() {
+        facade = new BusinessFacade(new MemoryDaoFactory());
+        person = createEntity(facade, "abc", "Person");
+        Entity other = createEntity(facade, "abc", "Other");
+        ids = new ArrayList<Long>();
+        for (int i = 0; i < 7; i++) {
+            ids.add(createInstance(facade, person).getId());
+            createInstance(facade, other);
+        }
+    }
+
+    @Test
+    public void pagesFollowTheCursorInIdOrder() {
+        List<Long> pagedIds = new ArrayList<Long>();
+        InstancePage page = facade.findInstancesByEntityId(person.getId(), null, 3);
+        int pages = 1;
+        while (true) {
+            for (Instance instance : page.getInstances()) {
+                pagedIds.add(instance.getId());
+            }
+            if (!page.hasNext()) {
+                break;
+            }
+            page = facade.findInstancesByEntityId(person.getId(), page.getNextCursor(), 3);
+            pages++;
+        }
+
+        assertEquals(3, pages);
+        assertEquals(ids, pagedIds);
+        assertNull(page.getNextCursor());
+    }
+
+    @Test(expected = MetadataException.class)
+    public void pageSizeMustBePositive() {
+        facade.findInstancesByEntityId(person.getId(), null, 0);
+    }
+
+    @Test
+    public void iterationWalksTheInstancesInIdOrder() {
+        List<Long> iteratedIds = new ArrayList<Long>();
+        Iterator<Instance> instances = facade.iterateInstancesByEntityId(person.getId());
+        while (instances.hasNext()) {
+            iteratedIds.add(instances.next().getId());
+        }
+
+        assertEquals(ids, iteratedIds);
+    }
+
+    @Test
+    public void iterationDoesNotSeeInstancesCreatedDuringTheWalk() {
+        Iterator<Instance> instances = facade.iterateInstancesByEntityId(person.getId());
+        assertEquals(ids.get(0), instances.next().getId());
+        createInstance(facade, person);
+
+        int remaining = 0;
+        while (instances.hasNext()) {
+            instances.next();
+            remaining++;
+        }
+        assertEquals(ids.size() - 1, remaining);
+    }
+
+    @Test
+    public void iterationSkipsInstancesDeletedDuringTheWalk() {
+        Iterator<Instance> instances = facade.iterateInstancesByEntityId(person.getId());
+        assertEquals(ids.get(0), instances.next().getId());
+        facade.deleteEntityCascading(person.getId(), null);
+
+        assertFalse(instances.hasNext());
+    }
+
+    @Test
+    public void iteratedInstancesAreCopies() {
+        Instance instance = facade.iterateInstancesByEntityId(person.getId()).next();
+        instance.setId(-1L);
+
+        assertTrue(facade.iterateInstancesByEntityId(person.getId()).next().getId() > 0);
+    }
+
+}
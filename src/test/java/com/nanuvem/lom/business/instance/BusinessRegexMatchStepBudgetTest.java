@@ -0,0 +1,48 @@
+package com.nanuvem.lom.business.instance;
+
+import static com.nanuvem.lom.business.BusinessFixtures.createAttribute;
+import static com.nanuvem.lom.business.BusinessFixtures.createEntity;
+import static com.nanuvem.lom.business.BusinessFixtures.newInstance;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.nanuvem.lom.api.Attribute;
+import com.nanuvem.lom.api.AttributeType;
+import com.nanuvem.lom.api.Entity;
+import com.nanuvem.lom.api.MetadataException;
+import com.nanuvem.lom.business.BusinessFacade;
+import com.nanuvem.lom.kernel.dao.MemoryDaoFactory;
+
+public class BusinessRegexMatchStepBudgetTest {
+
+    private BusinessFacade facade;
+    private Entity entity;
+    private Attribute name;
+
+    @Before
+    public void init() {
+        facade = new BusinessFacade(new MemoryDaoFactory(), null, null, 100000);
+        entity = createEntity(facade, "abc", "Person");
+        name = createAttribute(facade, entity, "name", AttributeType.TEXT, "{\"regex\":\"(.*a){12}\"}");
+    }
+
+    @Test
+    public void acceptsAValueMatchedWithinTheBudget() {
+        assertNotNull(facade.create(newInstance(entity, name, "aaaaaaaaaaaa")).getId());
+    }
+
+    @Test(timeout = 5000)
+    public void rejectsAValueThatSpendsTheBudget() {
+        try {
+            facade.create(newInstance(entity, name, "aaaaaaaaaaaaaaaaaaaaaaaaaaa!"));
+            fail();
+        } catch (MetadataException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("took too long to match"));
+        }
+    }
+
+}
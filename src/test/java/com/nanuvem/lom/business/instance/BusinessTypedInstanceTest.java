@@ -0,0 +1,110 @@
+package com.nanuvem.lom.business.instance;
+
+import static com.nanuvem.lom.business.BusinessFixtures.createAttribute;
+import static com.nanuvem.lom.business.BusinessFixtures.createEntity;
+import static com.nanuvem.lom.business.BusinessFixtures.newAttribute;
+import static com.nanuvem.lom.business.BusinessFixtures.newInstance;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.nanuvem.lom.api.Attribute;
+import com.nanuvem.lom.api.AttributeType;
+import com.nanuvem.lom.api.Entity;
+import com.nanuvem.lom.api.Instance;
+import com.nanuvem.lom.api.MetadataException;
+import com.nanuvem.lom.business.BusinessFacade;
+import com.nanuvem.lom.business.TypedInstance;
+import com.nanuvem.lom.kernel.dao.MemoryDaoFactory;
+
+public class BusinessTypedInstanceTest {
+
+    private BusinessFacade facade;
+    private Entity person;
+    private Attribute name;
+    private Attribute age;
+    private Attribute height;
+
+    @Before
+    public void init() {
+        facade = new BusinessFacade(new MemoryDaoFactory());
+        person = createEntity(facade, "abc", "Person");
+        name = createAttribute(facade, person, "name", AttributeType.TEXT, null);
+        age = createAttribute(facade, person, "age", AttributeType.INTEGER, null);
+        height = createAttribute(facade, person, "height", AttributeType.INTEGER, null);
+    }
+
+    @Test
+    public void integerValueIsReadAsAnInt() {
+        TypedInstance instance = findTyped(facade.create(newInstance(person, name, "Alice", age, "42")));
+
+        assertTrue(instance.isInteger("age"));
+        assertEquals(42, instance.getInt("age"));
+        assertEquals(42, instance.getInt("age", -1));
+    }
+
+    @Test
+    public void missingIntegerValueFallsBackToTheDefault() {
+        TypedInstance instance = findTyped(facade.create(newInstance(person, name, "Alice", age, "42")));
+
+        assertFalse(instance.isInteger("height"));
+        assertEquals(-1, instance.getInt("height", -1));
+        assertEquals(-1, instance.getInt("weight", -1));
+    }
+
+    @Test
+    public void textValueIsReadAsItIs() {
+        TypedInstance instance = findTyped(facade.create(newInstance(person, name, "Alice", age, "42")));
+
+        assertEquals("Alice", instance.getText("name"));
+        assertEquals("42", instance.getText("age"));
+        assertTrue(instance.hasValue("name"));
+    }
+
+    @Test
+    public void nonIntegerValueIsNotReadAsAnInt() {
+        TypedInstance instance = findTyped(facade.create(newInstance(person, name, "123", age, "42")));
+
+        assertFalse(instance.isInteger("name"));
+        assertEquals(-1, instance.getInt("name", -1));
+        try {
+            instance.getInt("name");
+            fail();
+        } catch (MetadataException e) {
+            assertEquals("The value for the 'name' attribute is not an int", e.getMessage());
+        }
+    }
+
+    @Test
+    public void overflowingValueIsNotReadAsAnInt() {
+        Attribute count = newAttribute(person, "count", AttributeType.INTEGER, null);
+        TypedInstance instance = TypedInstance.of(newInstance(person, count, "2147483648"));
+
+        assertEquals("2147483648", instance.getText("count"));
+        assertFalse(instance.isInteger("count"));
+        assertEquals(0, instance.getInt("count", 0));
+        try {
+            instance.getInt("count");
+            fail();
+        } catch (MetadataException e) {
+            assertEquals("The value for the 'count' attribute is not an int", e.getMessage());
+        }
+    }
+
+    @Test
+    public void unknownInstanceHasNoTypedView() {
+        assertNull(facade.findTypedInstanceById(-1L));
+    }
+
+    private TypedInstance findTyped(Instance instance) {
+        TypedInstance typed = facade.findTypedInstanceById(instance.getId());
+        assertEquals(instance.getId(), typed.getInstance().getId());
+        return typed;
+    }
+
+}
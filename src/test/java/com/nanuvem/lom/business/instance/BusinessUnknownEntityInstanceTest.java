@@ -0,0 +1,53 @@
+package com.nanuvem.lom.business.instance;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.nanuvem.lom.api.Entity;
+import com.nanuvem.lom.api.Instance;
+import com.nanuvem.lom.api.MetadataException;
+import com.nanuvem.lom.business.BusinessFacade;
+import com.nanuvem.lom.business.InstanceBatchReport;
+import com.nanuvem.lom.kernel.dao.MemoryDaoFactory;
+
+public class BusinessUnknownEntityInstanceTest {
+
+    private BusinessFacade facade;
+
+    @Before
+    public void init() {
+        facade = new BusinessFacade(new MemoryDaoFactory());
+    }
+
+    @Test
+    public void instanceOfAnUnknownEntityIsRejected() {
+        try {
+            facade.create(newInstanceOfUnknownEntity());
+            fail("An instance of an unknown entity must be rejected");
+        } catch (MetadataException e) {
+            assertEquals("Unknown entity id: 999", e.getMessage());
+        }
+    }
+
+    @Test
+    public void instanceOfAnUnknownEntityIsReportedInABatch() {
+        InstanceBatchReport report = facade.createAll(Arrays.asList(newInstanceOfUnknownEntity()));
+
+        assertEquals(0, report.getCreatedCount());
+        assertEquals("Unknown entity id: 999", report.getFailures().get(0).getMessage());
+    }
+
+    private Instance newInstanceOfUnknownEntity() {
+        Entity entity = new Entity();
+        entity.setId(999L);
+        Instance instance = new Instance();
+        instance.setEntity(entity);
+        return instance;
+    }
+
+}
@@ -0,0 +1,178 @@
+package com.nanuvem.lom.business.instance;
+
+import static com.nanuvem.lom.business.BusinessFixtures.createAttribute;
+import static com.nanuvem.lom.business.BusinessFixtures.createEntity;
+import static com.nanuvem.lom.business.BusinessFixtures.newInstance;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.nanuvem.lom.api.Attribute;
+import com.nanuvem.lom.api.AttributeType;
+import com.nanuvem.lom.api.AttributeValue;
+import com.nanuvem.lom.api.Entity;
+import com.nanuvem.lom.api.Instance;
+import com.nanuvem.lom.api.MetadataException;
+import com.nanuvem.lom.business.BusinessFacade;
+import com.nanuvem.lom.kernel.dao.MemoryDaoFactory;
+
+public class BusinessUpdateInstanceTest {
+
+    private static final int WRITERS = 8;
+
+    private BusinessFacade facade;
+    private ExecutorService executor;
+    private Entity person;
+    private Attribute name;
+    private Attribute nickname;
+
+    @Before
+    public void init() {
+        facade = new BusinessFacade(new MemoryDaoFactory());
+        executor = Executors.newFixedThreadPool(WRITERS);
+        person = createEntity(facade, "abc", "Person");
+        name = createAttribute(facade, person, "name", AttributeType.TEXT, "{\""
+                + Attribute.MANDATORY_CONFIGURATION_NAME + "\": true}");
+        nickname = createAttribute(facade, person, "nickname", AttributeType.TEXT, "{\""
+                + Attribute.DEFAULT_CONFIGURATION_NAME + "\": \"none\"}");
+    }
+
+    @After
+    public void release() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void onlyTheGivenValuesAreChanged() {
+        Instance instance = facade.create(newInstance(person, name, "ann", nickname, "annie"));
+
+        facade.update(changes(instance, name, "anne"));
+
+        Instance found = facade.findInstanceById(instance.getId());
+        assertEquals("anne", valueOf(found, name));
+        assertEquals("annie", valueOf(found, nickname));
+    }
+
+    @Test
+    public void valueIsAddedForAnAttributeWithoutOne() {
+        Instance instance = facade.create(newInstance(person, name, "ann"));
+
+        facade.update(changes(instance, nickname, "annie"));
+
+        Instance found = facade.findInstanceById(instance.getId());
+        assertEquals(2, found.getValues().size());
+        assertEquals("annie", valueOf(found, nickname));
+    }
+
+    @Test
+    public void nullValueClearsTheStoredOneInsteadOfTakingTheDefault() {
+        Instance instance = facade.create(newInstance(person, name, "ann", nickname, "annie"));
+
+        facade.update(changes(instance, nickname, null));
+
+        assertNull(valueOf(facade.findInstanceById(instance.getId()), nickname));
+    }
+
+    @Test
+    public void invalidValueLeavesTheInstanceUnchanged() {
+        Instance instance = facade.create(newInstance(person, name, "ann", nickname, "annie"));
+
+        try {
+            facade.update(changes(instance, name, null));
+            fail();
+        } catch (MetadataException e) {
+            assertEquals("ann", valueOf(facade.findInstanceById(instance.getId()), name));
+        }
+    }
+
+    @Test
+    public void deprecatedVersionIsRejected() {
+        Instance instance = facade.create(newInstance(person, name, "ann"));
+        facade.update(changes(instance, name, "anne"));
+
+        Instance stale = changes(instance, name, "anna");
+        stale.setVersion(instance.getVersion());
+        try {
+            facade.update(stale);
+            fail();
+        } catch (MetadataException e) {
+            assertEquals("anne", valueOf(facade.findInstanceById(instance.getId()), name));
+        }
+    }
+
+    @Test
+    public void submittedValuesAreNotChanged() {
+        Instance instance = facade.create(newInstance(person, name, "ann"));
+        Instance changes = changes(instance, nickname, "annie");
+        AttributeValue submitted = changes.getValues().get(0);
+
+        facade.update(changes);
+
+        assertSame(submitted, changes.getValues().get(0));
+        assertNull(submitted.getId());
+        assertNull(submitted.getInstance());
+    }
+
+    @Test
+    public void concurrentUpdatesOfDistinctAttributesAreAllKept() throws Exception {
+        List<Attribute> attributes = new ArrayList<Attribute>();
+        Instance instance = facade.create(newInstance(person, name, "ann"));
+        for (int i = 0; i < WRITERS; i++) {
+            Attribute attribute = createAttribute(facade, person, "attribute" + (char) ('a' + i),
+                    AttributeType.TEXT, null);
+            attributes.add(attribute);
+            facade.update(changes(instance, attribute, "initial"));
+        }
+
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Future<Instance>> results = new ArrayList<Future<Instance>>();
+        for (final Attribute attribute : attributes) {
+            final Instance changes = changes(instance, attribute, "changed");
+            results.add(executor.submit(new Callable<Instance>() {
+                public Instance call() throws InterruptedException {
+                    start.await();
+                    return facade.update(changes);
+                }
+            }));
+        }
+        start.countDown();
+        for (Future<Instance> result : results) {
+            result.get();
+        }
+
+        Instance found = facade.findInstanceById(instance.getId());
+        for (Attribute attribute : attributes) {
+            assertEquals("changed", valueOf(found, attribute));
+        }
+    }
+
+    private static Instance changes(Instance instance, Attribute attribute, String value) {
+        Instance changes = newInstance(instance.getEntity(), attribute, value);
+        changes.setId(instance.getId());
+        return changes;
+    }
+
+    private static String valueOf(Instance instance, Attribute attribute) {
+        for (AttributeValue value : instance.getValues()) {
+            if (value.getAttribute().getId().equals(attribute.getId())) {
+                return value.getValue();
+            }
+        }
+        fail("No value for " + attribute.getName());
+        return null;
+    }
+
+}
@@ -0,0 +1,75 @@
+package com.nanuvem.lom.business.journal;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.nanuvem.lom.api.Entity;
+import com.nanuvem.lom.api.dao.EntityDao;
+import com.nanuvem.lom.kernel.dao.MemoryDaoFactory;
+
+public class DaoJournalTest {
+
+    private File file;
+
+    @Before
+    public void createFile() throws IOException {
+        file = File.createTempFile("lom-journal", ".log");
+    }
+
+    @After
+    public void deleteFile() {
+        file.delete();
+    }
+
+    @Test
+    public void mutationsAreReplayedIntoANewFactory() throws IOException {
+        DaoJournal journal = DaoJournal.open(file, new MemoryDaoFactory());
+        EntityDao entityDao = journal.getDaoFactory().createEntityDao();
+        entityDao.create(newEntity("Customer"));
+        Entity supplier = entityDao.create(newEntity("Supplier"));
+        entityDao.delete(supplier.getId());
+        journal.close();
+
+        DaoJournal reopened = DaoJournal.open(file, new MemoryDaoFactory());
+        List<Entity> entities = reopened.getDaoFactory().createEntityDao().listAll();
+        reopened.close();
+
+        assertEquals(3, reopened.getReplayedCount());
+        assertEquals(1, entities.size());
+        assertEquals("Customer", entities.get(0).getName());
+    }
+
+    @Test
+    public void recordTornAtTheEndIsDropped() throws IOException {
+        DaoJournal journal = DaoJournal.open(file, new MemoryDaoFactory());
+        journal.getDaoFactory().createEntityDao().create(newEntity("Customer"));
+        journal.close();
+        long length = file.length();
+
+        FileOutputStream out = new FileOutputStream(file, true);
+        out.write(new byte[] { 0, 0, 1, 0, 42 });
+        out.close();
+
+        DaoJournal reopened = DaoJournal.open(file, new MemoryDaoFactory());
+        reopened.close();
+
+        assertEquals(1, reopened.getReplayedCount());
+        assertEquals(length, file.length());
+    }
+
+    private static Entity newEntity(String name) {
+        Entity entity = new Entity();
+        entity.setNamespace("journal");
+        entity.setName(name);
+        return entity;
+    }
+
+}
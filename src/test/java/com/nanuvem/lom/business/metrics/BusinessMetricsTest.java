@@ -0,0 +1,88 @@
+package com.nanuvem.lom.business.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.nanuvem.lom.api.Entity;
+import com.nanuvem.lom.business.BusinessFacade;
+import com.nanuvem.lom.kernel.dao.MemoryDaoFactory;
+
+public class BusinessMetricsTest {
+
+    @Test
+    public void operationsAreCountedAndFailuresSeparated() {
+        BusinessMetrics metrics = new BusinessMetrics();
+
+        OperationTimer succeeded = OperationTimer.start(metrics, "createEntity");
+        succeeded.succeeded();
+        succeeded.stop();
+        OperationTimer failed = OperationTimer.start(metrics, "createEntity");
+        failed.stop();
+
+        assertEquals(2, metrics.getInvocationCount("createEntity"));
+        assertEquals(1, metrics.getFailureCount("createEntity"));
+        assertNull(OperationTimer.current());
+    }
+
+    @Test
+    public void daoCallsAndClonesAreAttributedToTheRunningOperation() {
+        BusinessMetrics metrics = new BusinessMetrics();
+
+        OperationTimer outer = OperationTimer.start(metrics, "createInstance");
+        OperationTimer inner = OperationTimer.start(metrics, "findEntityById");
+        OperationTimer.current().recordDaoCall("EntityDao.findById");
+        inner.stop();
+        assertSame(outer, OperationTimer.current());
+        OperationTimer.current().recordDaoCall("InstanceDao.create");
+        OperationTimer.current().recordDaoCall("InstanceDao.create");
+        OperationTimer.current().recordClone(1000, 3);
+        outer.stop();
+
+        assertEquals(Long.valueOf(1), metrics.getOperationStatistics("findEntityById").getDaoCallCounts()
+                .get("EntityDao.findById"));
+        assertEquals("InstanceDao.create=2", metrics.getDaoCallCounts("createInstance")[0]);
+        assertEquals(1, metrics.getCloneCount("createInstance"));
+        assertEquals(3, metrics.getClonedObjectCount("createInstance"));
+    }
+
+    @Test
+    public void disabledTimerRecordsNothing() {
+        OperationTimer timer = OperationTimer.start(null, "createEntity");
+        assertNull(OperationTimer.current());
+        timer.stop();
+    }
+
+    @Test
+    public void facadeIsUninstrumentedUnlessGivenASink() {
+        assertNull(new BusinessFacade(new MemoryDaoFactory()).getMetrics());
+
+        BusinessMetrics metrics = new BusinessMetrics();
+        BusinessFacade facade = new BusinessFacade(new MemoryDaoFactory(), metrics);
+        Entity entity = new Entity();
+        entity.setNamespace("abc");
+        entity.setName("Metered");
+        facade.create(entity);
+
+        assertSame(metrics, facade.getMetrics());
+        assertEquals(1, metrics.getInvocationCount("createEntity"));
+    }
+
+    @Test
+    public void percentilesAreBoundedByTheirBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(100);
+        }
+        histogram.record(1000000);
+
+        assertTrue(histogram.getPercentileNanos(50) >= 100);
+        assertTrue(histogram.getPercentileNanos(50) < 200);
+        assertEquals(1000000, histogram.getPercentileNanos(100));
+        assertEquals(1000000, histogram.getMaximumNanos());
+    }
+
+}
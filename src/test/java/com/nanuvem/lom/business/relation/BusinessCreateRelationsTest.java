@@ -0,0 +1,148 @@
+package com.nanuvem.lom.business.relation;
+
+import static com.nanuvem.lom.business.BusinessFixtures.createEntity;
+import static com.nanuvem.lom.business.BusinessFixtures.createInstance;
+import static com.nanuvem.lom.business.BusinessFixtures.createRelation;
+import static com.nanuvem.lom.business.BusinessFixtures.createRelationType;
+import static com.nanuvem.lom.business.BusinessFixtures.newRelation;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.nanuvem.lom.api.Cardinality;
+import com.nanuvem.lom.api.Entity;
+import com.nanuvem.lom.api.Instance;
+import com.nanuvem.lom.api.MetadataException;
+import com.nanuvem.lom.api.Relation;
+import com.nanuvem.lom.api.RelationType;
+import com.nanuvem.lom.api.dao.RelationDao;
+import com.nanuvem.lom.business.BusinessFacade;
+import com.nanuvem.lom.kernel.dao.MemoryDaoFactory;
+
+public class BusinessCreateRelationsTest {
+
+    private FailingRelationDaoFactory daoFactory;
+    private BusinessFacade facade;
+    private RelationType holds;
+    private Instance ann;
+    private Instance bob;
+    private Instance first;
+    private Instance second;
+    private Instance third;
+
+    @Before
+    public void init() {
+        daoFactory = new FailingRelationDaoFactory();
+        facade = new BusinessFacade(daoFactory);
+        Entity person = createEntity(facade, "abc", "Person");
+        Entity passport = createEntity(facade, "abc", "Passport");
+        holds = createRelationType(facade, "holds", person, passport, Cardinality.ONE, Cardinality.ONE);
+        ann = createInstance(facade, person);
+        bob = createInstance(facade, person);
+        first = createInstance(facade, passport);
+        second = createInstance(facade, passport);
+        third = createInstance(facade, passport);
+    }
+
+    @Test
+    public void allRelationsAreCreatedInTheGivenOrder() {
+        List<Relation> created = facade.createRelations(Arrays.asList(newRelation(holds, ann, first),
+                newRelation(holds, bob, second)));
+
+        assertEquals(2, created.size());
+        assertNotNull(created.get(0).getId());
+        assertEquals(ann.getId(), created.get(0).getSource().getId());
+        assertEquals(bob.getId(), created.get(1).getSource().getId());
+        assertEquals(2, facade.findRelationsByRelationType(holds).size());
+    }
+
+    @Test
+    public void unknownInstanceRejectsTheWholeBatch() {
+        Instance unknown = new Instance();
+        unknown.setId(Long.valueOf(-1));
+
+        assertRejected(Arrays.asList(newRelation(holds, ann, first), newRelation(holds, bob, unknown)));
+        assertEquals(0, facade.findRelationsByRelationType(holds).size());
+    }
+
+    @Test
+    public void cardinalityViolatedWithinTheBatchRejectsTheWholeBatch() {
+        assertRejected(Arrays.asList(newRelation(holds, ann, first), newRelation(holds, ann, second)));
+        assertEquals(0, facade.findRelationsByRelationType(holds).size());
+    }
+
+    @Test
+    public void cardinalityViolatedByAStoredRelationRejectsTheWholeBatch() {
+        createRelation(facade, holds, ann, first);
+
+        assertRejected(Arrays.asList(newRelation(holds, bob, second), newRelation(holds, ann, third)));
+        assertEquals(1, facade.findRelationsByRelationType(holds).size());
+    }
+
+    @Test
+    public void failedWriteDeletesTheRelationsAlreadyWritten() {
+        daoFactory.failCreatesAfter = 1;
+        try {
+            facade.createRelations(Arrays.asList(newRelation(holds, ann, first), newRelation(holds, bob, second)));
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("The relation cannot be written", e.getMessage());
+        }
+        daoFactory.failCreatesAfter = -1;
+
+        assertEquals(0, facade.findRelationsByRelationType(holds).size());
+        createRelation(facade, holds, ann, first);
+        assertEquals(1, facade.findRelationsByRelationType(holds).size());
+    }
+
+    private void assertRejected(List<Relation> relations) {
+        try {
+            facade.createRelations(relations);
+            fail();
+        } catch (MetadataException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Fails every relation write once {@link #failCreatesAfter} writes went
+     * through, unless it is negative.
+     */
+    private static class FailingRelationDaoFactory extends MemoryDaoFactory {
+
+        volatile int failCreatesAfter = -1;
+
+        @Override
+        public RelationDao createRelationDao() {
+            final RelationDao dao = super.createRelationDao();
+            return (RelationDao) Proxy.newProxyInstance(RelationDao.class.getClassLoader(),
+                    new Class<?>[] { RelationDao.class }, new InvocationHandler() {
+                        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                            if (method.getName().equals("create") && failCreatesAfter >= 0) {
+                                if (failCreatesAfter == 0) {
+                                    throw new IllegalStateException("The relation cannot be written");
+                                }
+                                failCreatesAfter--;
+                            }
+                            try {
+                                return method.invoke(dao, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                        }
+                    });
+        }
+
+    }
+
+}
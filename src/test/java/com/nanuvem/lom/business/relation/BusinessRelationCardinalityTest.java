@@ -0,0 +1,123 @@
+package com.nanuvem.lom.business.relation;
+
+import static com.nanuvem.lom.business.BusinessFixtures.createEntity;
+import static com.nanuvem.lom.business.BusinessFixtures.createInstance;
+import static com.nanuvem.lom.business.BusinessFixtures.createRelation;
+import static com.nanuvem.lom.business.BusinessFixtures.createRelationType;
+import static com.nanuvem.lom.business.BusinessFixtures.newRelation;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.nanuvem.lom.api.Cardinality;
+import com.nanuvem.lom.api.Entity;
+import com.nanuvem.lom.api.Instance;
+import com.nanuvem.lom.api.MetadataException;
+import com.nanuvem.lom.api.Relation;
+import com.nanuvem.lom.api.RelationType;
+import com.nanuvem.lom.business.BusinessFacade;
+import com.nanuvem.lom.kernel.dao.MemoryDaoFactory;
+
+public class BusinessRelationCardinalityTest {
+
+    private BusinessFacade facade;
+    private Entity person;
+    private Entity passport;
+    private Instance ann;
+    private Instance bob;
+    private Instance first;
+    private Instance second;
+
+    @Before
+    public void init() {
+        facade = new BusinessFacade(new MemoryDaoFactory());
+        person = createEntity(facade, "abc", "Person");
+        passport = createEntity(facade, "abc", "Passport");
+        ann = createInstance(facade, person);
+        bob = createInstance(facade, person);
+        first = createInstance(facade, passport);
+        second = createInstance(facade, passport);
+    }
+
+    @Test
+    public void targetCardinalityOneAllowsOneRelationPerSource() {
+        RelationType holds = createRelationType(facade, "holds", person, passport, Cardinality.MANY,
+                Cardinality.ONE);
+        Relation relation = createRelation(facade, holds, ann, first);
+
+        assertRejected(newRelation(holds, ann, second));
+        createRelation(facade, holds, bob, second);
+
+        facade.deleteRelation(relation.getId());
+        createRelation(facade, holds, ann, second);
+    }
+
+    @Test
+    public void sourceCardinalityOneAllowsOneRelationPerTarget() {
+        RelationType issued = createRelationType(facade, "issued", person, passport, Cardinality.ONE,
+                Cardinality.MANY);
+        createRelation(facade, issued, ann, first);
+        createRelation(facade, issued, ann, second);
+
+        assertRejected(newRelation(issued, bob, first));
+    }
+
+    @Test
+    public void concurrentRelationsCannotBothTakeTheOnlyPlace() throws Exception {
+        final RelationType holds = createRelationType(facade, "holds", person, passport, Cardinality.MANY,
+                Cardinality.ONE);
+        final List<Instance> passports = new ArrayList<Instance>();
+        for (int i = 0; i < 8; i++) {
+            passports.add(createInstance(facade, passport));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(passports.size());
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Future<Relation>> results = new ArrayList<Future<Relation>>();
+        for (final Instance target : passports) {
+            results.add(executor.submit(new Callable<Relation>() {
+                public Relation call() throws Exception {
+                    start.await();
+                    return facade.create(newRelation(holds, ann, target));
+                }
+            }));
+        }
+        start.countDown();
+
+        int created = 0;
+        for (Future<Relation> result : results) {
+            try {
+                result.get();
+                created++;
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof MetadataException);
+            }
+        }
+        executor.shutdown();
+
+        assertEquals(1, created);
+        assertEquals(1, facade.findRelationsBySourceInstance(ann, holds).size());
+    }
+
+    private void assertRejected(Relation relation) {
+        try {
+            facade.create(relation);
+            fail("The relation must be rejected by its cardinality");
+        } catch (MetadataException e) {
+            assertTrue(e.getMessage().contains("cardinality is ONE"));
+        }
+    }
+
+}
@@ -0,0 +1,225 @@
+package com.nanuvem.lom.business.relation;
+
+import static com.nanuvem.lom.business.BusinessFixtures.createEntity;
+import static com.nanuvem.lom.business.BusinessFixtures.createInstance;
+import static com.nanuvem.lom.business.BusinessFixtures.createRelation;
+import static com.nanuvem.lom.business.BusinessFixtures.createRelationType;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.nanuvem.lom.api.Cardinality;
+import com.nanuvem.lom.api.Entity;
+import com.nanuvem.lom.api.Instance;
+import com.nanuvem.lom.api.MetadataException;
+import com.nanuvem.lom.api.Relation;
+import com.nanuvem.lom.api.RelationType;
+import com.nanuvem.lom.business.BusinessFacade;
+import com.nanuvem.lom.business.RelationTraversal;
+import com.nanuvem.lom.business.TraversalResult;
+import com.nanuvem.lom.kernel.dao.MemoryDaoFactory;
+
+public class BusinessTraverseRelationTest {
+
+    private BusinessFacade facade;
+    private RelationType next;
+    private Instance first;
+    private Instance second;
+    private Instance third;
+    private Instance fourth;
+    private Relation firstToSecond;
+    private Entity node;
+
+    @Before
+    public void init() {
+        facade = new BusinessFacade(new MemoryDaoFactory());
+        node = createEntity(facade, "abc", "Node");
+        next = createRelationType(facade, "next", node, node, Cardinality.MANY, Cardinality.MANY);
+        first = createInstance(facade, node);
+        second = createInstance(facade, node);
+        third = createInstance(facade, node);
+        fourth = createInstance(facade, node);
+        firstToSecond = createRelation(facade, next, first, second);
+        createRelation(facade, next, second, third);
+        createRelation(facade, next, first, fourth);
+    }
+
+    @Test
+    public void followsOutgoingRelationsUpToTheMaximumDepth() {
+        RelationTraversal traversal = new RelationTraversal();
+        traversal.setMaximumDepth(2);
+
+        TraversalResult result = facade.traverseRelations(first, traversal);
+
+        assertEquals(4, result.getVisitedInstanceIds().size());
+        assertEquals(0, result.getDepth(first.getId()));
+        assertEquals(1, result.getDepth(second.getId()));
+        assertEquals(1, result.getDepth(fourth.getId()));
+        assertEquals(2, result.getDepth(third.getId()));
+        assertEquals(3, result.getSteps().size());
+    }
+
+    @Test
+    public void stopsAtTheDefaultDepthOfOne() {
+        TraversalResult result = facade.traverseRelations(first, new RelationTraversal());
+
+        assertEquals(3, result.getVisitedInstanceIds().size());
+        assertFalse(result.getVisitedInstanceIds().contains(third.getId()));
+    }
+
+    @Test
+    public void followsIncomingRelationsFromTheTarget() {
+        RelationTraversal traversal = new RelationTraversal();
+        traversal.setMaximumDepth(3);
+        traversal.setDirection(RelationTraversal.Direction.INCOMING);
+
+        TraversalResult result = facade.traverseRelations(third, traversal);
+
+        assertEquals(3, result.getVisitedInstanceIds().size());
+        assertEquals(2, result.getDepth(first.getId()));
+        assertFalse(result.getVisitedInstanceIds().contains(fourth.getId()));
+        for (TraversalResult.Step step : result.getSteps()) {
+            assertTrue(step.isReversed());
+        }
+    }
+
+    @Test
+    public void walksEachRelationOnceInBothDirections() {
+        RelationTraversal traversal = new RelationTraversal();
+        traversal.setMaximumDepth(5);
+        traversal.setDirection(RelationTraversal.Direction.BOTH);
+        traversal.setOrder(RelationTraversal.Order.DEPTH_FIRST);
+        traversal.setRelationTypes(Arrays.asList(next));
+
+        TraversalResult result = facade.traverseRelations(third, traversal);
+
+        assertEquals(4, result.getVisitedInstanceIds().size());
+        assertEquals(3, result.getRelations().size());
+    }
+
+    @Test
+    public void doesNotFollowDeletedRelations() {
+        facade.deleteRelation(firstToSecond.getId());
+        RelationTraversal traversal = new RelationTraversal();
+        traversal.setMaximumDepth(2);
+
+        TraversalResult result = facade.traverseRelations(first, traversal);
+
+        assertEquals(2, result.getVisitedInstanceIds().size());
+        assertTrue(result.getVisitedInstanceIds().contains(fourth.getId()));
+    }
+
+    @Test
+    public void reachesAnInstanceThroughTheShortestPathInEitherOrder() {
+        Instance top = createInstance(facade, node);
+        Instance left = createInstance(facade, node);
+        Instance right = createInstance(facade, node);
+        Instance bottom = createInstance(facade, node);
+        createRelation(facade, next, top, left);
+        createRelation(facade, next, top, right);
+        createRelation(facade, next, right, left);
+        createRelation(facade, next, left, bottom);
+
+        for (RelationTraversal.Order order : RelationTraversal.Order.values()) {
+            RelationTraversal traversal = new RelationTraversal();
+            traversal.setMaximumDepth(2);
+            traversal.setOrder(order);
+
+            TraversalResult result = facade.traverseRelations(top, traversal);
+
+            assertEquals(order.name(), 4, result.getVisitedInstanceIds().size());
+            assertEquals(order.name(), 1, result.getDepth(left.getId()));
+            assertEquals(order.name(), 2, result.getDepth(bottom.getId()));
+            assertEquals(order.name(), 4, result.getRelations().size());
+            for (TraversalResult.Step step : result.getSteps()) {
+                if (step.getRelation().getTarget().getId().equals(bottom.getId())) {
+                    assertEquals(order.name(), 2, step.getDepth());
+                }
+            }
+
+            traversal.setMaximumDepth(1);
+            result = facade.traverseRelations(top, traversal);
+
+            assertEquals(order.name(), 3, result.getVisitedInstanceIds().size());
+            assertFalse(order.name(), result.getVisitedInstanceIds().contains(bottom.getId()));
+        }
+    }
+
+    @Test
+    public void followsABidirectionalRelationTypeBackUnderItsReverseName() {
+        RelationType friend = createBidirectionalRelationType();
+        Instance other = createInstance(facade, node);
+        createRelation(facade, friend, first, other);
+        RelationTraversal traversal = new RelationTraversal();
+        traversal.setRelationTypes(Arrays.asList(friend));
+
+        TraversalResult result = facade.traverseRelations(other, traversal);
+
+        assertEquals(2, result.getVisitedInstanceIds().size());
+        assertEquals(1, result.getDepth(first.getId()));
+        assertEquals(1, result.getSteps().size());
+        assertTrue(result.getSteps().get(0).isReversed());
+        assertEquals("friendof", result.getSteps().get(0).getName().toLowerCase());
+    }
+
+    @Test
+    public void followsABidirectionalRelationTypeForwardWhenWalkingIncomingRelations() {
+        RelationType friend = createBidirectionalRelationType();
+        Instance other = createInstance(facade, node);
+        createRelation(facade, friend, first, other);
+        RelationTraversal traversal = new RelationTraversal();
+        traversal.setDirection(RelationTraversal.Direction.INCOMING);
+        traversal.setRelationTypes(Arrays.asList(next, friend));
+
+        TraversalResult result = facade.traverseRelations(first, traversal);
+
+        assertEquals(2, result.getVisitedInstanceIds().size());
+        assertEquals(1, result.getDepth(other.getId()));
+        assertEquals(1, result.getSteps().size());
+        assertFalse(result.getSteps().get(0).isReversed());
+        assertEquals("friend", result.getSteps().get(0).getName().toLowerCase());
+    }
+
+    @Test
+    public void doesNotShareRelationsWithTheCaller() {
+        Relation thirdToFourth = createRelation(facade, next, third, fourth);
+        thirdToFourth.setTarget(null);
+        RelationTraversal traversal = new RelationTraversal();
+        traversal.setMaximumDepth(3);
+
+        TraversalResult result = facade.traverseRelations(second, traversal);
+        assertEquals(3, result.getVisitedInstanceIds().size());
+        for (Relation relation : result.getRelations()) {
+            relation.setTarget(null);
+        }
+
+        result = facade.traverseRelations(second, traversal);
+        assertEquals(3, result.getVisitedInstanceIds().size());
+        assertTrue(result.getVisitedInstanceIds().contains(fourth.getId()));
+    }
+
+    private RelationType createBidirectionalRelationType() {
+        RelationType relationType = new RelationType();
+        relationType.setName("friend");
+        relationType.setSourceEntity(node);
+        relationType.setTargetEntity(node);
+        relationType.setSourceCardinality(Cardinality.MANY);
+        relationType.setTargetCardinality(Cardinality.MANY);
+        relationType.setBidirectional(true);
+        relationType.setReverseName("friendOf");
+        return facade.create(relationType);
+    }
+
+    @Test(expected = MetadataException.class)
+    public void rejectsAnUnknownStartInstance() {
+        Instance unknown = new Instance();
+        unknown.setId(-1L);
+        facade.traverseRelations(unknown, new RelationTraversal());
+    }
+
+}
@@ -0,0 +1,46 @@
+package com.nanuvem.lom.business.validator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class MinimumAndMaximumValueValidatorTest {
+
+    @Test
+    public void parsedAndTextValuesGiveTheSameErrors() {
+        List<ValidationError> textErrors = new ArrayList<ValidationError>();
+        List<ValidationError> parsedErrors = new ArrayList<ValidationError>();
+        MinimumValueAttributeConfigurationValidator validator = new MinimumValueAttributeConfigurationValidator();
+
+        validator.validate(textErrors, "age", "9", 10, false);
+        validator.validate(parsedErrors, "age", 9, 10, false);
+
+        assertEquals(1, textErrors.size());
+        assertEquals(textErrors.get(0).getMessage(), parsedErrors.get(0).getMessage());
+        assertEquals("The value for 'age' must be greater or equal to 10", parsedErrors.get(0).getMessage());
+    }
+
+    @Test
+    public void valuesInsideTheRangeAreAccepted() {
+        List<ValidationError> errors = new ArrayList<ValidationError>();
+
+        new MinimumValueAttributeConfigurationValidator().validate(errors, "age", 10, 10, false);
+        new MaximumValueAttributeConfigurationValidator().validate(errors, "age", 20, 20, false);
+
+        assertTrue(errors.isEmpty());
+    }
+
+    @Test
+    public void missingValueIsRejected() {
+        List<ValidationError> errors = new ArrayList<ValidationError>();
+
+        new MaximumValueAttributeConfigurationValidator().validate(errors, "age", (String) null, 20, false);
+
+        assertEquals("The value for 'age' must be smaller or equal to 20", errors.get(0).getMessage());
+    }
+
+}
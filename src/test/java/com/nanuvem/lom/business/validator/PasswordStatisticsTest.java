@@ -0,0 +1,41 @@
+package com.nanuvem.lom.business.validator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class PasswordStatisticsTest {
+
+    @Test
+    public void countsEveryCharacterClassInOnePass() {
+        PasswordStatistics statistics = new PasswordStatistics("Pa$$w0rD12");
+
+        assertEquals(2, statistics.getUppercaseCount());
+        assertEquals(3, statistics.getDigitCount());
+        assertEquals(2, statistics.getSymbolCount());
+        assertEquals(1, statistics.getMaximumRepeat());
+    }
+
+    @Test
+    public void countsRepeatedCharactersOutsideAscii() {
+        PasswordStatistics statistics = new PasswordStatistics("\u00e7a\u00e7\u00e7");
+
+        assertEquals(2, statistics.getMaximumRepeat());
+    }
+
+    @Test
+    public void emptyAndNullValuesHaveNoCharacters() {
+        assertEquals(0, new PasswordStatistics("").getMaximumRepeat());
+        assertEquals(0, new PasswordStatistics(null).getUppercaseCount());
+    }
+
+    @Test
+    public void analyzerReusesTheStatisticsOfTheSameValue() {
+        PasswordAnalyzer analyzer = new PasswordAnalyzer();
+        String value = "Password1!";
+
+        assertSame(analyzer.analyze(value), analyzer.analyze(value));
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.nanuvem.lom.business.validator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class RegexAttributeConfigurationValidatorTest {
+
+    @Test
+    public void valueMatchingTheRegexHasNoErrors() {
+        List<ValidationError> errors = new ArrayList<ValidationError>();
+        new RegexAttributeConfigurationValidator().validate(errors, "email", "abc@abc.com", "(\\w+)@(\\w+)\\.com",
+                false);
+
+        assertTrue(errors.isEmpty());
+    }
+
+    @Test
+    public void valueNotMatchingTheRegexIsRejected() {
+        List<ValidationError> errors = new ArrayList<ValidationError>();
+        new RegexAttributeConfigurationValidator().validate(errors, "email", "abc", "(\\w+)@(\\w+)\\.com", false);
+
+        assertEquals(1, errors.size());
+        assertEquals("The value for the 'email' attribute does not meet the defined regular expression", errors
+                .get(0).getMessage());
+    }
+
+    @Test
+    public void regexChangedAfterTheFirstValueIsCompiledAgain() {
+        RegexAttributeConfigurationValidator validator = new RegexAttributeConfigurationValidator();
+        List<ValidationError> errors = new ArrayList<ValidationError>();
+        validator.validate(errors, "code", "abc", "[a-z]+", false);
+        validator.validate(errors, "code", "abc", "[0-9]+", false);
+        validator.validate(errors, "code", "123", "[0-9]+", false);
+
+        assertEquals(1, errors.size());
+    }
+
+    @Test
+    public void defaultValidatorMatchesLongValuesWithoutABudget() {
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 2000000; i++) {
+            value.append('a');
+        }
+        List<ValidationError> errors = new ArrayList<ValidationError>();
+        new RegexAttributeConfigurationValidator().validate(errors, "name", value.toString(), "[a-z]+", false);
+
+        assertTrue(errors.isEmpty());
+    }
+
+    @Test(timeout = 5000)
+    public void catastrophicBacktrackingIsAbandonedOnceTheBudgetIsSpent() {
+        List<ValidationError> errors = new ArrayList<ValidationError>();
+        new RegexAttributeConfigurationValidator(100000).validate(errors, "name", "aaaaaaaaaaaaaaaaaaaaaaaaaaa!",
+                "(.*a){12}", false);
+
+        assertEquals(1, errors.size());
+        assertEquals("The value for the 'name' attribute took too long to match the defined regular expression",
+                errors.get(0).getMessage());
+    }
+
+}